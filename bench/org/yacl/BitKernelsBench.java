@@ -0,0 +1,84 @@
+package org.yacl;
+
+import java.util.Random;
+
+
+/**
+ Times the scalar and the vector loops of {@link BitKernels} on bitmaps that
+ fit in L1, in L2 and in neither, reporting nanoseconds per 64-bit word. Run
+ with <code>ant bench</code>, which starts the JVM with
+ <code>--add-modules jdk.incubator.vector</code>; pass
+ <code>-XX:UseAVX=2</code> to the JVM to limit the vector loops to AVX2.
+ Without the module only the scalar loops are timed.
+
+ @author Brad Long
+**/
+public class BitKernelsBench {
+
+    private static final int[] SIZES = { 512, 16 * 1024, 1024 * 1024 };
+    private static final String[] KERNELS = { "and", "or", "andNot", "orInto", "popcount", "andCount" };
+    private static final int ROUNDS = 5;
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        System.out.println("vector loops: " + (BitKernels.VECTOR != null ? BitKernels.VECTOR.width() + " bits" : "not available")
+            + ", in use: " + BitKernels.implementation());
+        warmUp();
+        for (int n : SIZES) {
+            Random random = new Random(n);
+            long[] a = new long[n], b = new long[n], out = new long[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = random.nextLong();
+                b[i] = random.nextLong();
+            }
+            for (String kernel : KERNELS) {
+                StringBuilder line = new StringBuilder(String.format("%8d words %-9s", n, kernel));
+                for (BitKernels.Words w : new BitKernels.Words[] { BitKernels.SCALAR, BitKernels.VECTOR }) {
+                    if (w == null) continue;
+                    line.append(String.format(" %s %6.3f ns/word", w == BitKernels.SCALAR ? "scalar" : "vector", time(w, kernel, a, b, out, n)));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    /*
+     * Runs every loop until it is compiled, so that the first timings are not of the interpreter.
+     */
+    private static void warmUp() {
+        long[] a = new long[4096], b = new long[4096], out = new long[4096];
+        for (String kernel : KERNELS) {
+            for (BitKernels.Words w : new BitKernels.Words[] { BitKernels.SCALAR, BitKernels.VECTOR }) {
+                if (w == null) continue;
+                for (int r = 0; r < 20000; r++) sink += run(w, kernel, a, b, out, a.length);
+            }
+        }
+    }
+
+    /*
+     * Returns the best time per word of several rounds, each of about 64M words.
+     */
+    private static double time(BitKernels.Words w, String kernel, long[] a, long[] b, long[] out, int n) {
+        int reps = Math.max(1, (64 << 20) / n);
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long total = 0;
+            for (int r = 0; r < reps; r++) total += run(w, kernel, a, b, out, n);
+            best = Math.min(best, (double) (System.nanoTime() - start) / ((long) reps * n));
+            sink += total;
+        }
+        return best;
+    }
+
+    private static long run(BitKernels.Words w, String kernel, long[] a, long[] b, long[] out, int n) {
+        switch (kernel) {
+            case "and": return w.and(a, b, out, n);
+            case "or": return w.or(a, b, out, n);
+            case "andNot": return w.andNot(a, b, out, n);
+            case "orInto": w.orInto(out, a, n); return out[0];
+            case "popcount": return w.popcount(a, n);
+            default: return w.andCount(a, b, n);
+        }
+    }
+}
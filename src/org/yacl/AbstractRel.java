@@ -0,0 +1,320 @@
+package org.yacl;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ A skeletal implementation of <code>Relation</code> for relations that are not
+ backed by a <code>java.util.HashSet</code>. Subclasses provide
+ <code>iterator</code>, <code>size</code> and, if modifiable, <code>add</code>
+ and an iterator supporting <code>remove</code>.<p>
+
+ Operators that can be answered in one pass over the maplets, such as the
+ restrictions, <code>image</code> and <code>composition</code>, are implemented
+ here by scanning. The graph operators and property checks, which need indexes,
+ are answered by a <code>HashRel</code> copy of this relation; subclasses that
+ can do better override them.
+
+ @author Brad Long
+**/
+public abstract class AbstractRel<T1, T2> extends AbstractSet<Maplet<T1, T2>> implements Relation<T1, T2> {
+
+    protected AbstractRel() {
+        super();
+    }
+
+    protected Set<Maplet<T1, T2>> getInstance() {
+        return new ArrayRel<T1, T2>();
+    }
+
+    /**
+     * Returns a <code>HashRel</code> holding the maplets of this relation, to which
+     * operators needing indexes are delegated.
+    **/
+    protected HashRel<T1, T2> snapshot() {
+        HashRel<T1, T2> r = new HashRel<>();
+        for (Maplet<T1, T2> m : this) r.add(m);
+        return r;
+    }
+
+    public boolean add(T1 t1, T2 t2) {
+        return add(new Maplet<>(t1, t2));
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        return contains(new Maplet<>(x, y));
+    }
+
+    /**
+     * Returns a cursor reading the maplets returned by the iterator. Relations
+     * that do not hold maplets override this to read their pairs directly.
+    **/
+    public Cursor<T1, T2> cursor() {
+        final Iterator<Maplet<T1, T2>> it = iterator();
+        return new Cursor<T1, T2>() {
+            private Maplet<T1, T2> current;
+            public boolean next() {
+                current = it.hasNext() ? it.next() : null;
+                return current != null;
+            }
+            public T1 x() {
+                if (current == null) throw new NoSuchElementException();
+                return current.x();
+            }
+            public T2 y() {
+                if (current == null) throw new NoSuchElementException();
+                return current.y();
+            }
+        };
+    }
+
+    public void forEach(BiConsumer<? super T1, ? super T2> action) {
+        for (Cursor<T1, T2> c = cursor(); c.next(); ) action.accept(c.x(), c.y());
+    }
+
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        for (Cursor<T1, T2> c = cursor(); c.next(); ) {
+            if (Objects.equals(c.x(), x)) action.accept(c.y());
+        }
+    }
+
+    public boolean addAll(Map<T1, T2> m) {
+        boolean changed = false;
+        for (Map.Entry<T1, T2> e : m.entrySet()) {
+            changed = add(new Maplet<>(e.getKey(), e.getValue())) || changed;
+        }
+        return changed;
+    }
+
+    public Set<T1> domain() {
+        Set<T1> domain = new HashSet<>();
+        for (Maplet<T1, T2> m : this) domain.add(m.x());
+        return domain;
+    }
+
+    public Set<T2> range() {
+        Set<T2> range = new HashSet<>();
+        for (Maplet<T1, T2> m : this) range.add(m.y());
+        return range;
+    }
+
+    public Relation<T1, T2> union (Set<Maplet<T1, T2>> s) {
+        Relation<T1, T2> r = new HashRel<>();
+        r.addAll(this);
+        r.addAll(s);
+        return r;
+    }
+
+    public Relation<T1, T2> domainRestriction (Set<T1> s) {
+        return restriction(s, null);
+    }
+
+    public Relation<T1, T2> domainAntiRestriction (Set<T1> s) {
+        return antiRestriction(s, null);
+    }
+
+    public Relation<T1, T2> rangeRestriction (Set<T2> t) {
+        return restriction(null, t);
+    }
+
+    public Relation<T1, T2> rangeAntiRestriction (Set<T2> t) {
+        return antiRestriction(null, t);
+    }
+
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t) {
+        Relation<T1, T2> r = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            if ((s == null || s.contains(m.x())) && (t == null || t.contains(m.y()))) r.add(m);
+        }
+        return r;
+    }
+
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t) {
+        Relation<T1, T2> r = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            if ((s == null || !s.contains(m.x())) && (t == null || !t.contains(m.y()))) r.add(m);
+        }
+        return r;
+    }
+
+    public Relation<T2, T1> inverse() {
+        Relation<T2, T1> r = new HashRel<>();
+        for (Maplet<T1, T2> m : this) r.add(m.y(), m.x());
+        return r;
+    }
+
+    public Relation<T1, T2> composition (Relation<T1, T2> r) {
+        Index<Object, T2> next = (Index<Object, T2>) (Index<?, ?>) HashRel.domainIndexOf(r);
+        Relation<T1, T2> rel = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            for (T2 z : next.get(m.y())) rel.add(m.x(), z);
+        }
+        return rel;
+    }
+
+    public Relation<T1, T2> override (Relation<T1, T2> r) {
+        Index<T1, T2> over = HashRel.domainIndexOf(r);
+        Relation<T1, T2> rel = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            if (!over.containsKey(m.x())) rel.add(m);
+        }
+        rel.addAll(r);
+        return rel;
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        Set<T2> image = new HashSet<>();
+        for (Maplet<T1, T2> m : this) {
+            if (s.contains(m.x())) image.add(m.y());
+        }
+        return image;
+    }
+
+    public Relation<T1, T2> unionInPlace (Set<Maplet<T1, T2>> s) {
+        addAll(s);
+        return this;
+    }
+
+    public Relation<T1, T2> overrideInPlace (Relation<T1, T2> r) {
+        if (r == this) return this;
+        if (this instanceof Function && !r.isFunction()) {
+            throw new IllegalArgumentException("A function can only be overridden by a function");
+        }
+        Index<T1, T2> over = HashRel.domainIndexOf(r);
+        removeIf(m -> over.containsKey(m.x()));
+        addAll(r);
+        return this;
+    }
+
+    public Relation<T1, T2> domainRestrictionInPlace (Set<T1> s) {
+        removeIf(m -> !s.contains(m.x()));
+        return this;
+    }
+
+    public Relation<T1, T2> domainAntiRestrictionInPlace (Set<T1> s) {
+        removeIf(m -> s.contains(m.x()));
+        return this;
+    }
+
+    public Relation<T1, T2> rangeRestrictionInPlace (Set<T2> t) {
+        removeIf(m -> !t.contains(m.y()));
+        return this;
+    }
+
+    public Relation<T1, T2> rangeAntiRestrictionInPlace (Set<T2> t) {
+        removeIf(m -> t.contains(m.y()));
+        return this;
+    }
+
+    public Relation<T1, T2> transitiveClosure () {
+        return snapshot().transitiveClosure();
+    }
+
+    public Relation<T1, T2> reflexiveTransitiveClosure () {
+        return snapshot().reflexiveTransitiveClosure();
+    }
+
+    public Relation<T1, T2> power (int k) {
+        return snapshot().power(k);
+    }
+
+    public EquivalenceRel<T1, T2> equivalenceClosure () {
+        return new EquivalenceRel<>(this);
+    }
+
+    public boolean reaches (T1 a, T2 b) {
+        return snapshot().reaches(a, b);
+    }
+
+    public Set<T2> reachableFrom (T1 a) {
+        return snapshot().reachableFrom(a);
+    }
+
+    public Set<T1> reachingTo (T2 b) {
+        return snapshot().reachingTo(b);
+    }
+
+    public boolean isAcyclic () {
+        return snapshot().isAcyclic();
+    }
+
+    public Set<Set<T1>> stronglyConnectedComponents () {
+        return snapshot().stronglyConnectedComponents();
+    }
+
+    public List<T1> topologicalOrder () {
+        return snapshot().topologicalOrder();
+    }
+
+    public Relation<Set<T1>, Set<T1>> condensation () {
+        return snapshot().condensation();
+    }
+
+    public boolean isFunction () {
+        return domain().size() == size();
+    }
+
+    public boolean isInjection () {
+        return isFunction() && range().size() == size();
+    }
+
+    public boolean isReflexive () {
+        return snapshot().isReflexive();
+    }
+
+    public boolean isSymmetric () {
+        return snapshot().isSymmetric();
+    }
+
+    public boolean isAntisymmetric () {
+        return snapshot().isAntisymmetric();
+    }
+
+    public boolean isTransitive () {
+        return snapshot().isTransitive();
+    }
+
+    public boolean isEquivalence () {
+        return snapshot().isEquivalence();
+    }
+
+    public boolean isTotal (Set<T1> s) {
+        return domain().containsAll(s);
+    }
+
+    public Statistics statistics () {
+        return snapshot().statistics();
+    }
+
+    public Map<T1, java.util.Set<T2>> asMultimap () {
+        return new MultimapView<>(this);
+    }
+
+    public Relation<T1, T2> freeze () {
+        return new FrozenRel<>(this);
+    }
+
+    /**
+     * Writes the representation of this relation returned by <code>toString</code>
+     * to a given destination, one maplet at a time.
+     * @param out	the destination
+     * @throws IOException if the destination throws it
+    **/
+    public void writeTo(Appendable out) throws IOException {
+        HashRel.writeTo(this, out);
+    }
+
+    /**
+     * @return a <code>String</code> representation of this relation
+    **/
+    public String toString() {
+        return HashRel.toString(this);
+    }
+}
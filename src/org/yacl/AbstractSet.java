@@ -0,0 +1,109 @@
+package org.yacl;
+
+import java.util.Collection;
+import java.util.Collections;
+
+
+/**
+ A skeletal implementation of <code>Set</code> for collections that are not
+ backed by a <code>java.util.HashSet</code>. Subclasses provide
+ <code>iterator</code>, <code>size</code> and, if modifiable, <code>add</code>;
+ the set operations are built on those and return <code>ArraySet</code>s.<p>
+
+ @author Brad Long
+**/
+public abstract class AbstractSet<T> extends java.util.AbstractSet<T> implements Set<T> {
+
+    protected AbstractSet() {
+        super();
+    }
+
+    protected Set<T> getInstance() {
+        return new ArraySet<T>();
+    }
+
+    /**
+     * Returns an empty set to hold the result of a set operation expected to have
+     * about a given number of elements.
+    **/
+    protected Set<T> getInstance(int expectedSize) {
+        return getInstance();
+    }
+
+    public Set<T> addElement(T el) {
+        Set<T> s = getInstance();
+        s.add(el);
+        return s;
+    }
+
+    /**
+     * Constructs the union of a given set with this set.
+     * @param t        the set to union with this set
+     * @return  a set being the union of <code>this</code> and <code>t</code>
+    **/
+    public Set<T> union (Set<T> t) {
+        Set<T> s = getInstance(HashSet.sum(size(), t.size()));
+        s.addAll(this);
+        s.addAll(t);
+        return s;
+    }
+
+    public Set<T> unionAll (Collection<? extends Set<T>> sets) {
+        int n = size();
+        for (Set<T> t : sets) n = HashSet.sum(n, t.size());
+        Set<T> s = getInstance(n);
+        s.addAll(this);
+        for (Set<T> t : sets) s.addAll(t);
+        return s;
+    }
+
+    /**
+     * Returns the difference of a given set with this set.
+     * @param t        the set to subtract from this set
+     * @return  a set being the difference between <code>this</code> and <code>t</code>
+    **/
+    public Set<T> difference (Set<T> t) {
+        Set<T> s = getInstance(size());
+        for (T el : this) {
+            if (!t.contains(el)) s.add(el);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the intersection of this set with a given set.
+     * @param t        the set with which to intersect
+     * @return  a set being the intersection of <code>this</code> and <code>t</code>
+    **/
+    public Set<T> intersection (Set<T> t) {
+        return intersectAll(Collections.singletonList(t));
+    }
+
+    public Set<T> intersectAll (Collection<? extends Set<T>> sets) {
+        int n = size();
+        for (Set<T> t : sets) n = Math.min(n, t.size());
+        return HashSet.intersect(getInstance(n), this, sets);
+    }
+
+    public boolean isSubsetOf (Set<T> t) {
+        return size() <= t.size() && t.containsAll(this);
+    }
+
+    public boolean isProperSubsetOf (Set<T> t) {
+        return size() < t.size() && t.containsAll(this);
+    }
+
+    public Relation<T, T> identity () {
+        Relation<T, T> r = new HashRel<>();
+        for (T el : this) r.add(el, el);
+        return r;
+    }
+
+    public Relation<T, T> cartesianProduct(Set<T> y) {
+        Relation<T, T> r = new HashRel<>();
+        for (T a : this) {
+            for (T b : y) r.add(a, b);
+        }
+        return r;
+    }
+}
@@ -0,0 +1,103 @@
+package org.yacl;
+
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ A function for a handful of maplets, held in an array and searched linearly
+ in the manner of {@link ArrayRel}. Past the threshold its maplets are moved
+ into a <code>HashFun</code>.
+
+ @author Brad Long
+**/
+public class ArrayFun<T1, T2> extends ArrayRel<T1, T2> implements Function<T1, T2> {
+
+    public ArrayFun() {
+        super();
+    }
+
+    /**
+     * Constructs a function from a given <code>java.util.Map</code>.
+    **/
+    public ArrayFun(Map<T1, T2> m) {
+        this();
+        addAll(m);
+    }
+
+    /**
+     * Constructs a function from a given function.
+    **/
+    public ArrayFun(Function<T1, T2> f) {
+        this();
+        addAll(f);
+    }
+
+    protected Function<T1, T2> getInstance() {
+        return new ArrayFun<T1, T2>();
+    }
+
+    protected HashRel<T1, T2> newTable() {
+        return new HashFun<T1, T2>();
+    }
+
+    /**
+     * Adds a maplet to this function. An exception is thrown
+     * if a maplet already exists with the same x
+     * in (x,y).
+     *
+     * @param m    the maplet to add to the function
+     * @return <code>true</code> if the maplet was added to this function
+     * @throws DuplicateKeyException if the maplet already exists
+    **/
+    public boolean add(Maplet<T1, T2> m) {
+        if (getMaplet(m.x()) != null) throw new RuntimeException("Duplicate Key");
+        return super.add(m);
+    }
+
+    public T2 put(T1 x, T2 y) {
+        return put(new Maplet<>(x, y));
+    }
+
+    public T2 put(Maplet<T1, T2> m) {
+        Maplet<T1, T2> maplet = getMaplet(m.x());
+        if (maplet != null) remove(maplet);
+        super.add(m);
+        return maplet == null ? null : maplet.y();
+    }
+
+    public T2 getValue(T1 key) {
+        Maplet<T1, T2> m = getMaplet(key);
+        return m == null ? null : m.y();
+    }
+
+    public Maplet<T1, T2> getMaplet(T1 key) {
+        HashRel<T1, T2> table = table();
+        if (table != null) return ((HashFun<T1, T2>) table).getMaplet(key);
+        for (Maplet<T1, T2> m : this) {
+            if (Objects.equals(m.x(), key)) return m;
+        }
+        return null;
+    }
+
+    public boolean containsValue(T2 value) {
+        HashRel<T1, T2> table = table();
+        if (table != null) return ((HashFun<T1, T2>) table).containsValue(value);
+        for (Maplet<T1, T2> m : this) {
+            if (Objects.equals(m.y(), value)) return true;
+        }
+        return false;
+    }
+
+    public boolean containsKey(T1 key) {
+        return getMaplet(key) != null;
+    }
+
+    public Map<T1, T2> asMap() {
+        return new FunctionMap<>(this);
+    }
+
+    public Function<T1, T2> freeze() {
+        return new FrozenFun<>(this);
+    }
+}
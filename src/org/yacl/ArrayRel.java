@@ -0,0 +1,162 @@
+package org.yacl;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+
+/**
+ A relation for a handful of maplets, held in an array and searched linearly
+ in the manner of {@link ArraySet}.<p>
+
+ Once the relation grows past {@link ArraySet#THRESHOLD} maplets it moves them
+ into a <code>HashRel</code>, created by {@link #newTable()}, and answers every
+ operator through that relation and its indexes. When it shrinks to half the
+ threshold it moves them back into an array.
+
+ @author Brad Long
+**/
+public class ArrayRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    private final ArraySet<Maplet<T1, T2>> maplets;
+
+    public ArrayRel() {
+        super();
+        maplets = new ArraySet<Maplet<T1, T2>>() {
+            protected HashSet<Maplet<T1, T2>> newTable() {
+                return ArrayRel.this.newTable();
+            }
+        };
+    }
+
+    /**
+     * Constructs a relation from a given <code>java.util.Collection</code>.
+    **/
+    public ArrayRel(Collection<Maplet<T1, T2>> c) {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * Constructs a relation from a given <code>java.util.Map</code>.
+    **/
+    public ArrayRel(Map<T1, T2> m) {
+        this();
+        addAll(m);
+    }
+
+    protected Relation<T1, T2> getInstance() {
+        return new ArrayRel<T1, T2>();
+    }
+
+    /**
+     * Returns the relation that this relation moves its maplets into when it
+     * grows past the threshold.
+    **/
+    protected HashRel<T1, T2> newTable() {
+        return new HashRel<T1, T2>();
+    }
+
+    /**
+     * Returns the relation holding the maplets of this relation, or
+     * <code>null</code> if they are held in an array.
+    **/
+    HashRel<T1, T2> table() {
+        return (HashRel<T1, T2>) maplets.table();
+    }
+
+    protected HashRel<T1, T2> snapshot() {
+        HashRel<T1, T2> table = table();
+        return table != null ? table : super.snapshot();
+    }
+
+    public int size() {
+        return maplets.size();
+    }
+
+    public boolean contains(Object o) {
+        return maplets.contains(o);
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        HashRel<T1, T2> table = table();
+        if (table != null) return table.contains(x, y);
+        for (Maplet<T1, T2> m : maplets) {
+            if (Objects.equals(m.x(), x) && Objects.equals(m.y(), y)) return true;
+        }
+        return false;
+    }
+
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        HashRel<T1, T2> table = table();
+        if (table != null) table.forEachImage(x, action); else super.forEachImage(x, action);
+    }
+
+    public boolean add(Maplet<T1, T2> m) {
+        return maplets.add(m);
+    }
+
+    public boolean remove(Object o) {
+        return maplets.remove(o);
+    }
+
+    public void clear() {
+        maplets.clear();
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return maplets.iterator();
+    }
+
+    public Set<T1> domain() {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.domain() : super.domain();
+    }
+
+    public Set<T2> range() {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.range() : super.range();
+    }
+
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.restriction(s, t) : super.restriction(s, t);
+    }
+
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.antiRestriction(s, t) : super.antiRestriction(s, t);
+    }
+
+    public Relation<T1, T2> composition (Relation<T1, T2> r) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.composition(r) : super.composition(r);
+    }
+
+    public Relation<T1, T2> override (Relation<T1, T2> r) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.override(r) : super.override(r);
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.image(s) : super.image(s);
+    }
+
+    public boolean isFunction () {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.isFunction() : super.isFunction();
+    }
+
+    public boolean isInjection () {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.isInjection() : super.isInjection();
+    }
+
+    public boolean isTotal (Set<T1> s) {
+        HashRel<T1, T2> table = table();
+        return table != null ? table.isTotal(s) : super.isTotal(s);
+    }
+}
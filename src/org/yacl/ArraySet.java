@@ -0,0 +1,161 @@
+package org.yacl;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+
+/**
+ A set for a handful of elements, held in an array and searched linearly.
+ A small <code>java.util.HashSet</code> allocates a table of sixteen slots and
+ a node per element; this set allocates one array sized to its contents.<p>
+
+ Once the set grows past {@link #THRESHOLD} elements it moves its elements
+ into a hash table, created by {@link #newTable()}, and delegates to it. When
+ it shrinks to half the threshold it moves them back into an array. Both
+ changes are invisible to callers.
+
+ @author Brad Long
+**/
+public class ArraySet<T> extends AbstractSet<T> {
+
+    /** The largest number of elements held in an array. */
+    public static final int THRESHOLD = 8;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] elements;
+    private int size;
+    private HashSet<T> table;
+
+    public ArraySet() {
+        super();
+        elements = EMPTY;
+    }
+
+    /**
+     * Constructs a set containing all elements in the supplied collection.
+    **/
+    public ArraySet(Collection<? extends T> c) {
+        this();
+        addAll(c);
+    }
+
+    protected Set<T> getInstance() {
+        return new ArraySet<T>();
+    }
+
+    /**
+     * Returns the hash table that this set moves its elements into when it
+     * grows past the threshold.
+    **/
+    protected HashSet<T> newTable() {
+        return new HashSet<T>();
+    }
+
+    /**
+     * Returns the hash table holding the elements of this set, or
+     * <code>null</code> if they are held in an array.
+    **/
+    HashSet<T> table() {
+        return table;
+    }
+
+    public int size() {
+        return table != null ? table.size() : size;
+    }
+
+    public boolean contains(Object o) {
+        return table != null ? table.contains(o) : indexOf(o) >= 0;
+    }
+
+    public boolean add(T el) {
+        if (table != null) return table.add(el);
+        if (indexOf(el) >= 0) return false;
+        if (size == THRESHOLD) {
+            promote();
+            return table.add(el);
+        }
+        if (size == elements.length) {
+            Object[] grown = new Object[Math.min(THRESHOLD, Math.max(2, size * 2))];
+            System.arraycopy(elements, 0, grown, 0, size);
+            elements = grown;
+        }
+        elements[size++] = el;
+        return true;
+    }
+
+    public boolean remove(Object o) {
+        if (table != null) {
+            if (!table.remove(o)) return false;
+            if (table.size() <= THRESHOLD / 2) demote();
+            return true;
+        }
+        int i = indexOf(o);
+        if (i < 0) return false;
+        removeAt(i);
+        return true;
+    }
+
+    public void clear() {
+        table = null;
+        elements = EMPTY;
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over this set. Removing through the iterator of a set
+     * held in a hash table does not move it back into an array; the next
+     * <code>remove</code> on the set does.
+    **/
+    public Iterator<T> iterator() {
+        if (table != null) return table.iterator();
+        return new Iterator<T>() {
+            private int next = 0;
+            private boolean removable = false;
+            public boolean hasNext() {
+                return next < size;
+            }
+            public T next() {
+                if (next >= size) throw new NoSuchElementException();
+                removable = true;
+                return (T) elements[next++];
+            }
+            public void remove() {
+                if (!removable) throw new IllegalStateException();
+                removable = false;
+                removeAt(--next);  // the last element moves into this slot and is visited next
+            }
+        };
+    }
+
+    private int indexOf(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(elements[i], o)) return i;
+        }
+        return -1;
+    }
+
+    private void removeAt(int i) {
+        elements[i] = elements[--size];
+        elements[size] = null;
+    }
+
+    private void promote() {
+        HashSet<T> t = newTable();
+        for (int i = 0; i < size; i++) t.add((T) elements[i]);
+        table = t;
+        elements = null;
+        size = 0;
+    }
+
+    private void demote() {
+        Object[] a = new Object[THRESHOLD];
+        int n = 0;
+        for (T el : table) a[n++] = el;
+        table = null;
+        elements = a;
+        size = n;
+    }
+}
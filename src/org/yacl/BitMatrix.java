@@ -0,0 +1,336 @@
+package org.yacl;
+
+import java.util.Arrays;
+
+
+/**
+ A square boolean matrix over the ids 0..n-1, stored as one bitmap per row,
+ backing {@link BitMatrixRel}. Rows are allocated when their first bit is set
+ and may be shorter than n bits; missing words are zero.<p>
+
+ Multiplication ORs whole rows of the right operand into the rows of the
+ product, and is blocked over the rows of the right operand so that a block
+ stays in cache while every row of the left operand is passed over it.
+ Closure finds the strongly connected components and then works over the
+ components in reverse topological order, ORing each successor's reach only
+ if it is not already implied, so a dense relation costs little more than its
+ transitive reduction.
+
+ @author Brad Long
+**/
+final class BitMatrix {
+
+    /* Rows of the right operand ORed while a block of the left operand's columns is scanned. */
+    private static final int BLOCK = 256;
+
+    private long[][] rows;
+    private int n;
+    private long count;
+
+    BitMatrix(int n) {
+        this.rows = new long[Math.max(n, 1)][];
+        this.n = n;
+    }
+
+    private BitMatrix(long[][] rows, int n, long count) {
+        this.rows = rows;
+        this.n = n;
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of rows and columns of this matrix.
+    **/
+    int dimension() {
+        return n;
+    }
+
+    /**
+     * Returns the number of bits set.
+    **/
+    long count() {
+        return count;
+    }
+
+    boolean get(int i, int j) {
+        if (i >= n) return false;
+        long[] row = rows[i];
+        return row != null && (j >>> 6) < row.length && (row[j >>> 6] & (1L << j)) != 0;
+    }
+
+    boolean set(int i, int j) {
+        grow(Math.max(i, j) + 1);
+        long[] row = rows[i];
+        if (row == null) row = rows[i] = new long[words(n)];
+        else if ((j >>> 6) >= row.length) row = rows[i] = Arrays.copyOf(row, words(n));
+        long bit = 1L << j;
+        if ((row[j >>> 6] & bit) != 0) return false;
+        row[j >>> 6] |= bit;
+        ++count;
+        return true;
+    }
+
+    boolean clear(int i, int j) {
+        if (!get(i, j)) return false;
+        rows[i][j >>> 6] &= ~(1L << j);
+        --count;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(rows, null);
+        count = 0;
+    }
+
+    /**
+     * Returns the row of a given id, or <code>null</code> if it is empty.
+    **/
+    long[] row(int i) {
+        return i < n ? rows[i] : null;
+    }
+
+    /**
+     * Returns the least column not less than a given column whose bit is set in
+     * a given row, or -1.
+    **/
+    int next(int i, int from) {
+        if (i >= n) return -1;
+        long[] row = rows[i];
+        if (row == null) return -1;
+        int w = from >>> 6;
+        if (w >= row.length) return -1;
+        long word = row[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == row.length) return -1;
+            word = row[w];
+        }
+    }
+
+    private void grow(int dimension) {
+        if (dimension <= n) return;
+        if (dimension > rows.length) rows = Arrays.copyOf(rows, Math.max(dimension, rows.length * 2));
+        n = dimension;
+    }
+
+    static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Returns a bitmap of the ids that have a set bit in their row or column.
+    **/
+    long[] field() {
+        long[] field = new long[words(n)];
+        for (int i = 0; i < n; i++) {
+            long[] row = rows[i];
+            if (row == null) continue;
+            BitKernels.orInto(field, row, row.length);
+            if (BitKernels.popcount(row, row.length) > 0) field[i >>> 6] |= 1L << i;
+        }
+        return field;
+    }
+
+    BitMatrix copy() {
+        long[][] copy = new long[rows.length][];
+        for (int i = 0; i < n; i++) {
+            if (rows[i] != null) copy[i] = rows[i].clone();
+        }
+        return new BitMatrix(copy, n, count);
+    }
+
+    /**
+     * Returns the boolean product of this matrix and another: bit (i,j) is set
+     * if bit (i,k) of this matrix and bit (k,j) of the other are set for some k.
+    **/
+    BitMatrix multiply(BitMatrix b) {
+        int dimension = Math.max(n, b.n);
+        int words = words(dimension);
+        long[][] out = new long[Math.max(dimension, 1)][];
+        for (int kb = 0; kb < b.n; kb += BLOCK) {
+            int firstWord = kb >>> 6, lastWord = words(Math.min(b.n, kb + BLOCK));
+            for (int i = 0; i < n; i++) {
+                long[] a = rows[i];
+                if (a == null) continue;
+                for (int w = firstWord; w < lastWord && w < a.length; w++) {
+                    long word = a[w];
+                    while (word != 0) {
+                        int k = (w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        long[] r = b.row(k);
+                        if (r == null) continue;
+                        if (out[i] == null) out[i] = new long[words];
+                        BitKernels.orInto(out[i], r, r.length);
+                    }
+                }
+            }
+        }
+        long count = 0;
+        for (long[] row : out) {
+            if (row != null) count += BitKernels.popcount(row, row.length);
+        }
+        return new BitMatrix(out, dimension, count);
+    }
+
+    /**
+     * Returns this matrix multiplied by itself k times, by repeated squaring. The
+     * zeroth power is the identity over the field of this matrix.
+    **/
+    BitMatrix power(int k) {
+        if (k == 0) {
+            BitMatrix identity = new BitMatrix(n);
+            identity.setDiagonal(field());
+            return identity;
+        }
+        BitMatrix result = null, base = this;
+        while (true) {
+            if ((k & 1) != 0) result = result == null ? base : result.multiply(base);
+            k >>>= 1;
+            if (k == 0) break;
+            base = base.multiply(base);
+        }
+        return result == this ? copy() : result;
+    }
+
+    /**
+     * Sets bit (i,i) for every id i in a given bitmap.
+    **/
+    void setDiagonal(long[] ids) {
+        for (int w = 0; w < ids.length; w++) {
+            long word = ids[w];
+            while (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                set(i, i);
+            }
+        }
+    }
+
+    /**
+     * Returns the transitive closure of this matrix.
+    **/
+    BitMatrix closure() {
+        int words = words(n);
+        int[] comp = components();
+        int components = 0;
+        for (int c : comp) components = Math.max(components, c + 1);
+
+        // members of each component, grouped by a counting sort
+        int[] start = new int[components + 1];
+        for (int v = 0; v < n; v++) ++start[comp[v] + 1];
+        for (int c = 0; c < components; c++) start[c + 1] += start[c];
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(start, components);
+        for (int v = 0; v < n; v++) members[fill[comp[v]]++] = v;
+
+        long[][] reach = new long[components][];
+        int[] stamp = new int[components];
+        int[] successors = new int[components];
+        long[] union = new long[words];
+        for (int c = 0; c < components; c++) {
+            Arrays.fill(union, 0L);
+            boolean cyclic = start[c + 1] - start[c] > 1;
+            for (int m = start[c]; m < start[c + 1]; m++) {
+                int v = members[m];
+                long[] row = rows[v];
+                if (row == null) continue;
+                BitKernels.orInto(union, row, row.length);
+                if (get(v, v)) cyclic = true;
+            }
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                long word = union[w];
+                while (word != 0) {
+                    int d = comp[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                    if (d != c && stamp[d] != c + 1) {
+                        stamp[d] = c + 1;
+                        successors[count++] = d;
+                    }
+                }
+            }
+            // components reaching others come later in sink-first order, so visiting
+            // successors from the highest index down lets implied ones be skipped
+            Arrays.sort(successors, 0, count);
+            long[] r = new long[words];
+            for (int s = count - 1; s >= 0; s--) {
+                int d = successors[s];
+                int rep = members[start[d]];
+                if ((r[rep >>> 6] & (1L << rep)) != 0) continue;
+                BitKernels.orInto(r, reach[d], words);
+                for (int m = start[d]; m < start[d + 1]; m++) r[members[m] >>> 6] |= 1L << members[m];
+            }
+            if (cyclic) {
+                for (int m = start[c]; m < start[c + 1]; m++) r[members[m] >>> 6] |= 1L << members[m];
+            }
+            reach[c] = r;
+        }
+
+        long[][] out = new long[Math.max(n, 1)][];
+        long count = 0;
+        for (int v = 0; v < n; v++) {
+            long[] r = reach[comp[v]];
+            int bits = BitKernels.popcount(r, words);
+            if (bits == 0) continue;
+            out[v] = r.clone();
+            count += bits;
+        }
+        return new BitMatrix(out, n, count);
+    }
+
+    /*
+     * Numbers the strongly connected components of this matrix, by Tarjan's
+     * algorithm run iteratively, so that every component is numbered lower than
+     * the components reaching it.
+     */
+    private int[] components() {
+        int[] comp = new int[n];
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] position = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        Arrays.fill(index, -1);
+        int counter = 0, components = 0, sp = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            int cp = 0;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            calls[cp++] = root;
+            while (cp > 0) {
+                int v = calls[cp - 1];
+                int w = next(v, position[v]);
+                if (w >= 0) {
+                    position[v] = w + 1;
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        calls[cp++] = w;
+                    } else if (onStack[w] && index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
+                } else {
+                    --cp;
+                    if (low[v] == index[v]) {
+                        int x;
+                        do {
+                            x = stack[--sp];
+                            onStack[x] = false;
+                            comp[x] = components;
+                        } while (x != v);
+                        ++components;
+                    }
+                    if (cp > 0) {
+                        int u = calls[cp - 1];
+                        if (low[v] < low[u]) low[u] = low[v];
+                    }
+                }
+            }
+        }
+        return comp;
+    }
+}
@@ -0,0 +1,218 @@
+package org.yacl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+
+/**
+ A relation whose values are interned in a {@link Dictionary} and whose
+ maplets are the set bits of a square bit matrix indexed by id. Each x takes
+ a bit per id rather than a hash entry per maplet, so this representation
+ suits dense relations over a modest number of values, where it is far
+ smaller than a hash table of maplets and its closure and composition work a
+ row of 64 bits at a time.<p>
+
+ Composition with another <code>BitMatrixRel</code> sharing this dictionary,
+ <code>power</code>, and both closures run on the matrix; the transitive
+ closure of a dense relation over twenty thousand values takes seconds.
+ Maplets are decoded only as they are iterated.
+
+ @author Brad Long
+**/
+public class BitMatrixRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    private final Dictionary dictionary;
+    private BitMatrix matrix;
+
+    /**
+     * Constructs an empty relation with a dictionary of its own.
+    **/
+    public BitMatrixRel() {
+        this(new Dictionary());
+    }
+
+    /**
+     * Constructs an empty relation encoding its values with a given dictionary.
+    **/
+    public BitMatrixRel(Dictionary dictionary) {
+        this(dictionary, new BitMatrix(dictionary.size()));
+    }
+
+    BitMatrixRel(Dictionary dictionary, BitMatrix matrix) {
+        super();
+        this.dictionary = dictionary;
+        this.matrix = matrix;
+    }
+
+    public Dictionary dictionary() {
+        return dictionary;
+    }
+
+    protected Relation<T1, T2> getInstance() {
+        return new BitMatrixRel<T1, T2>(dictionary);
+    }
+
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, matrix.count());
+    }
+
+    public boolean contains(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        Maplet<?, ?> m = (Maplet<?, ?>) o;
+        int x = dictionary.id(m.x()), y = dictionary.id(m.y());
+        return x >= 0 && y >= 0 && matrix.get(x, y);
+    }
+
+    public boolean add(Maplet<T1, T2> m) {
+        return matrix.set(dictionary.encode(m.x()), dictionary.encode(m.y()));
+    }
+
+    public boolean remove(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        Maplet<?, ?> m = (Maplet<?, ?>) o;
+        int x = dictionary.id(m.x()), y = dictionary.id(m.y());
+        return x >= 0 && y >= 0 && matrix.clear(x, y);
+    }
+
+    public void clear() {
+        matrix.clear();
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return new Iterator<Maplet<T1, T2>>() {
+            private int x = 0, y = -1;
+            private int lastX = -1, lastY = -1;
+            {
+                advance();
+            }
+            private void advance() {
+                y = matrix.next(x, y + 1);
+                while (y < 0 && ++x < matrix.dimension()) y = matrix.next(x, 0);
+            }
+            public boolean hasNext() {
+                return y >= 0;
+            }
+            public Maplet<T1, T2> next() {
+                if (y < 0) throw new NoSuchElementException();
+                lastX = x;
+                lastY = y;
+                advance();
+                return new Maplet<>((T1) dictionary.decode(lastX), (T2) dictionary.decode(lastY));
+            }
+            public void remove() {
+                if (lastX < 0) throw new IllegalStateException();
+                matrix.clear(lastX, lastY);
+                lastX = -1;
+            }
+        };
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        int a = dictionary.id(x), b = dictionary.id(y);
+        return a >= 0 && b >= 0 && matrix.get(a, b);
+    }
+
+    /**
+     * Returns a cursor scanning the matrix row by row.
+    **/
+    public Cursor<T1, T2> cursor() {
+        return new Cursor<T1, T2>() {
+            private int x = 0, y = -1;
+            private boolean on;
+            public boolean next() {
+                if (x >= matrix.dimension()) return on = false;
+                y = matrix.next(x, y + 1);
+                while (y < 0 && ++x < matrix.dimension()) y = matrix.next(x, 0);
+                return on = y >= 0;
+            }
+            public T1 x() {
+                if (!on) throw new NoSuchElementException();
+                return (T1) dictionary.decode(x);
+            }
+            public T2 y() {
+                if (!on) throw new NoSuchElementException();
+                return (T2) dictionary.decode(y);
+            }
+        };
+    }
+
+    /**
+     * Performs an action for each y related to x, scanning the row of x.
+    **/
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        int id = dictionary.id(x);
+        if (id < 0) return;
+        for (int y = matrix.next(id, 0); y >= 0; y = matrix.next(id, y + 1)) action.accept((T2) dictionary.decode(y));
+    }
+
+    private boolean shares(Relation<?, ?> r) {
+        return r instanceof BitMatrixRel && ((BitMatrixRel<?, ?>) r).dictionary == dictionary;
+    }
+
+    private <A> Set<A> values(long[] ids) {
+        Set<A> values = new HashSet<>();
+        for (int w = 0; w < ids.length; w++) {
+            long word = ids[w];
+            while (word != 0) {
+                values.add((A) dictionary.decode((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        long[] image = new long[BitMatrix.words(matrix.dimension())];
+        for (T1 x : s) {
+            int id = dictionary.id(x);
+            long[] row = id < 0 ? null : matrix.row(id);
+            if (row != null) BitKernels.orInto(image, row, row.length);
+        }
+        return values(image);
+    }
+
+    public Relation<T1, T2> composition (Relation<T1, T2> r) {
+        if (!shares(r)) return super.composition(r);
+        return new BitMatrixRel<>(dictionary, matrix.multiply(((BitMatrixRel<?, ?>) r).matrix));
+    }
+
+    public Relation<T1, T2> transitiveClosure () {
+        return new BitMatrixRel<>(dictionary, matrix.closure());
+    }
+
+    public Relation<T1, T2> reflexiveTransitiveClosure () {
+        BitMatrix closure = matrix.closure();
+        closure.setDiagonal(matrix.field());
+        return new BitMatrixRel<>(dictionary, closure);
+    }
+
+    /**
+     * Returns this relation composed with itself k times, by repeated squaring of
+     * its matrix.
+     * @throws IllegalArgumentException if <code>k</code> is negative
+    **/
+    public Relation<T1, T2> power (int k) {
+        if (k < 0) throw new IllegalArgumentException("Power must not be negative");
+        return new BitMatrixRel<>(dictionary, matrix.power(k));
+    }
+
+    public boolean reaches (T1 a, T2 b) {
+        int from = dictionary.id(a), to = dictionary.id(b);
+        if (from < 0 || to < 0) return false;
+        long[] seen = new long[BitMatrix.words(matrix.dimension())];
+        int[] stack = new int[Math.max(1, matrix.dimension())];
+        int depth = 0;
+        stack[depth++] = from;
+        while (depth > 0) {
+            int u = stack[--depth];
+            for (int v = matrix.next(u, 0); v >= 0; v = matrix.next(u, v + 1)) {
+                if (v == to) return true;
+                if ((seen[v >>> 6] & (1L << v)) != 0) continue;
+                seen[v >>> 6] |= 1L << v;
+                stack[depth++] = v;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package org.yacl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ A Bloom filter: a compact summary of a set that answers whether an object
+ might be a member. A negative answer is always right, so a lookup that misses
+ can be rejected without touching the set itself; a positive answer is wrong
+ with about the false positive rate the filter was sized for.<p>
+
+ Objects cannot be removed from a filter. A relation keeping filters leaves
+ removed objects in them, which only makes the filter less selective, and
+ rebuilds them on demand.<p>
+
+ One thread may add to a filter while others probe it: bits are set and read
+ atomically, so a probe that starts after an addition has finished sees it.
+ The filter counts its probes and the probes it rejected, in counters that
+ stay exact under concurrent probes, so that its usefulness for a workload
+ can be measured.<p>
+
+ The filter is blocked: all the bits for one object lie in the same 512-bit
+ block, one cache line, so a probe costs a single memory access however many
+ hash functions the filter uses. This keeps a probe that the filter passes
+ cheaper than the hash table lookup that follows it.
+
+ @author Brad Long
+**/
+public class BloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] bits;
+    private static final int BLOCK_BITS = 512;
+
+    private final int blocks;
+    private final int hashes;
+    private final int capacity;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Constructs a filter sized to hold a given number of objects with a given
+     * false positive rate.
+     * @param expected	the number of objects the filter is sized for
+     * @param falsePositiveRate	the rate wanted at that size, between 0 and 1
+     * @throws IllegalArgumentException if the rate is not between 0 and 1
+    **/
+    public BloomFilter(int expected, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        capacity = Math.max(expected, 16);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        hashes = Math.max(1, (int) Math.round((double) m / capacity * ln2));
+        // Blocking costs a little selectivity; a quarter more bits wins it back.
+        m += m >>> 2;
+        blocks = (int) Math.min(Integer.MAX_VALUE >>> 9, Math.max(1, (m + BLOCK_BITS - 1) / BLOCK_BITS));
+        bits = new long[blocks * (BLOCK_BITS >>> 6)];
+    }
+
+    /**
+     * Returns the number of objects this filter was sized for.
+    **/
+    public int capacity() {
+        return capacity;
+    }
+
+    public void add(Object o) {
+        long h = hash(o);
+        int base = block(h), h1 = (int) h, h2 = (int) h >>> 9 | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            WORDS.getAndBitwiseOrRelease(bits, base + (bit >>> 6), 1L << bit);
+        }
+    }
+
+    /**
+     * Determines whether an object might have been added to this filter.
+     * @return <code>false</code> if the object has certainly not been added
+    **/
+    public boolean mightContain(Object o) {
+        probes.increment();
+        long h = hash(o);
+        int base = block(h), h1 = (int) h, h2 = (int) h >>> 9 | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if (((long) WORDS.getAcquire(bits, base + (bit >>> 6)) & (1L << bit)) == 0) {
+                rejections.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of calls to <code>mightContain</code>.
+    **/
+    public long probes() {
+        return probes.sum();
+    }
+
+    /**
+     * Returns the number of calls to <code>mightContain</code> that answered <code>false</code>.
+    **/
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Returns the fraction of probes this filter answered on its own, or 0 if
+     * it has not been probed.
+    **/
+    public double hitRate() {
+        long probed = probes.sum();
+        return probed == 0 ? 0 : (double) rejections.sum() / probed;
+    }
+
+    public void resetStatistics() {
+        probes.reset();
+        rejections.reset();
+    }
+
+    private int block(long h) {
+        // Maps the high 32 bits of the hash onto [0, blocks) without a division.
+        return (int) (((h >>> 32) * blocks) >>> 32) * (BLOCK_BITS >>> 6);
+    }
+
+    private static long hash(Object o) {
+        long z = (o == null ? 0 : o.hashCode()) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return z ^ (z >>> 29);
+    }
+}
@@ -0,0 +1,97 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Supplier;
+
+
+/**
+ The change tracking shared by {@link ObservableRel} and {@link ObservableFun}:
+ coalesces mutations into a pending delta and delivers it to listeners and
+ subscribers when no transaction is open.
+
+ @author Brad Long
+**/
+class Changes<T1, T2> {
+
+    private final List<DeltaListener<T1, T2>> listeners = new ArrayList<>();
+    private SubmissionPublisher<Delta<T1, T2>> publisher;
+    private Relation<T1, T2> inserted = new HashRel<>();
+    private Relation<T1, T2> deleted = new HashRel<>();
+    private int depth = 0;
+
+    void addListener(DeltaListener<T1, T2> l) {
+        listeners.add(l);
+    }
+
+    void removeListener(DeltaListener<T1, T2> l) {
+        listeners.remove(l);
+    }
+
+    Flow.Publisher<Delta<T1, T2>> publisher() {
+        if (publisher == null) publisher = new SubmissionPublisher<>();
+        return publisher;
+    }
+
+    void close() {
+        if (publisher != null) publisher.close();
+    }
+
+    void begin() {
+        ++depth;
+    }
+
+    void commit() {
+        if (depth == 0) throw new IllegalStateException("No transaction to commit");
+        --depth;
+        flush();
+    }
+
+    /*
+     * Runs a mutation in a transaction, so that its changes are delivered as one delta.
+     */
+    <R> R transact(Supplier<R> mutation) {
+        begin();
+        try {
+            return mutation.get();
+        } finally {
+            commit();
+        }
+    }
+
+    /*
+     * Clears a relation as one delta. Clearing does not report each maplet
+     * removed, so the maplets are recorded as deleted before the clear is run.
+     */
+    void clear(Iterable<Maplet<T1, T2>> maplets, Runnable clear) {
+        begin();
+        try {
+            for (Maplet<T1, T2> m : maplets) removed(m);
+            clear.run();
+        } finally {
+            commit();
+        }
+    }
+
+    void added(Maplet<T1, T2> m) {
+        if (!deleted.remove(m)) inserted.add(m);
+        flush();
+    }
+
+    void removed(Maplet<T1, T2> m) {
+        if (!inserted.remove(m)) deleted.add(m);
+        flush();
+    }
+
+    private void flush() {
+        if (depth > 0 || (inserted.isEmpty() && deleted.isEmpty())) return;
+        Delta<T1, T2> d = new Delta<>(inserted, deleted);
+        inserted = new HashRel<>();
+        deleted = new HashRel<>();
+        for (DeltaListener<T1, T2> l : new ArrayList<>(listeners)) l.changed(d);
+        // Blocks while any subscriber's buffer is full
+        if (publisher != null) publisher.submit(d);
+    }
+}
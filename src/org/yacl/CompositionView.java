@@ -0,0 +1,109 @@
+package org.yacl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ The relational composition Q.composition(R) of two observable relations,
+ maintained incrementally.<p>
+
+ The view counts, for each (x,z), the number of y with (x,y) in Q and (y,z)
+ in R. A change to a maplet (x,y) of Q adjusts the counts of (x,z) for each
+ z related to y by R, and likewise for R, so an update costs time proportional
+ to the maplets it joins with. A maplet leaves the view only when its count
+ reaches zero, which keeps deletions correct when several y join the same x
+ and z. Q and R may be the same relation.<p>
+
+ Each delta is joined against the other input as this view last saw it, not as
+ it is now: by the time a delta arrives the other input may already have
+ changed, as when this view and one of its inputs are both derived from a
+ common relation. The view therefore keeps its own index of Q by y and of R by
+ x, which costs about as much memory as the input indexes it would otherwise
+ read.
+
+ @author Brad Long
+**/
+public class CompositionView<T1, T2, T3> extends View<T1, T3> {
+
+    private final ObservableRelation<T1, T2> q;
+    private final ObservableRelation<T2, T3> r;
+    private final Map<Maplet<T1, T3>, Integer> counts = new HashMap<>();
+    /* Q keyed by y, and R keyed by x, as of the last delta this view applied. */
+    private final Index<T2, T1> left = new Index<>();
+    private final Index<T2, T3> right = new Index<>();
+    private final DeltaListener<T1, T2> qListener;
+    private final DeltaListener<T2, T3> rListener;
+
+    public CompositionView(ObservableRelation<T1, T2> q, ObservableRelation<T2, T3> r) {
+        this.q = q;
+        this.r = r;
+        for (Maplet<T2, T3> m : r) right.put(m.x(), m.y());
+        for (Maplet<T1, T2> m : q) {
+            left.put(m.y(), m.x());
+            right.forEach(m.y(), z -> adjust(m.x(), z, 1));
+        }
+        qListener = new DeltaListener<T1, T2>() {
+            public void changed(Delta<T1, T2> d) {
+                begin();
+                leftChanged(d);
+                if (q == (Object) r) rightChanged((Delta<T2, T3>) (Delta<?, ?>) d);
+                commit();
+            }
+        };
+        rListener = new DeltaListener<T2, T3>() {
+            public void changed(Delta<T2, T3> d) {
+                begin();
+                rightChanged(d);
+                commit();
+            }
+        };
+        q.addListener(qListener);
+        if (q != (Object) r) r.addListener(rListener);
+    }
+
+    public void detach() {
+        q.removeListener(qListener);
+        r.removeListener(rListener);
+    }
+
+    /*
+     * Applies a change to Q against R as this view last saw it. When Q is R, the
+     * change is applied to Q first and then to R, against the updated Q, which
+     * together account for the pairs of maplets the change both inserts.
+     */
+    private void leftChanged(Delta<T1, T2> d) {
+        for (Maplet<T1, T2> m : d.inserted()) {
+            right.forEach(m.y(), z -> adjust(m.x(), z, 1));
+            left.put(m.y(), m.x());
+        }
+        for (Maplet<T1, T2> m : d.deleted()) {
+            right.forEach(m.y(), z -> adjust(m.x(), z, -1));
+            left.remove(m.y(), m.x());
+        }
+    }
+
+    /* Applies a change to R against Q as this view last saw it. */
+    private void rightChanged(Delta<T2, T3> d) {
+        for (Maplet<T2, T3> m : d.inserted()) {
+            left.forEach(m.x(), x -> adjust(x, m.y(), 1));
+            right.put(m.x(), m.y());
+        }
+        for (Maplet<T2, T3> m : d.deleted()) {
+            left.forEach(m.x(), x -> adjust(x, m.y(), -1));
+            right.remove(m.x(), m.y());
+        }
+    }
+    private void adjust(T1 x, T3 z, int by) {
+        Maplet<T1, T3> m = new Maplet<>(x, z);
+        Integer c = counts.get(m);
+        int n = (c == null ? 0 : c) + by;
+        if (n == 0) {
+            counts.remove(m);
+            delete(m);
+        } else {
+            counts.put(m, n);
+            if (c == null) insert(m);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.yacl;
+
+
+/**
+ A cursor over the maplets of a relation, returned by {@link Relation#cursor()}.
+ Rather than returning a maplet for each pair, a cursor is advanced with
+ <code>next</code> and the current pair read with <code>x</code> and
+ <code>y</code>, so relations that do not hold maplets, such as encoded and
+ frozen relations, need not create one per pair.<p>
+
+ Example:<p>
+ <code>for (Cursor&lt;String, String&gt; c = r.cursor(); c.next(); ) use(c.x(), c.y());</code><p>
+
+ A cursor is not valid once its relation has been changed other than through it.
+
+ @author Brad Long
+**/
+public interface Cursor<T1, T2> {
+
+    /**
+     * Moves to the next pair of the relation.
+     * @return <code>false</code> if there are no more pairs
+    **/
+    public boolean next();
+
+    /**
+     * Returns the x of the current pair.
+     * @throws java.util.NoSuchElementException if the cursor is not on a pair
+    **/
+    public T1 x();
+
+    /**
+     * Returns the y of the current pair.
+     * @throws java.util.NoSuchElementException if the cursor is not on a pair
+    **/
+    public T2 y();
+}
@@ -0,0 +1,247 @@
+package org.yacl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+
+/**
+ Reads and writes relations as delimited text, one maplet per line: x, the
+ delimiter, then y. The x of a maplet must not contain the delimiter; y is
+ the rest of the line. Neither may contain a line break, and there is no
+ escaping, so <code>write</code> rejects maplets that could not be read
+ back. Empty lines are ignored.<p>
+
+ Elements are converted from text by a {@link Parser} for each side, and to
+ text by <code>toString</code>. Files are read as UTF-8, either sequentially
+ or split into chunks at line boundaries and parsed in parallel.<p>
+
+ Example:<br>
+ <pre>
+   DelimitedFormat&lt;String, Integer&gt; f = new DelimitedFormat&lt;&gt;(',', DelimitedFormat.STRING, Integer::valueOf);
+   Function&lt;String, Integer&gt; ages = f.read(Paths.get("ages.csv"), new HashFun&lt;String, Integer&gt;());
+ </pre>
+
+ @author Brad Long
+**/
+public class DelimitedFormat<T1, T2> {
+
+    /**
+     Converts the text of a field to an element.
+    **/
+    public interface Parser<T> {
+        public T parse(String text);
+    }
+
+    /** Leaves fields as strings. **/
+    public static final Parser<String> STRING = text -> text;
+
+    /* Files larger than this are read in parallel by default. */
+    private static final long PARALLEL_THRESHOLD = 1 << 24;
+    /* Upper bound on the size of one chunk when reading in parallel. */
+    private static final long MAX_CHUNK = 1 << 23;
+
+    private final char delimiter;
+    private final Parser<T1> x;
+    private final Parser<T2> y;
+
+    public DelimitedFormat(char delimiter, Parser<T1> x, Parser<T2> y) {
+        this.delimiter = delimiter;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns a format for comma separated strings.
+    **/
+    public static DelimitedFormat<String, String> csv() {
+        return new DelimitedFormat<>(',', STRING, STRING);
+    }
+
+    /**
+     * Returns a format for tab separated strings.
+    **/
+    public static DelimitedFormat<String, String> tsv() {
+        return new DelimitedFormat<>('\t', STRING, STRING);
+    }
+
+    /**
+     * Writes the maplets of a relation, one per line.
+     * @param r	the relation to write
+     * @param out	the destination
+     * @throws IOException if the destination throws it
+     * @throws IllegalArgumentException if the text of an x contains the delimiter,
+     * or that of an x or y contains a line break; the maplets before it will
+     * have been written
+    **/
+    public void write(Relation<T1, T2> r, Appendable out) throws IOException {
+        for (Maplet<T1, T2> m : r) {
+            String x = String.valueOf(m.x()), y = String.valueOf(m.y());
+            if (x.indexOf(delimiter) >= 0) {
+                throw new IllegalArgumentException("Delimiter in \"" + x + "\" would split the line at the wrong place");
+            }
+            if (hasLineBreak(x) || hasLineBreak(y)) {
+                throw new IllegalArgumentException("Line break in maplet " + m + " would split it across lines");
+            }
+            out.append(x).append(delimiter).append(y).append('\n');
+        }
+    }
+
+    private static boolean hasLineBreak(String text) {
+        return text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    }
+
+    /**
+     * Reads maplets from a reader into a relation. Each maplet is added with
+     * <code>add</code>, so reading a repeated x into a function fails as
+     * <code>Function.add</code> does.
+     * @param in	the source of the text
+     * @param into	the relation to add to
+     * @return <code>into</code>
+     * @throws IOException if the reader throws it
+     * @throws IllegalArgumentException if a line has no delimiter
+    **/
+    public <R extends Relation<T1, T2>> R read(Reader in, R into) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Maplet<T1, T2> m = parse(line);
+            if (m != null) into.add(m);
+        }
+        return into;
+    }
+
+    /**
+     * Reads maplets from a file into a relation, in parallel if the file is large.
+     * @param file	the file to read
+     * @param into	the relation to add to
+     * @return <code>into</code>
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line has no delimiter
+    **/
+    public <R extends Relation<T1, T2>> R read(Path file, R into) throws IOException {
+        if (Files.size(file) < PARALLEL_THRESHOLD) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return read(in, into);
+            }
+        }
+        return read(file, into, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads maplets from a file into a relation, splitting the file into chunks at
+     * line boundaries and parsing the chunks in parallel. The parsed maplets are
+     * added to <code>into</code> from the calling thread, in file order, as each
+     * chunk is finished, so only the maplets of the chunks being parsed are held
+     * at any time.
+     * @param file	the file to read
+     * @param into	the relation to add to
+     * @param chunks	the number of chunks to parse at once; the file is split into
+     * more chunks if needed to keep each under 8MB
+     * @return <code>into</code>
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line has no delimiter
+    **/
+    public <R extends Relation<T1, T2>> R read(Path file, R into, int chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int window = Math.max(1, chunks);
+            int n = (int) Math.max(window, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+            long[] bounds = new long[n + 1];
+            bounds[n] = size;
+            for (int i = 1; i < n; ++i) {
+                bounds[i] = Math.max(bounds[i - 1], nextLine(channel, size * i / n, size));
+            }
+            ArrayDeque<CompletableFuture<List<Maplet<T1, T2>>>> parsing = new ArrayDeque<>();
+            int next = 0;
+            try {
+                for (int i = 0; i < n; ++i) {
+                    for (; next < n && next < i + window; ++next) {
+                        long from = bounds[next], to = bounds[next + 1];
+                        parsing.add(CompletableFuture.supplyAsync(() -> parseChunk(channel, from, to)));
+                    }
+                    for (Maplet<T1, T2> m : parsing.poll().join()) into.add(m);
+                }
+            } catch (CompletionException e) {
+                // let the chunks still being parsed finish before the channel is closed
+                for (CompletableFuture<List<Maplet<T1, T2>>> f : parsing) f.exceptionally(t -> null).join();
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw e;
+            }
+            return into;
+        }
+    }
+
+    /*
+     * Returns the position just after the first newline at or after a given position.
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; ++i) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /*
+     * Parses the lines between two positions, decoding one line at a time from
+     * the mapped file. A newline byte cannot occur within a multi-byte UTF-8
+     * character, so lines are found without decoding.
+     */
+    private List<Maplet<T1, T2>> parseChunk(FileChannel channel, long from, long to) {
+        List<Maplet<T1, T2>> maplets = new ArrayList<>();
+        if (from >= to) return maplets;
+        try {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            byte[] line = new byte[256];
+            int start = 0, end = bytes.limit();
+            while (start < end) {
+                int eol = start;
+                while (eol < end && bytes.get(eol) != '\n') ++eol;
+                int length = eol - start;
+                if (line.length < length) line = new byte[Math.max(length, 2 * line.length)];
+                bytes.position(start);
+                bytes.get(line, 0, length);
+                Maplet<T1, T2> m = parse(new String(line, 0, length, StandardCharsets.UTF_8));
+                if (m != null) maplets.add(m);
+                start = eol + 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return maplets;
+    }
+
+    /*
+     * Parses one line, returning null for an empty line.
+     */
+    private Maplet<T1, T2> parse(String line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') --end;
+        if (end == 0) return null;
+        int d = line.indexOf(delimiter);
+        if (d < 0 || d >= end) throw new IllegalArgumentException("No delimiter in line \"" + line + "\"");
+        return new Maplet<>(x.parse(line.substring(0, d)), y.parse(line.substring(d + 1, end)));
+    }
+}
@@ -0,0 +1,70 @@
+package org.yacl;
+
+
+/**
+ The net change made to a relation by one mutation or one transaction: the
+ maplets inserted and the maplets deleted. Changes that cancel out within a
+ transaction, such as adding and then removing the same maplet, do not appear.<p>
+
+ A maplet (x,y) replaced by (x,z), as by <code>Function.put</code>, appears
+ as a deletion of (x,y) and an insertion of (x,z), and x appears in
+ {@link #updated()}.<p>
+
+ The relations of a delta belong to it and must not be modified.
+
+ @author Brad Long
+**/
+public class Delta<T1, T2> {
+
+    private final Relation<T1, T2> inserted;
+    private final Relation<T1, T2> deleted;
+
+    public Delta(Relation<T1, T2> inserted, Relation<T1, T2> deleted) {
+        this.inserted = inserted;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Returns the maplets inserted.
+    **/
+    public Relation<T1, T2> inserted() {
+        return inserted;
+    }
+
+    /**
+     * Returns the maplets deleted.
+    **/
+    public Relation<T1, T2> deleted() {
+        return deleted;
+    }
+
+    /**
+     * Returns the objects x that both lost and gained a maplet (x,y), that is,
+     * whose image was updated rather than simply grown or shrunk.
+    **/
+    public Set<T1> updated() {
+        Relation<T1, T2> smaller = inserted.size() <= deleted.size() ? inserted : deleted;
+        Relation<T1, T2> larger = smaller == inserted ? deleted : inserted;
+        Set<T1> keys = larger.domain();
+        Set<T1> updated = new HashSet<>();
+        for (Maplet<T1, T2> m : smaller) {
+            if (keys.contains(m.x())) updated.add(m.x());
+        }
+        return updated;
+    }
+
+    /**
+     * Returns the number of maplets inserted or deleted.
+    **/
+    public int size() {
+        return inserted.size() + deleted.size();
+    }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && deleted.isEmpty();
+    }
+
+    public String toString() {
+        return "+" + inserted + " -" + deleted;
+    }
+}
@@ -0,0 +1,18 @@
+package org.yacl;
+
+
+/**
+ Receives the changes made to an observable relation, synchronously, after
+ each mutation made outside a transaction and after each outermost
+ transaction is committed.
+
+ @author Brad Long
+**/
+public interface DeltaListener<T1, T2> {
+
+    /**
+     * Called with the net change made to a relation.
+     * @param d	the change, which must not be modified
+    **/
+    public void changed(Delta<T1, T2> d);
+}
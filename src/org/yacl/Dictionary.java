@@ -0,0 +1,61 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+
+/**
+ Assigns each distinct value a dense <code>int</code> id, starting from zero
+ in the order values are first seen. Encoded relations store maplets as pairs
+ of ids, so that operators compare and hash ints rather than the values
+ themselves; relations sharing a dictionary can be combined without
+ re-encoding.<p>
+
+ Ids are never reused, so a dictionary only grows. Like the collections in
+ this package, a dictionary is not synchronized.
+
+ @author Brad Long
+**/
+public class Dictionary {
+
+    private final HashMap<Object, Integer> ids = new HashMap<>();
+    private final ArrayList<Object> values = new ArrayList<>();
+
+    /**
+     * Returns the id of a value, assigning the next id if the value has not
+     * been seen before.
+    **/
+    public int encode(Object value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a value, or -1 if the value has not been encoded.
+    **/
+    public int id(Object value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the value with a given id.
+     * @throws IllegalArgumentException if no value has the id
+    **/
+    public Object decode(int id) {
+        if (id < 0 || id >= values.size()) throw new IllegalArgumentException("No value has id " + id);
+        return values.get(id);
+    }
+
+    /**
+     * Returns the number of values encoded so far.
+    **/
+    public int size() {
+        return values.size();
+    }
+}
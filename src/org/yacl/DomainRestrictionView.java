@@ -0,0 +1,71 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ The domain restriction R.domainRestriction(S) of an observable relation R,
+ maintained incrementally.<p>
+
+ The view keeps its own copy of S, which is changed through
+ {@link #restrict(Object)} and {@link #unrestrict(Object)}. A change to R is
+ applied in time proportional to the change, and a change to S in time
+ proportional to the image of the object added or removed.
+
+ @author Brad Long
+**/
+public class DomainRestrictionView<T1, T2> extends View<T1, T2> {
+
+    private final ObservableRelation<T1, T2> r;
+    private final Set<T1> s;
+    private final DeltaListener<T1, T2> listener;
+
+    public DomainRestrictionView(ObservableRelation<T1, T2> r, Set<T1> s) {
+        this.r = r;
+        this.s = new HashSet<>(s);
+        for (T1 x : this.s) {
+            for (T2 y : domainIndex(r).get(x)) insert(new Maplet<>(x, y));
+        }
+        listener = new DeltaListener<T1, T2>() {
+            public void changed(Delta<T1, T2> d) {
+                begin();
+                for (Maplet<T1, T2> m : d.deleted()) delete(m);
+                for (Maplet<T1, T2> m : d.inserted()) {
+                    if (DomainRestrictionView.this.s.contains(m.x())) insert(m);
+                }
+                commit();
+            }
+        };
+        r.addListener(listener);
+    }
+
+    public void detach() {
+        r.removeListener(listener);
+    }
+
+    /**
+     * Adds an object to the set this view restricts to.
+     * @return <code>true</code> if the object was not already in the set
+    **/
+    public boolean restrict(T1 x) {
+        if (!s.add(x)) return false;
+        begin();
+        for (T2 y : domainIndex(r).get(x)) insert(new Maplet<>(x, y));
+        commit();
+        return true;
+    }
+
+    /**
+     * Removes an object from the set this view restricts to.
+     * @return <code>true</code> if the object was in the set
+    **/
+    public boolean unrestrict(T1 x) {
+        if (!s.remove(x)) return false;
+        List<T2> image = new ArrayList<>(domainIndex().get(x));
+        begin();
+        for (T2 y : image) delete(new Maplet<>(x, y));
+        commit();
+        return true;
+    }
+}
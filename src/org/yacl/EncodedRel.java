@@ -0,0 +1,470 @@
+package org.yacl;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+
+/**
+ A relation whose values are interned in a {@link Dictionary} and whose
+ maplets are held as pairs of ids. Restriction, image, composition and
+ closure work on the ids alone, and the maplets are decoded only as they are
+ iterated.<p>
+
+ Operators return encoded relations sharing this relation's dictionary. Two
+ relations sharing a dictionary are composed and united without touching
+ their values; relations with different dictionaries, or other relations,
+ are handled by the scanning implementations of <code>AbstractRel</code>.
+
+ @author Brad Long
+**/
+public class EncodedRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    private final Dictionary dictionary;
+    private final LongSet pairs;
+    /* The pairs in ascending order, and so grouped by x; built on first use. */
+    private long[] sorted;
+
+    /**
+     * Constructs an empty relation with a dictionary of its own.
+    **/
+    public EncodedRel() {
+        this(new Dictionary());
+    }
+
+    /**
+     * Constructs an empty relation encoding its values with a given dictionary.
+    **/
+    public EncodedRel(Dictionary dictionary) {
+        super();
+        this.dictionary = dictionary;
+        this.pairs = new LongSet();
+    }
+
+    /**
+     * Constructs a relation encoding the maplets of a collection with a given dictionary.
+    **/
+    public EncodedRel(Dictionary dictionary, Collection<Maplet<T1, T2>> c) {
+        this(dictionary);
+        addAll(c);
+    }
+
+    public Dictionary dictionary() {
+        return dictionary;
+    }
+
+    protected Relation<T1, T2> getInstance() {
+        return new EncodedRel<T1, T2>(dictionary);
+    }
+
+    static long pair(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+
+    static int x(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    static int y(long pair) {
+        return (int) pair;
+    }
+
+    public int size() {
+        return pairs.size();
+    }
+
+    public boolean add(Maplet<T1, T2> m) {
+        if (!pairs.add(pair(dictionary.encode(m.x()), dictionary.encode(m.y())))) return false;
+        sorted = null;
+        return true;
+    }
+
+    public boolean contains(Object o) {
+        return o instanceof Maplet && pairs.contains(pairOf((Maplet<?, ?>) o));
+    }
+
+    public boolean remove(Object o) {
+        if (!(o instanceof Maplet) || !pairs.remove(pairOf((Maplet<?, ?>) o))) return false;
+        sorted = null;
+        return true;
+    }
+
+    public void clear() {
+        pairs.clear();
+        sorted = null;
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return new Iterator<Maplet<T1, T2>>() {
+            private int slot = pairs.next(0);
+            private int last = -1;
+            public boolean hasNext() {
+                return slot >= 0;
+            }
+            public Maplet<T1, T2> next() {
+                if (slot < 0) throw new NoSuchElementException();
+                long p = pairs.at(slot);
+                last = slot;
+                slot = pairs.next(slot + 1);
+                return decode(p);
+            }
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                pairs.removeAt(last);
+                last = -1;
+                sorted = null;
+            }
+        };
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        int a = dictionary.id(x), b = dictionary.id(y);
+        return a >= 0 && b >= 0 && pairs.contains(pair(a, b));
+    }
+
+    /**
+     * Returns a cursor decoding each pair of ids as it is read.
+    **/
+    public Cursor<T1, T2> cursor() {
+        return new Cursor<T1, T2>() {
+            private int from = 0;
+            private long current = -1;
+            public boolean next() {
+                int slot = from < 0 ? -1 : pairs.next(from);
+                from = slot < 0 ? -1 : slot + 1;
+                current = slot < 0 ? -1 : pairs.at(slot);
+                return slot >= 0;
+            }
+            public T1 x() {
+                if (current < 0) throw new NoSuchElementException();
+                return (T1) dictionary.decode(EncodedRel.x(current));
+            }
+            public T2 y() {
+                if (current < 0) throw new NoSuchElementException();
+                return (T2) dictionary.decode(EncodedRel.y(current));
+            }
+        };
+    }
+
+    /**
+     * Performs an action for each y related to x, found by bisection of the sorted pairs.
+    **/
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        int id = dictionary.id(x);
+        if (id < 0) return;
+        long[] s = sorted();
+        for (int j = first(s, id); j < s.length && x(s[j]) == id; j++) action.accept((T2) dictionary.decode(y(s[j])));
+    }
+
+    /* The pair of ids of a maplet, or -1 if either value has not been encoded. */
+    private long pairOf(Maplet<?, ?> m) {
+        int x = dictionary.id(m.x());
+        int y = dictionary.id(m.y());
+        return x < 0 || y < 0 ? -1 : pair(x, y);
+    }
+
+    private Maplet<T1, T2> decode(long p) {
+        return new Maplet<>((T1) dictionary.decode(x(p)), (T2) dictionary.decode(y(p)));
+    }
+
+    private boolean shares(Relation<?, ?> r) {
+        return r instanceof EncodedRel && ((EncodedRel<?, ?>) r).dictionary == dictionary;
+    }
+
+    /* The ids of those elements of a set that have been encoded. */
+    private BitSet ids(Set<?> s) {
+        BitSet ids = new BitSet();
+        for (Object o : s) {
+            int id = dictionary.id(o);
+            if (id >= 0) ids.set(id);
+        }
+        return ids;
+    }
+
+    private <A> Set<A> values(BitSet ids) {
+        Set<A> values = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) values.add((A) dictionary.decode(id));
+        return values;
+    }
+
+    long[] sorted() {
+        if (sorted == null) sorted = pairs.sorted();
+        return sorted;
+    }
+
+    /* The position of the first pair in a sorted array whose x is not less than a given id. */
+    private static int first(long[] sorted, int x) {
+        int lo = 0, hi = sorted.length;
+        long key = pair(x, 0);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public Set<T1> domain() {
+        BitSet ids = new BitSet();
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) ids.set(x(pairs.at(i)));
+        return values(ids);
+    }
+
+    public Set<T2> range() {
+        BitSet ids = new BitSet();
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) ids.set(y(pairs.at(i)));
+        return values(ids);
+    }
+
+    public Relation<T1, T2> union (Set<Maplet<T1, T2>> s) {
+        EncodedRel<T1, T2> r = new EncodedRel<>(dictionary);
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) r.pairs.add(pairs.at(i));
+        if (s instanceof Relation && shares((Relation<?, ?>) s)) {
+            LongSet other = ((EncodedRel<?, ?>) s).pairs;
+            for (int i = other.next(0); i >= 0; i = other.next(i + 1)) r.pairs.add(other.at(i));
+        } else {
+            r.addAll(s);
+        }
+        return r;
+    }
+
+    /**
+     * Returns the intersection of this relation with a given set. If the set is a
+     * relation sharing this dictionary, the intersection is computed on ids: by a
+     * galloping merge if both relations are already sorted, and otherwise by
+     * probing the larger with each pair of the smaller.
+    **/
+    public Set<Maplet<T1, T2>> intersection (Set<Maplet<T1, T2>> s) {
+        if (!(s instanceof Relation && shares((Relation<?, ?>) s))) return super.intersection(s);
+        EncodedRel<?, ?> other = (EncodedRel<?, ?>) s;
+        EncodedRel<T1, T2> r = new EncodedRel<>(dictionary);
+        if (sorted != null && other.sorted != null) {
+            long[] a = sorted, b = other.sorted;
+            if (a.length > b.length) {
+                long[] t = a;
+                a = b;
+                b = t;
+            }
+            int j = 0;
+            for (long p : a) {
+                j = gallop(b, j, p);
+                if (j == b.length) break;
+                if (b[j] == p) r.pairs.add(p);
+            }
+        } else {
+            LongSet small = pairs, large = other.pairs;
+            if (small.size() > large.size()) {
+                small = other.pairs;
+                large = pairs;
+            }
+            for (int i = small.next(0); i >= 0; i = small.next(i + 1)) {
+                if (large.contains(small.at(i))) r.pairs.add(small.at(i));
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns the difference of this relation and a given set, computed on ids if
+     * the set is a relation sharing this dictionary.
+    **/
+    public Set<Maplet<T1, T2>> difference (Set<Maplet<T1, T2>> s) {
+        if (!(s instanceof Relation && shares((Relation<?, ?>) s))) return super.difference(s);
+        LongSet other = ((EncodedRel<?, ?>) s).pairs;
+        EncodedRel<T1, T2> r = new EncodedRel<>(dictionary);
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            if (!other.contains(pairs.at(i))) r.pairs.add(pairs.at(i));
+        }
+        return r;
+    }
+
+    /* The position of the first element of a[from..] not less than key, found by
+       doubling the step from a[from] and then searching the last step. */
+    private static int gallop(long[] a, int from, long key) {
+        if (from >= a.length || a[from] >= key) return from;
+        int bound = 1;
+        while (from + bound < a.length && a[from + bound] < key) bound <<= 1;
+        int lo = from + (bound >> 1) + 1, hi = Math.min(from + bound, a.length);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t) {
+        return restrict(s == null ? null : ids(s), t == null ? null : ids(t), true);
+    }
+
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t) {
+        return restrict(s == null ? null : ids(s), t == null ? null : ids(t), false);
+    }
+
+    private Relation<T1, T2> restrict(BitSet xs, BitSet ys, boolean keep) {
+        EncodedRel<T1, T2> r = new EncodedRel<>(dictionary);
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            if ((xs == null || xs.get(x(p)) == keep) && (ys == null || ys.get(y(p)) == keep)) r.pairs.add(p);
+        }
+        return r;
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        BitSet xs = ids(s);
+        BitSet ys = new BitSet();
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            if (xs.get(x(p))) ys.set(y(p));
+        }
+        return values(ys);
+    }
+
+    public Relation<T2, T1> inverse() {
+        EncodedRel<T2, T1> r = new EncodedRel<>(dictionary);
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            r.pairs.add(pair(y(p), x(p)));
+        }
+        return r;
+    }
+
+    public Relation<T1, T2> composition (Relation<T1, T2> r) {
+        if (!shares(r)) return super.composition(r);
+        long[] next = ((EncodedRel<?, ?>) r).sorted();
+        EncodedRel<T1, T2> rel = new EncodedRel<>(dictionary);
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            int x = x(p), y = y(p);
+            for (int j = first(next, y); j < next.length && x(next[j]) == y; j++) rel.pairs.add(pair(x, y(next[j])));
+        }
+        return rel;
+    }
+
+    /*
+     * Whether a bit matrix over the ids would be no larger than the pairs: a pair
+     * costs some 128 bits in the hash set, and a matrix one bit for every two ids.
+     */
+    private boolean dense() {
+        long n = dictionary.size();
+        return n > 0 && pairs.size() * 128L >= n * n;
+    }
+
+    /**
+     * Returns a bit matrix over the ids of the dictionary with a bit set for each pair.
+    **/
+    BitMatrix toBitMatrix() {
+        BitMatrix m = new BitMatrix(dictionary.size());
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            m.set(x(p), y(p));
+        }
+        return m;
+    }
+
+    private EncodedRel<T1, T2> fromBitMatrix(BitMatrix m) {
+        EncodedRel<T1, T2> rel = new EncodedRel<>(dictionary);
+        for (int x = 0; x < m.dimension(); x++) {
+            for (int y = m.next(x, 0); y >= 0; y = m.next(x, y + 1)) rel.pairs.add(pair(x, y));
+        }
+        return rel;
+    }
+
+    /**
+     * Returns this relation composed with itself k times. A dense relation is
+     * raised to the power as a bit matrix, and any other by repeated squaring
+     * with the sorted join of {@link #composition(Relation)}.
+     * @throws IllegalArgumentException if <code>k</code> is negative
+    **/
+    public Relation<T1, T2> power (int k) {
+        if (k < 0) throw new IllegalArgumentException("Power must not be negative");
+        if (k == 0 || dense()) return fromBitMatrix(toBitMatrix().power(k));
+        Relation<T1, T2> result = null, base = this;
+        while (true) {
+            if ((k & 1) != 0) result = result == null ? base : result.composition(base);
+            k >>>= 1;
+            if (k == 0) break;
+            base = base.composition(base);
+        }
+        return result == this ? union(new EncodedRel<>(dictionary)) : result;
+    }
+
+    public Relation<T1, T2> reflexiveTransitiveClosure () {
+        if (dense()) {
+            BitMatrix m = toBitMatrix();
+            BitMatrix closure = m.closure();
+            closure.setDiagonal(m.field());
+            return fromBitMatrix(closure);
+        }
+        EncodedRel<T1, T2> closure = (EncodedRel<T1, T2>) transitiveClosure();
+        for (int i = pairs.next(0); i >= 0; i = pairs.next(i + 1)) {
+            long p = pairs.at(i);
+            closure.pairs.add(pair(x(p), x(p)));
+            closure.pairs.add(pair(y(p), y(p)));
+        }
+        return closure;
+    }
+
+    /**
+     * Returns the transitive closure of this relation. A dense relation is closed
+     * as a bit matrix, over its strongly connected components; any other by a
+     * depth first search from each x over the sorted pairs.
+    **/
+    public Relation<T1, T2> transitiveClosure () {
+        if (dense()) return fromBitMatrix(toBitMatrix().closure());
+        long[] edges = sorted();
+        EncodedRel<T1, T2> closure = new EncodedRel<>(dictionary);
+        BitSet seen = new BitSet();
+        int[] stack = new int[16];
+        for (int start = 0; start < edges.length; ) {
+            int x = x(edges[start]);
+            int depth = 0;
+            stack[depth++] = x;
+            while (depth > 0) {
+                int u = stack[--depth];
+                for (int j = first(edges, u); j < edges.length && x(edges[j]) == u; j++) {
+                    int z = y(edges[j]);
+                    if (seen.get(z)) continue;
+                    seen.set(z);
+                    closure.pairs.add(pair(x, z));
+                    if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                    stack[depth++] = z;
+                }
+            }
+            seen.clear();
+            while (start < edges.length && x(edges[start]) == x) start++;
+        }
+        return closure;
+    }
+
+    public boolean reaches (T1 a, T2 b) {
+        int from = dictionary.id(a), to = dictionary.id(b);
+        if (from < 0 || to < 0) return false;
+        long[] edges = sorted();
+        BitSet seen = new BitSet();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (int j = first(edges, u); j < edges.length && x(edges[j]) == u; j++) {
+                int z = y(edges[j]);
+                if (z == to) return true;
+                if (!seen.get(z)) {
+                    seen.set(z);
+                    queue.add(z);
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean isFunction () {
+        long[] s = sorted();
+        for (int i = 1; i < s.length; i++) {
+            if (x(s[i]) == x(s[i - 1])) return false;
+        }
+        return true;
+    }
+}
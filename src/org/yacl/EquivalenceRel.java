@@ -0,0 +1,363 @@
+package org.yacl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+
+/**
+ An equivalence relation held as a partition of its field into classes,
+ rather than as the pairs it relates. Two objects are related if they are in
+ the same class, so a class of n members stands for n<sup>2</sup> maplets
+ while taking space for n.<p>
+
+ The classes are kept in a union-find structure over ids assigned by a
+ {@link Dictionary}, with path halving and union by size, so <code>contains</code>
+ and <code>add</code> take near constant time. Adding a maplet (x,y) merges the
+ classes of x and y, keeping the relation the smallest equivalence containing
+ every maplet added; maplets cannot be removed. The members of each class are
+ also linked in a ring, so a class is listed in time proportional to its size
+ and the pairs are enumerated only when this relation is iterated.
+
+ @author Brad Long
+**/
+public class EquivalenceRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    private Dictionary dictionary;
+    /* parent[i] is the parent of id i, or i itself for the representative of a class. */
+    private int[] parent;
+    /* The size of each class, at the index of its representative. */
+    private int[] size;
+    /* next[i] is the id after i in the ring of i's class. */
+    private int[] next;
+    private long pairs;
+    private int classes;
+
+    public EquivalenceRel() {
+        super();
+        clear();
+    }
+
+    /**
+     * Constructs the equivalence closure of a given relation: the smallest
+     * equivalence relation containing it.
+    **/
+    public EquivalenceRel(Relation<T1, T2> r) {
+        this();
+        for (Maplet<T1, T2> m : r) add(m);
+    }
+
+    private EquivalenceRel(EquivalenceRel<T1, T2> r) {
+        super();
+        dictionary = new Dictionary();
+        for (int i = 0; i < r.dictionary.size(); i++) dictionary.encode(r.dictionary.decode(i));
+        parent = r.parent.clone();
+        size = r.size.clone();
+        next = r.next.clone();
+        pairs = r.pairs;
+        classes = r.classes;
+    }
+
+    protected Relation<T1, T2> getInstance() {
+        return new HashRel<T1, T2>();
+    }
+
+    /* The id of an object, adding it to the field as a class of its own if it is new. */
+    private int encode(Object o) {
+        int id = dictionary.encode(o);
+        if (id == parent.length) {
+            parent = Arrays.copyOf(parent, Math.max(8, id * 2));
+            size = Arrays.copyOf(size, parent.length);
+            next = Arrays.copyOf(next, parent.length);
+        }
+        if (size[id] == 0) {
+            parent[id] = id;
+            size[id] = 1;
+            next[id] = id;
+            ++pairs;
+            ++classes;
+        }
+        return id;
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /* The representative of an object's class, or -1 if it is not in the field. */
+    private int representative(Object o) {
+        int id = dictionary.id(o);
+        return id < 0 ? -1 : find(id);
+    }
+
+    /**
+     * Returns the number of maplets, being the sum of the squares of the class
+     * sizes, without enumerating them.
+    **/
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, pairs);
+    }
+
+    /**
+     * Returns <code>true</code> if the x and y of a maplet are in the same class.
+    **/
+    public boolean contains(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        Maplet<?, ?> m = (Maplet<?, ?>) o;
+        int x = representative(m.x());
+        return x >= 0 && x == representative(m.y());
+    }
+
+    /**
+     * Returns <code>true</code> if x and y are in the same class.
+    **/
+    public boolean contains(T1 x, T2 y) {
+        int a = representative(x);
+        return a >= 0 && a == representative(y);
+    }
+
+    /**
+     * Returns a cursor walking the class of each member of the field in turn.
+    **/
+    public Cursor<T1, T2> cursor() {
+        return new Cursor<T1, T2>() {
+            private int x = 0, y = -1;
+            public boolean next() {
+                if (x >= dictionary.size()) return false;
+                if (y < 0) {
+                    y = x;
+                } else {
+                    y = EquivalenceRel.this.next[y];
+                    if (y == x) y = ++x;
+                }
+                return x < dictionary.size();
+            }
+            public T1 x() {
+                if (y < 0 || x >= dictionary.size()) throw new NoSuchElementException();
+                return (T1) dictionary.decode(x);
+            }
+            public T2 y() {
+                if (y < 0 || x >= dictionary.size()) throw new NoSuchElementException();
+                return (T2) dictionary.decode(y);
+            }
+        };
+    }
+
+    /**
+     * Performs an action for each member of the class of x.
+    **/
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        int id = dictionary.id(x);
+        if (id < 0) return;
+        int i = id;
+        do {
+            action.accept((T2) dictionary.decode(i));
+            i = next[i];
+        } while (i != id);
+    }
+
+    /**
+     * Merges the classes of the x and y of a maplet.
+     * @return <code>true</code> if they were in different classes
+    **/
+    public boolean add(Maplet<T1, T2> m) {
+        return merge(m.x(), m.y());
+    }
+
+    /**
+     * Places two objects in the same class, adding them to the field if they are new.
+     * @return <code>true</code> if this relation changed
+    **/
+    public boolean merge(Object a, Object b) {
+        long before = pairs;
+        int x = find(encode(a)), y = find(encode(b));
+        if (x == y) return pairs != before;
+        if (size[x] < size[y]) {
+            int t = x;
+            x = y;
+            y = t;
+        }
+        parent[y] = x;
+        pairs += 2L * size[x] * size[y];
+        size[x] += size[y];
+        // splice the two rings
+        int t = next[x];
+        next[x] = next[y];
+        next[y] = t;
+        --classes;
+        return true;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since classes cannot be split
+    **/
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Equivalence classes cannot be split");
+    }
+
+    public void clear() {
+        dictionary = new Dictionary();
+        parent = new int[0];
+        size = new int[0];
+        next = new int[0];
+        pairs = 0;
+        classes = 0;
+    }
+
+    /**
+     * Returns the number of classes.
+    **/
+    public int classCount() {
+        return classes;
+    }
+
+    /**
+     * Returns the classes of this relation, being a partition of its field.
+    **/
+    public Set<Set<T1>> classes() {
+        Set<Set<T1>> result = new HashSet<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            if (parent[i] == i) result.add(members(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class of a given object, or the empty set if it is not in the field.
+    **/
+    public Set<T1> classOf(Object o) {
+        int id = dictionary.id(o);
+        return id < 0 ? new HashSet<T1>() : members(id);
+    }
+
+    private <A> Set<A> members(int id) {
+        Set<A> members = new HashSet<>(size[find(id)]);
+        int i = id;
+        do {
+            members.add((A) dictionary.decode(i));
+            i = next[i];
+        } while (i != id);
+        return members;
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return new Iterator<Maplet<T1, T2>>() {
+            private int x = 0, y = 0;
+            public boolean hasNext() {
+                return x < dictionary.size();
+            }
+            public Maplet<T1, T2> next() {
+                if (x >= dictionary.size()) throw new NoSuchElementException();
+                Maplet<T1, T2> m = new Maplet<>((T1) dictionary.decode(x), (T2) dictionary.decode(y));
+                y = EquivalenceRel.this.next[y];
+                if (y == x) y = ++x;
+                return m;
+            }
+        };
+    }
+
+    public Set<T1> domain() {
+        Set<T1> domain = new HashSet<>(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) domain.add((T1) dictionary.decode(i));
+        return domain;
+    }
+
+    public Set<T2> range() {
+        return (Set<T2>) (Set<?>) domain();
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        Set<T2> image = new HashSet<>();
+        for (T1 x : s) {
+            if (!image.contains(x)) image.addAll((Set<T2>) (Set<?>) classOf(x));
+        }
+        return image;
+    }
+
+    /**
+     * Returns this relation, which is its own inverse.
+    **/
+    public Relation<T2, T1> inverse() {
+        return (Relation<T2, T1>) (Relation<?, ?>) this;
+    }
+
+    public Relation<T1, T2> transitiveClosure () {
+        return new EquivalenceRel<>(this);
+    }
+
+    public Relation<T1, T2> reflexiveTransitiveClosure () {
+        return new EquivalenceRel<>(this);
+    }
+
+    public EquivalenceRel<T1, T2> equivalenceClosure () {
+        return new EquivalenceRel<>(this);
+    }
+
+    public boolean reaches (T1 a, T2 b) {
+        return contains(new Maplet<>(a, b));
+    }
+
+    public Set<T2> reachableFrom (T1 a) {
+        return (Set<T2>) (Set<?>) classOf(a);
+    }
+
+    public Set<T1> reachingTo (T2 b) {
+        return classOf(b);
+    }
+
+    public Set<Set<T1>> stronglyConnectedComponents () {
+        return classes();
+    }
+
+    public boolean isAcyclic () {
+        return classes == 0;
+    }
+
+    public boolean isFunction () {
+        return classes == dictionary.size();
+    }
+
+    public boolean isInjection () {
+        return isFunction();
+    }
+
+    public boolean isReflexive () {
+        return true;
+    }
+
+    public boolean isSymmetric () {
+        return true;
+    }
+
+    public boolean isAntisymmetric () {
+        return isFunction();
+    }
+
+    public boolean isTransitive () {
+        return true;
+    }
+
+    public boolean isEquivalence () {
+        return true;
+    }
+
+    public boolean isTotal (Set<T1> s) {
+        for (T1 x : s) {
+            if (dictionary.id(x) < 0) return false;
+        }
+        return true;
+    }
+
+    public Statistics statistics () {
+        long[] degrees = new long[32];
+        for (int i = 0; i < dictionary.size(); i++) {
+            if (parent[i] == i) degrees[31 - Integer.numberOfLeadingZeros(size[i])] += size[i];
+        }
+        return new Statistics(pairs, dictionary.size(), dictionary.size(), true, degrees, degrees.clone());
+    }
+}
@@ -0,0 +1,74 @@
+package org.yacl;
+
+import java.util.Map;
+
+
+/**
+ An immutable function laid out for reading, as returned by
+ {@link Function#freeze()}. Each member of the domain has a single value,
+ found through the minimal perfect hash of {@link FrozenRel} without
+ allocating.
+
+ @author Brad Long
+**/
+public class FrozenFun<T1, T2> extends FrozenRel<T1, T2> implements Function<T1, T2> {
+
+    /**
+     * Constructs a frozen copy of a given function.
+    **/
+    public FrozenFun(Function<T1, T2> f) {
+        super(f);
+    }
+
+    protected Function<T1, T2> getInstance() {
+        return new HashFun<T1, T2>();
+    }
+
+    public Function<T1, T2> freeze() {
+        return this;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since frozen functions are read only
+    **/
+    public T2 put(Maplet<T1, T2> m) {
+        throw new UnsupportedOperationException("Frozen relations are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since frozen functions are read only
+    **/
+    public T2 put(T1 key, T2 value) {
+        throw new UnsupportedOperationException("Frozen relations are read only");
+    }
+
+    public T2 getValue(T1 key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (T2) valueAt(imageStart(i));
+    }
+
+    public Maplet<T1, T2> getMaplet(T1 key) {
+        int i = indexOf(key);
+        return i < 0 ? null : new Maplet<>(key, (T2) valueAt(imageStart(i)));
+    }
+
+    public boolean containsKey(T1 key) {
+        return indexOf(key) >= 0;
+    }
+
+    public boolean containsValue(T2 value) {
+        for (int v = 0; v < size(); v++) {
+            Object y = valueAt(v);
+            if (y == value || y != null && y.equals(value)) return true;
+        }
+        return false;
+    }
+
+    public boolean isFunction () {
+        return true;
+    }
+
+    public Map<T1, T2> asMap() {
+        return new FunctionMap<>(this);
+    }
+}
@@ -0,0 +1,296 @@
+package org.yacl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+
+/**
+ An immutable relation laid out for reading, as returned by
+ {@link Relation#freeze()}. The domain is indexed by a minimal perfect hash
+ of the hash codes of its members, and the members and their images are held
+ in contiguous arrays: there is no object per maplet and no slack for a load
+ factor, so a frozen relation takes a fraction of the memory of a
+ <code>HashRel</code>, and finding the image of x costs two hashes and a
+ comparison or two.<p>
+
+ Members of the domain sharing a hash code are stored together and told
+ apart by <code>equals</code>. Each image is ordered by hash code, so a large
+ image is searched by bisection.<p>
+
+ Operators return ordinary relations. Any attempt to modify a frozen relation
+ throws <code>UnsupportedOperationException</code>.
+
+ @author Brad Long
+**/
+public class FrozenRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    /* Images up to this size are searched linearly. */
+    private static final int SCAN = 8;
+
+    private static final Comparator<Object> BY_HASH = (a, b) -> Integer.compare(hash(a), hash(b));
+
+    private final PerfectHash hash;
+    /* The hash code at each slot of the perfect hash. */
+    private final int[] codes;
+    /* The members of the domain with the code at slot s are keys[keyStart[s]..keyStart[s+1]). */
+    private final int[] keyStart;
+    private final Object[] keys;
+    /* The image of keys[i] is values[imageStart[i]..imageStart[i+1]). */
+    private final int[] imageStart;
+    private final Object[] values;
+
+    /**
+     * Constructs a frozen copy of a given relation.
+    **/
+    public FrozenRel(Relation<T1, T2> r) {
+        super();
+        int size = r.size();
+        Object[] xs = new Object[size], ys = new Object[size];
+        // maplets ordered by the hash code of x, packed with their position
+        long[] order = new long[size];
+        int p = 0;
+        for (Maplet<T1, T2> m : r) {
+            xs[p] = m.x();
+            ys[p] = m.y();
+            order[p] = (long) hash(m.x()) << 32 | p;
+            ++p;
+        }
+        Arrays.sort(order);
+
+        // group the maplets by x, keeping the groups in order of hash code
+        Object[] grouped = new Object[size];
+        Object[] domain = new Object[size];
+        int[] start = new int[size + 1];
+        int n = 0, m = 0, v = 0;
+        boolean[] done = new boolean[size];
+        for (int a = 0, b; a < size; a = b) {
+            int h = (int) (order[a] >>> 32);
+            for (b = a + 1; b < size && (int) (order[b] >>> 32) == h; b++);
+            ++m;
+            for (int i = a; i < b; i++) {
+                if (done[i]) continue;
+                Object x = xs[(int) order[i]];
+                domain[n] = x;
+                for (int j = i; j < b; j++) {
+                    if (!done[j] && equal(xs[(int) order[j]], x)) {
+                        done[j] = true;
+                        grouped[v++] = ys[(int) order[j]];
+                    }
+                }
+                start[++n] = v;
+            }
+        }
+
+        int[] distinct = new int[m];
+        for (int k = 0, c = 0; k < n; k++) {
+            if (k == 0 || hash(domain[k]) != hash(domain[k - 1])) distinct[c++] = hash(domain[k]);
+        }
+        hash = new PerfectHash(distinct);
+
+        // lay the groups out in slot order
+        codes = new int[m];
+        keyStart = new int[m + 1];
+        int[] slots = new int[n];
+        for (int k = 0; k < n; k++) {
+            int h = hash(domain[k]);
+            int s = slots[k] = hash.slot(h);
+            codes[s] = h;
+            ++keyStart[s + 1];
+        }
+        for (int s = 0; s < m; s++) keyStart[s + 1] += keyStart[s];
+        int[] fill = Arrays.copyOf(keyStart, m);
+        int[] target = new int[n];
+        for (int k = 0; k < n; k++) target[k] = fill[slots[k]]++;
+        keys = new Object[n];
+        imageStart = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            keys[target[k]] = domain[k];
+            imageStart[target[k] + 1] = start[k + 1] - start[k];
+        }
+        for (int i = 0; i < n; i++) imageStart[i + 1] += imageStart[i];
+        values = new Object[v];
+        for (int k = 0; k < n; k++) {
+            int to = imageStart[target[k]], length = start[k + 1] - start[k];
+            System.arraycopy(grouped, start[k], values, to, length);
+            if (length > SCAN) Arrays.sort(values, to, to + length, BY_HASH);
+        }
+    }
+
+    private static int hash(Object o) {
+        return o == null ? 0 : o.hashCode();
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || a != null && a.equals(b);
+    }
+
+    /**
+     * Returns the position of a member of the domain in <code>keys</code>, or -1.
+    **/
+    int indexOf(Object x) {
+        int h = hash(x);
+        int s = hash.slot(h);
+        if (s < 0 || codes[s] != h) return -1;
+        for (int i = keyStart[s]; i < keyStart[s + 1]; i++) {
+            if (equal(keys[i], x)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value at a given position in the contiguous images.
+    **/
+    Object valueAt(int v) {
+        return values[v];
+    }
+
+    int imageStart(int i) {
+        return imageStart[i];
+    }
+
+    int imageEnd(int i) {
+        return imageStart[i + 1];
+    }
+
+    protected Relation<T1, T2> getInstance() {
+        return new HashRel<T1, T2>();
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean contains(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        Maplet<?, ?> m = (Maplet<?, ?>) o;
+        return containsPair(m.x(), m.y());
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        return containsPair(x, y);
+    }
+
+    private boolean containsPair(Object x, Object y) {
+        int i = indexOf(x);
+        if (i < 0) return false;
+        int from = imageStart[i], to = imageStart[i + 1];
+        if (to - from > SCAN) {
+            int h = hash(y);
+            // find the first value with the hash code of y
+            int lo = from, hi = to;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (hash(values[mid]) < h) lo = mid + 1; else hi = mid;
+            }
+            for (int v = lo; v < to && hash(values[v]) == h; v++) {
+                if (equal(values[v], y)) return true;
+            }
+            return false;
+        }
+        for (int v = from; v < to; v++) {
+            if (equal(values[v], y)) return true;
+        }
+        return false;
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return new Iterator<Maplet<T1, T2>>() {
+            private int i = 0, v = 0;
+            public boolean hasNext() {
+                return v < values.length;
+            }
+            public Maplet<T1, T2> next() {
+                if (v >= values.length) throw new NoSuchElementException();
+                while (imageStart[i + 1] <= v) ++i;
+                return new Maplet<>((T1) keys[i], (T2) values[v++]);
+            }
+        };
+    }
+
+    /**
+     * Returns a cursor reading the contiguous arrays directly.
+    **/
+    public Cursor<T1, T2> cursor() {
+        return new Cursor<T1, T2>() {
+            private int i = 0, v = -1;
+            public boolean next() {
+                if (v >= values.length) return false;
+                if (++v >= values.length) return false;
+                while (imageStart[i + 1] <= v) ++i;
+                return true;
+            }
+            public T1 x() {
+                if (v < 0 || v >= values.length) throw new NoSuchElementException();
+                return (T1) keys[i];
+            }
+            public T2 y() {
+                if (v < 0 || v >= values.length) throw new NoSuchElementException();
+                return (T2) values[v];
+            }
+        };
+    }
+
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        int i = indexOf(x);
+        if (i < 0) return;
+        for (int v = imageStart[i]; v < imageStart[i + 1]; v++) action.accept((T2) values[v]);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since frozen relations are read only
+    **/
+    public boolean add(Maplet<T1, T2> m) {
+        throw new UnsupportedOperationException("Frozen relations are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since frozen relations are read only
+    **/
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Frozen relations are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since frozen relations are read only
+    **/
+    public void clear() {
+        throw new UnsupportedOperationException("Frozen relations are read only");
+    }
+
+    /**
+     * Returns this relation, which is already frozen.
+    **/
+    public Relation<T1, T2> freeze() {
+        return this;
+    }
+
+    public Set<T1> domain() {
+        Set<T1> domain = new HashSet<>(keys.length);
+        for (Object x : keys) domain.add((T1) x);
+        return domain;
+    }
+
+    public Set<T2> image (Set<T1> s) {
+        Set<T2> image = new HashSet<>();
+        for (T1 x : s) {
+            int i = indexOf(x);
+            if (i < 0) continue;
+            for (int v = imageStart[i]; v < imageStart[i + 1]; v++) image.add((T2) values[v]);
+        }
+        return image;
+    }
+
+    public boolean isFunction () {
+        return keys.length == values.length;
+    }
+
+    public boolean isTotal (Set<T1> s) {
+        for (T1 x : s) {
+            if (indexOf(x) < 0) return false;
+        }
+        return true;
+    }
+}
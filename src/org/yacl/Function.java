@@ -77,4 +77,20 @@ public interface Function<K, V> extends Relation<K, V> {
      * this function
     **/
     public boolean containsKey(K key);
+
+    /**
+     * Returns a <code>java.util.Map</code> view of this function. The view is backed
+     * by this function, so <code>get</code> costs a lookup rather than a copy, and
+     * <code>put</code> and <code>remove</code> write through.
+     * @return a map view of this function
+    **/
+    public java.util.Map<K, V> asMap();
+
+    /**
+     * Returns an immutable copy of this function laid out for reading, whose
+     * <code>getValue</code> costs two hashes and an array read.
+     * @return a frozen copy of this function
+     * @see FrozenFun
+    **/
+    public Function<K, V> freeze();
 }
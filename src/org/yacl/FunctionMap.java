@@ -0,0 +1,87 @@
+package org.yacl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ A <code>java.util.Map</code> view of a function, returned by
+ {@link Function#asMap()}. Lookups go to the function, and so to its domain
+ and range indexes; nothing is copied. Changes through the view, including
+ <code>remove</code> on its entry iterator, write through to the function, and
+ changes to the function show in the view. Entries are immutable.
+
+ @author Brad Long
+**/
+final class FunctionMap<K, V> extends AbstractMap<K, V> {
+
+    private final Function<K, V> f;
+
+    FunctionMap(Function<K, V> f) {
+        this.f = f;
+    }
+
+    public int size() {
+        return f.size();
+    }
+
+    public boolean isEmpty() {
+        return f.isEmpty();
+    }
+
+    public V get(Object key) {
+        return f.getValue((K) key);
+    }
+
+    public boolean containsKey(Object key) {
+        return f.containsKey((K) key);
+    }
+
+    public boolean containsValue(Object value) {
+        return f.containsValue((V) value);
+    }
+
+    public V put(K key, V value) {
+        return f.put(key, value);
+    }
+
+    public V remove(Object key) {
+        V value = f.getValue((K) key);
+        if (value != null) f.remove(new Maplet<>((K) key, value));
+        return value;
+    }
+
+    public void clear() {
+        f.clear();
+    }
+
+    public java.util.Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return f.size();
+            }
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) return false;
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                return e.getKey() != null && e.getValue() != null && f.contains(new Maplet<>(e.getKey(), e.getValue()));
+            }
+            public Iterator<Map.Entry<K, V>> iterator() {
+                final Iterator<Maplet<K, V>> it = f.iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public Map.Entry<K, V> next() {
+                        Maplet<K, V> m = it.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(m.x(), m.y());
+                    }
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -2,7 +2,6 @@ package org.yacl;
 
 import java.util.Collection;
 import java.util.Map;
-import java.util.Iterator;
 
 /**
 This class provides similar functionality to <code>java.util.Map</code>, however,
@@ -79,8 +78,19 @@ public class HashFun<T1, T2> extends HashRel<T1, T2> implements Function<T1, T2>
 	    vDom = validDomain;
 	}
 	
+	/**
+	 * Constructs an empty function with room for a given number of maplets.
+	**/
+	public HashFun(int expectedSize) {
+		super(expectedSize);
+	}
+
 	protected Function<T1, T2> getInstance() {
-	    return new HashFun<>();
+	    return new ArrayFun<>();
+    }
+
+	protected Function<T1, T2> getInstance(int expectedSize) {
+	    return expectedSize <= ArraySet.THRESHOLD ? getInstance() : new HashFun<T1, T2>(expectedSize);
     }
 
 	/**
@@ -150,10 +160,7 @@ public class HashFun<T1, T2> extends HashRel<T1, T2> implements Function<T1, T2>
      * 
     **/
     public Maplet<T1, T2> getMaplet(T1 key) {
-        for (Iterator<Maplet<T1, T2>> iter = super.iterator(); iter.hasNext();) {
-            Maplet<T1, T2> m = iter.next();
-            if (m.x().equals(key)) return m;
-        }
+        for (T2 value : domainIndex().get(key)) return new Maplet<>(key, value);
         //if (lambda!=null) return new Maplet<K, V>(key, (V)lambda.expression(key));
         return null;
     }
@@ -165,7 +172,7 @@ public class HashFun<T1, T2> extends HashRel<T1, T2> implements Function<T1, T2>
 	 * function
 	 **/
 	public boolean containsValue(T2 value) {
-		return super.range().contains(value);
+		return rangeIndex().containsKey(value);
 	}
 
 
@@ -176,7 +183,18 @@ public class HashFun<T1, T2> extends HashRel<T1, T2> implements Function<T1, T2>
 	 * this function
 	 **/
 	public boolean containsKey(T1 key) {
-		return super.domain().contains(key);
+		return domainIndex().containsKey(key);
 	}
-}
 
+	/**
+	 * Returns a <code>java.util.Map</code> view of this function, backed by its
+	 * domain and range indexes.
+	**/
+	public java.util.Map<T1, T2> asMap() {
+		return new FunctionMap<>(this);
+	}
+
+	public Function<T1, T2> freeze() {
+		return new FrozenFun<>(this);
+	}
+}
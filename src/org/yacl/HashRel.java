@@ -1,8 +1,18 @@
 package org.yacl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 
 /**
@@ -32,12 +42,53 @@ import java.util.Map;
 **/
 public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<T1, T2> {
     
+    /* Indexes over x and y, built on first use and maintained on mutation. */
+    private Index<T1, T2> domainIndex;
+    private Index<T2, T1> rangeIndex;
+    /* Number of maplets (x,x), maintained on every mutation. */
+    private int selfMaplets;
+    /*
+     * Filters over x, y and maplets, kept for PartitionedRel, which probes them
+     * without holding this partition's lock; null unless enabled.
+     */
+    private volatile BloomFilter domainFilter;
+    private volatile BloomFilter rangeFilter;
+    private volatile BloomFilter pairFilter;
+    private double falsePositiveRate;
+    /* Cached operator results; null unless enabled. */
+    private ResultCache cache;
+    /* Maplets added since each cached closure was stamped, applied when it is next read. */
+    private Map<String, List<Maplet<T1, T2>>> pending;
+
+    /* Maplets held back from a cached closure, beyond which it is recomputed instead. */
+    private static final int PENDING_LIMIT = 64;
+
+    private static final String DOMAIN = "domain";
+    private static final String RANGE = "range";
+    private static final String CLOSURE = "transitiveClosure";
+    private static final String REFLEXIVE_CLOSURE = "reflexiveTransitiveClosure";
+    private static final String ACYCLIC = "isAcyclic";
+    private static final String SYMMETRIC = "isSymmetric";
+    private static final String ANTISYMMETRIC = "isAntisymmetric";
+    private static final String TRANSITIVE = "isTransitive";
+
     public HashRel() {
         super();
     }
 
+    /**
+     * Constructs an empty relation with room for a given number of maplets.
+    **/
+    public HashRel(int expectedSize) {
+        super(expectedSize);
+    }
+
     protected Relation<T1, T2> getInstance() {
-        return new HashRel<T1, T2>();
+        return new ArrayRel<T1, T2>();
+    }
+
+    protected Relation<T1, T2> getInstance(int expectedSize) {
+        return expectedSize <= ArraySet.THRESHOLD ? getInstance() : new HashRel<T1, T2>(expectedSize);
     }        
 
 	/**
@@ -84,6 +135,339 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
         super(r);
     }
     
+    /**
+     * Returns the index from each x of this relation to the set of y it relates to.
+     * The index is built on first use and kept up to date by subsequent mutations.
+    **/
+    Index<T1, T2> domainIndex() {
+        if (domainIndex == null) {
+            Index<T1, T2> index = new Index<>(size());
+            for (Maplet<T1, T2> m : this) index.put(m.x(), m.y());
+            domainIndex = index;
+        }
+        return domainIndex;
+    }
+
+    /**
+     * Returns the index from each y of this relation to the set of x related to it.
+     * The index is built on first use and kept up to date by subsequent mutations.
+    **/
+    Index<T2, T1> rangeIndex() {
+        if (rangeIndex == null) {
+            Index<T2, T1> index = new Index<>(size());
+            for (Maplet<T1, T2> m : this) index.put(m.y(), m.x());
+            rangeIndex = index;
+        }
+        return rangeIndex;
+    }
+
+    /*
+     * Returns the number of x of this relation if the domain index is built, or
+     * else the number of maplets, which bounds it, without building the index.
+     */
+    private int domainKeys() {
+        Index<T1, T2> index = domainIndex;
+        return index != null ? index.keyCount() : size();
+    }
+
+    /*
+     * Returns the number of y of this relation if the range index is built, or
+     * else the number of maplets, which bounds it, without building the index.
+     */
+    private int rangeKeys() {
+        Index<T2, T1> index = rangeIndex;
+        return index != null ? index.keyCount() : size();
+    }
+
+    protected void elementAdded(Maplet<T1, T2> m) {
+        if (m.x().equals(m.y())) ++selfMaplets;
+        if (domainIndex != null) domainIndex.put(m.x(), m.y());
+        if (rangeIndex != null) rangeIndex.put(m.y(), m.x());
+        BloomFilter pairs = pairFilter;
+        if (pairs != null) {
+            if (size() > pairs.capacity()) {
+                rebuildFilters();
+            } else {
+                domainFilter.add(m.x());
+                rangeFilter.add(m.y());
+                pairs.add(m);
+            }
+        }
+        if (cache != null) addedToCache(m);
+    }
+
+    protected void elementRemoved(Object o) {
+        Maplet<T1, T2> m = (Maplet<T1, T2>) o;
+        if (m.x().equals(m.y())) --selfMaplets;
+        if (domainIndex != null) domainIndex.remove(m.x(), m.y());
+        if (rangeIndex != null) rangeIndex.remove(m.y(), m.x());
+        if (cache != null) removedFromCache(m);
+    }
+
+    protected void cleared() {
+        selfMaplets = 0;
+        domainIndex = null;
+        rangeIndex = null;
+        if (pairFilter != null) rebuildFilters();
+        if (cache != null) {
+            cache.clear();
+            pending.clear();
+        }
+    }
+
+    /**
+     * Returns a copy of this relation. The copy builds its own indexes and has no
+     * filters or cache, whatever this relation has, since they would otherwise be
+     * shared with it.
+    **/
+    public Object clone() {
+        HashRel<T1, T2> r = (HashRel<T1, T2>) super.clone();
+        r.domainIndex = null;
+        r.rangeIndex = null;
+        r.domainFilter = null;
+        r.rangeFilter = null;
+        r.pairFilter = null;
+        r.falsePositiveRate = 0;
+        r.cache = null;
+        r.pending = null;
+        return r;
+    }
+
+    /*
+     * Keeps Bloom filters over the domain, the range and the maplets of this
+     * relation, added to as maplets are added and rebuilt, twice as large, when
+     * the relation outgrows them. Removed maplets stay in the filters until they are rebuilt.
+     * The filters are replaced rather than changed when rebuilt, so a reader
+     * without the lock of this relation sees either the old or the new filter.
+     */
+    void enableFilters(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        rebuildFilters();
+    }
+
+    void disableFilters() {
+        falsePositiveRate = 0;
+        domainFilter = null;
+        rangeFilter = null;
+        pairFilter = null;
+    }
+
+    /*
+     * Rebuilds the filters from the maplets of this relation, dropping removed ones.
+     */
+    void rebuildFilters() {
+        int expected = 2 * size();
+        BloomFilter domain = new BloomFilter(expected, falsePositiveRate);
+        BloomFilter range = new BloomFilter(expected, falsePositiveRate);
+        BloomFilter pairs = new BloomFilter(expected, falsePositiveRate);
+        for (Maplet<T1, T2> m : this) {
+            domain.add(m.x());
+            range.add(m.y());
+            pairs.add(m);
+        }
+        domainFilter = domain;
+        rangeFilter = range;
+        pairFilter = pairs;
+    }
+
+    double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    BloomFilter domainFilter() {
+        return domainFilter;
+    }
+
+    BloomFilter rangeFilter() {
+        return rangeFilter;
+    }
+
+    BloomFilter pairFilter() {
+        return pairFilter;
+    }
+
+    /**
+     * Caches the results of <code>domain</code>, <code>range</code>, the transitive
+     * and reflexive transitive closures, <code>isAcyclic</code>, <code>isSymmetric</code>,
+     * <code>isAntisymmetric</code> and <code>isTransitive</code>, so that calling them
+     * again on an unchanged relation costs a lookup, or a copy of the result for
+     * those returning a set.<p>
+     *
+     * Results are stamped with the {@link #modificationCount()} they were computed
+     * at and go stale when it moves on. Adding a maplet brings the cached domain
+     * and range up to date in place, and removing one brings them up to date if
+     * the indexes have been built. Maplets added after a closure was cached are
+     * held back and applied to it when it is next read, so adding costs nothing
+     * extra if the closure is not read again; everything else is recomputed on
+     * its next call.<p>
+     *
+     * With a cache enabled, the methods above change the cache when called, so
+     * this relation must not then be read from several threads at once.
+    **/
+    public void enableCache() {
+        if (cache == null) {
+            cache = new ResultCache();
+            pending = new HashMap<>();
+        }
+    }
+
+    public void disableCache() {
+        cache = null;
+        pending = null;
+    }
+
+    /**
+     * Returns the cache of this relation, with its hit statistics, or
+     * <code>null</code> if caching is not enabled.
+    **/
+    public ResultCache cache() {
+        return cache;
+    }
+
+    private <R> R cached(String operation, java.util.function.Supplier<R> compute) {
+        R result = (R) cache.get(operation, modificationCount());
+        if (result == null) {
+            result = compute.get();
+            cache.put(operation, result, modificationCount());
+        }
+        return result;
+    }
+
+    /*
+     * Brings the results cached just before a maplet was added up to date, where
+     * that is cheaper than recomputing them.
+     */
+    private void addedToCache(Maplet<T1, T2> m) {
+        long before = modificationCount() - 1, now = before + 1;
+        Set<T1> domain = (Set<T1>) cache.current(DOMAIN, before);
+        if (domain != null) {
+            domain.add(m.x());
+            cache.put(DOMAIN, domain, now);
+        }
+        Set<T2> range = (Set<T2>) cache.current(RANGE, before);
+        if (range != null) {
+            range.add(m.y());
+            cache.put(RANGE, range, now);
+        }
+        for (String closure : new String[] {CLOSURE, REFLEXIVE_CLOSURE}) {
+            Object result = cache.current(closure, before);
+            List<Maplet<T1, T2>> added = pending.get(closure);
+            if (result == null || added != null && added.size() >= PENDING_LIMIT) {
+                pending.remove(closure);
+                continue;
+            }
+            if (added == null) pending.put(closure, added = new ArrayList<>());
+            added.add(m);
+            cache.put(closure, result, now);
+        }
+        // a cycle survives the addition of a maplet
+        if (Boolean.FALSE.equals(cache.current(ACYCLIC, before))) cache.put(ACYCLIC, false, now);
+    }
+
+    /*
+     * Brings the results cached just before a maplet was removed up to date, where
+     * the indexes, already updated, tell whether its x or y is still present.
+     */
+    private void removedFromCache(Maplet<T1, T2> m) {
+        long before = modificationCount() - 1, now = before + 1;
+        Set<T1> domain = (Set<T1>) cache.current(DOMAIN, before);
+        if (domain != null && domainIndex != null) {
+            if (!domainIndex.containsKey(m.x())) domain.remove(m.x());
+            cache.put(DOMAIN, domain, now);
+        }
+        Set<T2> range = (Set<T2>) cache.current(RANGE, before);
+        if (range != null && rangeIndex != null) {
+            if (!rangeIndex.containsKey(m.y())) range.remove(m.y());
+            cache.put(RANGE, range, now);
+        }
+        // removing a maplet cannot create a cycle
+        if (Boolean.TRUE.equals(cache.current(ACYCLIC, before))) cache.put(ACYCLIC, true, now);
+        pending.clear();
+    }
+
+    /*
+     * Returns a cached closure, first applying to it the maplets added since it
+     * was stamped, or computes it afresh.
+     */
+    private Relation<T1, T2> cachedClosure(String closure, java.util.function.Supplier<Relation<T1, T2>> compute) {
+        List<Maplet<T1, T2>> added = pending.remove(closure);
+        boolean current = cache.current(closure, modificationCount()) != null;
+        Relation<T1, T2> result = cached(closure, compute);
+        if (current && added != null) {
+            for (Maplet<T1, T2> m : added) {
+                if (closure == REFLEXIVE_CLOSURE) {
+                    result.add(new Maplet<>(m.x(), (T2) m.x()));
+                    result.add(new Maplet<>((T1) m.y(), m.y()));
+                }
+                extendClosure(result, m);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Adds to a transitive relation the pairs that adding (x,y) to it implies:
+     * every a reaching x, or x itself, to every b reached from y, or y itself.
+     */
+    private static <A, B> void extendClosure(Relation<A, B> closure, Maplet<A, B> m) {
+        if (closure.contains(m)) return;
+        Set<B> x = new ArraySet<>();
+        x.add((B) m.x());
+        Set<A> y = new ArraySet<>();
+        y.add((A) m.y());
+        Set<A> from = closure.inverse().image(x);
+        from.add(m.x());
+        Set<B> to = closure.image(y);
+        to.add(m.y());
+        for (A a : from) {
+            for (B b : to) closure.add(new Maplet<>(a, b));
+        }
+    }
+
+    /**
+     * Determines whether this relation relates x to y. If the domain index has
+     * been built, y is looked up in the image of x there, so no maplet is
+     * created; otherwise this is <code>contains(new Maplet(x, y))</code>, which
+     * is a single probe and does not build the index.
+    **/
+    public boolean contains(T1 x, T2 y) {
+        return domainIndex != null ? domainIndex.contains(x, y) : contains(new Maplet<>(x, y));
+    }
+
+    /**
+     * Returns a cursor over the maplets held by this relation, reading x and y
+     * from them without creating any.
+    **/
+    public Cursor<T1, T2> cursor() {
+        final Iterator<Maplet<T1, T2>> it = super.iterator();
+        return new Cursor<T1, T2>() {
+            private Maplet<T1, T2> current;
+            public boolean next() {
+                current = it.hasNext() ? it.next() : null;
+                return current != null;
+            }
+            public T1 x() {
+                if (current == null) throw new NoSuchElementException();
+                return current.x();
+            }
+            public T2 y() {
+                if (current == null) throw new NoSuchElementException();
+                return current.y();
+            }
+        };
+    }
+
+    public void forEach(BiConsumer<? super T1, ? super T2> action) {
+        super.forEach(m -> action.accept(m.x(), m.y()));
+    }
+
+    /**
+     * Performs an action for each y related to x, read from the domain index.
+    **/
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        domainIndex().forEach(x, action);
+    }
+
     /**
      * Returns a set containing the unique objects in X of the relation X &harr; Y.<p>
      *
@@ -94,6 +478,11 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * @return the set of unique objects contained within X
     **/
     public Set<T1> domain() {
+        if (cache == null) return computeDomain();
+        return new HashSet<T1>(cached(DOMAIN, this::computeDomain));
+    }
+
+    private Set<T1> computeDomain() {
         Set<T1> domain = new HashSet<T1>();
         int i=0;
         for (Object[] o = this.toArray(); i < o.length; ++i) {
@@ -110,6 +499,11 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * the set of all members of Y to which at least one member of X is related by R.
     **/
     public Set<T2> range () {
+        if (cache == null) return computeRange();
+        return new HashSet<T2>(cached(RANGE, this::computeRange));
+    }
+
+    private Set<T2> computeRange() {
         Set<T2> range = new HashSet<T2>();
         int i=0;
         for (Object[] o = this.toArray(); i < o.length; ++i) {
@@ -129,7 +523,7 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * @see java.util.Set#addAll(Collection c)
      **/
     public Relation<T1, T2> union (Set<Maplet<T1, T2>> s) {
-        Relation<T1, T2> r = getInstance();
+        Relation<T1, T2> r = getInstance(sum(size(), s.size()));
         r.addAll(this);
         r.addAll(s);
         return r;
@@ -196,17 +590,13 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * in the given set.<p>
      * The domain restriction R.domainRestriction(S) of this relation R to a set S,
      * relates x to y if and only if R relates x to y and x is a member of S.
+     * If <code>s</code> has fewer members than the domain of this relation, each is looked
+     * up in the domain index; otherwise this relation is scanned once, probing <code>s</code>.
      * @param s	the set of objects with which to restrict the domain of this relation
      * @return a relation being this relation restricted to elements in the domain contained in <code>s</code>
     **/ 
     public Relation<T1, T2> domainRestriction (Set<T1> s) {
-        Relation<T1, T2> r = new HashRel<>();
-        for (Maplet<T1, T2> m : this) {
-            for (T1 t1 : s) {
-                if (m.x().equals(t1)) r.add(m);
-            }
-        }
-        return r;
+        return restriction(s, null);
     }
     
     
@@ -216,22 +606,14 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * This operation is the complemented counterpart of the domain restriction
      * operation. An object x is related to an object y by the relation 
      * R.domainAntiRestrict(S) if and only if x is related to y by R and x is
-     * not a member of S.
+     * not a member of S. Takes a single pass over this relation, probing <code>s</code>.
      *
      * @param s	the set of objects with which to anti-restrict this relation.
      * By definition, these objects will not appear in the domain of the restricted relation.
      * @return a relation containing all maplets in this relation that are not in <code>s</code>
     **/
     public Relation<T1, T2> domainAntiRestriction (Set<T1> s) {
-        Relation<T1, T2> r = new HashRel<>();
-        for (Maplet<T1, T2> m : this) {
-            boolean match = false;
-            for (T1 t1 : s) {
-                if (m.x().equals(t1)) match = true;
-            }
-            if (!match) r.add(m);
-        }
-        return r; 
+        return antiRestriction(s, null);
     }
     
     /**
@@ -239,18 +621,14 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * whose y in (x,y) appear in the given set.<p>
      * The range restriction R.rangeRestrict(T) of R to a set T
      * relates x to y if and only if
-     * R relates x to y and y is a member of T.
+     * R relates x to y and y is a member of T.<p>
+     * If <code>t</code> has fewer members than the range of this relation, each is looked
+     * up in the range index; otherwise this relation is scanned once, probing <code>t</code>.
      * @param t	the set of objects with which to restrict the range of this relation
      * @return a relation consisting of this relation restricted to maplets with y in (x,y) in <code>t</code>
     **/
     public Relation<T1, T2> rangeRestriction (Set<T2> t) {
-        Relation<T1, T2> r = new HashRel<>();
-        for (Maplet<T1, T2> m : this) {
-            for (T2 t2 : t) {
-                if (m.y().equals(t2)) r.add(m);
-            }
-        }
-        return r;
+        return restriction(null, t);
     }
    
 
@@ -260,7 +638,7 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * This operation is the complemented counterpart of the domain restriction
      * operation. An object x is related to an object y by the relation 
      * R.rangeAntiRestrict(T) if and only if x is related to y by R and y is
-     * not a member of T.
+     * not a member of T. Takes a single pass over this relation, probing <code>t</code>.
      * @param t	the set of objects with which to anti-restrict this relation.
      * By definition, these objects will not appear in the range of the restricted relation.
      * @return a relation containing maplets in this relation whose y in (x,y) do not appear
@@ -268,13 +646,63 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * 
     **/
     public Relation<T1, T2> rangeAntiRestriction (Set<T2> t) {
+        return antiRestriction(null, t);
+    }
+
+    /**
+     * Returns the maplets (x,y) of this relation with x in <code>s</code> and y in
+     * <code>t</code>, that is, S &#9665; R &#9655; T, in a single pass. Either set may
+     * be <code>null</code>, meaning no restriction on that side.<p>
+     * If the smaller of the given sets has fewer members than the corresponding side
+     * of this relation, each of its members is looked up in the domain or range index
+     * and the maplets found are checked against the other set. Otherwise this relation
+     * is scanned once, probing both sets. A side whose index has not been built is
+     * taken to have as many members as this relation has maplets.
+     * @param s	the set of objects with which to restrict the domain, or <code>null</code>
+     * @param t	the set of objects with which to restrict the range, or <code>null</code>
+     * @return a relation being this relation restricted to <code>s</code> and <code>t</code>
+    **/
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t) {
+        boolean bySource = s != null && (t == null || s.size() <= t.size());
+        Set<?> probe = bySource ? s : t;
+        if (probe != null && probe.size() < (bySource ? domainKeys() : rangeKeys())) {
+            Relation<T1, T2> r = new HashRel<>();
+            if (bySource) {
+                Index<T1, T2> index = domainIndex();
+                for (T1 x : s) {
+                    for (T2 y : index.get(x)) {
+                        if (t == null || t.contains(y)) r.add(new Maplet<>(x, y));
+                    }
+                }
+            } else {
+                Index<T2, T1> index = rangeIndex();
+                for (T2 y : t) {
+                    for (T1 x : index.get(y)) {
+                        if (s == null || s.contains(x)) r.add(new Maplet<>(x, y));
+                    }
+                }
+            }
+            return r;
+        }
         Relation<T1, T2> r = new HashRel<>();
         for (Maplet<T1, T2> m : this) {
-            boolean match = false;
-            for (T2 t2 : t) {
-                if (m.y().equals(t2)) match = true;
-            }
-            if (!match) r.add(m);
+            if ((s == null || s.contains(m.x())) && (t == null || t.contains(m.y()))) r.add(m);
+        }
+        return r;
+    }
+
+    /**
+     * Returns the maplets (x,y) of this relation with x not in <code>s</code> and y not
+     * in <code>t</code>, that is, S &#10852; R &#10853; T, in a single pass over this
+     * relation. Either set may be <code>null</code>, meaning no anti-restriction on that side.
+     * @param s	the set of objects to remove from the domain, or <code>null</code>
+     * @param t	the set of objects to remove from the range, or <code>null</code>
+     * @return a relation being this relation anti-restricted by <code>s</code> and <code>t</code>
+    **/
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t) {
+        Relation<T1, T2> r = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            if ((s == null || !s.contains(m.x())) && (t == null || !t.contains(m.y()))) r.add(m);
         }
         return r;
     }
@@ -282,19 +710,35 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
     /**
      * Returns the relational inverse of this relation, thus each maplet (x,y) is inverted to (y,x).<p>
      * An object y is related to an object x by the relational inverse R&sim; of R if and
-     * only if x is related to y by R.
+     * only if x is related to y by R.<p>
+     * The inverse is a live view of this relation that reads the range index as its
+     * domain index, so it is created in constant time and its <code>image</code> is the
+     * preimage under this relation. Changes to this relation show in the inverse, which
+     * cannot itself be modified: its mutators throw <code>UnsupportedOperationException</code>.
      * @return a relation being the inverse of this relation
      * 
     **/
     public Relation<T2, T1> inverse() {
-        Relation<T2, T1> r = new HashRel<>();
-        int i=0;
-        for (Object[] o = this.toArray(); i < o.length; ++i) {
-            Maplet<T1, T2> m = (Maplet<T1, T2>) o[i];
-            Maplet<T2, T1> n = new Maplet<>(m.y(), m.x());
-            r.add(n);
+        return new InverseView<>(this);
+    }
+
+    /**
+     * Returns the set of x related to some member of a given set, looking each
+     * member up in the range index if there are fewer of them than y.
+    **/
+    Set<T1> preimage (Set<T2> t) {
+        Set<T1> preimage = new HashSet<>();
+        if (t.size() < rangeKeys()) {
+            Index<T2, T1> index = rangeIndex();
+            for (T2 y : t) {
+                preimage.addAll(index.get(y));
+            }
+        } else {
+            for (Maplet<T1, T2> m : this) {
+                if (t.contains(m.y())) preimage.add(m.x());
+            }
         }
-        return r;
+        return preimage;
     }
    
     
@@ -303,23 +747,29 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * if (x,y) exists in this relation Q and (y,z) exists in R then (x,z) appears in the composed relation.<p>
      * The composition Q.compose(R) of two relations Q: X &harr; Y and R: Y &harr; Z relates a
      * member x of X to a member z of Z if and only if there is at least one element
-     * y of Y to which x is related by Q and which is itself related to z by R.
+     * y of Y to which x is related by Q and which is itself related to z by R.<p>
+     * The join is driven by whichever of this range and the domain of <code>r</code> has
+     * fewer members, counted from the indexes already built and otherwise bounded by
+     * the number of maplets.
      * @param r	the relation R with which to perform the composition
      * @return a relation composed of this relation with <code>r</code>
     **/
     public Relation<T1, T2> composition (Relation<T1, T2> r) {
         Relation<T1, T2> rel = new HashRel<T1, T2>();
-        int i=0;        
-        for (Object[] o = this.toArray(); i < o.length; ++i) {
-            Maplet<T1, T2> m1 = (Maplet<T1, T2>) o[i];
-            int j=0;
-            for (Object[] o2 = r.toArray(); j<o2.length; ++j) {
-                Maplet<T1, T2> m2 = (Maplet<T1, T2>) o2[j];
-                if (m1.y().equals(m2.x())) {
-                    Maplet<T1, T2> m = new Maplet<>(m1.x(), m2.y());
-                    rel.add(m);
+        if (r instanceof HashRel && rangeKeys() > ((HashRel<T1, T2>) r).domainKeys()) {
+            // r has fewer middle values than this relation: join on each of them
+            Index<Object, T2> next = (Index<Object, T2>) (Index<?, ?>) ((HashRel<T1, T2>) r).domainIndex();
+            Index<Object, T1> previous = (Index<Object, T1>) (Index<?, ?>) rangeIndex();
+            for (Object y : next.keySet()) {
+                for (T1 x : previous.get(y)) {
+                    for (T2 z : next.get(y)) rel.add(new Maplet<>(x, z));
                 }
             }
+            return rel;
+        }
+        Index<Object, T2> next = (Index<Object, T2>) (Index<?, ?>) domainIndexOf(r);
+        for (Maplet<T1, T2> m : this) {
+            for (T2 z : next.get(m.y())) rel.add(new Maplet<>(m.x(), z));
         }
         return rel;
     }
@@ -333,13 +783,168 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * @return a relation being the composition of this relation with <code>r</code>
     **/
     public Relation<T1, T2> override (Relation<T1, T2> r) {
+        Index<T1, T2> over = domainIndexOf(r);
      	Relation<T1, T2> rel = new HashRel<>();
-        rel.addAll(this.domainAntiRestriction(r.domain()));
-//        System.out.println("relation: " + rel);
+        for (Maplet<T1, T2> m : this) {
+            if (!over.containsKey(m.x())) rel.add(m);
+        }
         rel.addAll(r);
         return rel;
     }
 
+    /**
+     * Returns the domain index of a relation: its own if it is a <code>HashRel</code>,
+     * otherwise one built for the purpose.
+    **/
+    static <A, B> Index<A, B> domainIndexOf(Relation<A, B> r) {
+        if (r instanceof HashRel) return ((HashRel<A, B>) r).domainIndex();
+        if (r instanceof InverseView) return ((InverseView<B, A>) r).domainIndex();
+        if (r instanceof ArrayRel && ((ArrayRel<A, B>) r).table() != null) return ((ArrayRel<A, B>) r).table().domainIndex();
+        Index<A, B> index = new Index<>(r.size());
+        for (Maplet<A, B> m : r) index.put(m.x(), m.y());
+        return index;
+    }
+
+    /**
+     * Called before an in-place operator makes its changes. Subclasses that
+     * report changes override this and {@link #endUpdate()} to report them together.
+    **/
+    protected void beginUpdate() {
+    }
+
+    /**
+     * Called after an in-place operator has made its changes.
+    **/
+    protected void endUpdate() {
+    }
+
+    /*
+     * Removes every maplet (x,y) for the given x, using the domain index.
+     */
+    private void removeImage(T1 x) {
+        List<T2> image = new ArrayList<>(domainIndex().get(x));
+        for (T2 y : image) remove(new Maplet<>(x, y));
+    }
+
+    /**
+     * Adds the maplets of a given set to this relation, making it the union of
+     * itself and the set.
+     * @param s	the maplets to add
+     * @return this relation
+    **/
+    public Relation<T1, T2> unionInPlace (Set<Maplet<T1, T2>> s) {
+        addAll(s);
+        return this;
+    }
+
+    /**
+     * Overrides this relation with a given relation, in place: the maplets of this
+     * relation whose x is in the domain of <code>r</code> are replaced by those of
+     * <code>r</code>.<p>
+     * Takes time proportional to the size of <code>r</code> and the number of
+     * maplets replaced, using the domain index of this relation. The maplets of
+     * <code>r</code> are copied first, so <code>r</code> may be a view of this
+     * relation.
+     * @param r	the relation to override this relation
+     * @return this relation
+     * @throws IllegalArgumentException if this relation is a function and
+     * <code>r</code> is not, in which case this relation is left unchanged
+    **/
+    public Relation<T1, T2> overrideInPlace (Relation<T1, T2> r) {
+        if (r == this) return this;
+        if (this instanceof Function && !r.isFunction()) {
+            throw new IllegalArgumentException("A function can only be overridden by a function");
+        }
+        List<Maplet<T1, T2>> maplets = new ArrayList<>(r);
+        beginUpdate();
+        try {
+            for (Maplet<T1, T2> m : maplets) removeImage(m.x());
+            for (Maplet<T1, T2> m : maplets) add(m);
+        } finally {
+            endUpdate();
+        }
+        return this;
+    }
+
+    /**
+     * Removes the maplets of this relation whose x is not in the given set.
+     * Takes a single pass over this relation, without allocating.
+     * @param s	the set of objects with which to restrict the domain of this relation
+     * @return this relation
+    **/
+    public Relation<T1, T2> domainRestrictionInPlace (Set<T1> s) {
+        beginUpdate();
+        try {
+            removeIf(m -> !s.contains(m.x()));
+        } finally {
+            endUpdate();
+        }
+        return this;
+    }
+
+    /**
+     * Removes the maplets of this relation whose x is in the given set.
+     * When the set is smaller than the domain this takes time proportional to the
+     * set and the maplets removed, using the domain index; otherwise it takes a
+     * single pass over this relation.
+     * @param s	the set of objects to remove from the domain of this relation
+     * @return this relation
+    **/
+    public Relation<T1, T2> domainAntiRestrictionInPlace (Set<T1> s) {
+        beginUpdate();
+        try {
+            if (domainIndex != null && s.size() < domainIndex.keyCount()) {
+                for (T1 x : s) removeImage(x);
+            } else {
+                removeIf(m -> s.contains(m.x()));
+            }
+        } finally {
+            endUpdate();
+        }
+        return this;
+    }
+
+    /**
+     * Removes the maplets of this relation whose y is not in the given set.
+     * Takes a single pass over this relation, without allocating.
+     * @param t	the set of objects with which to restrict the range of this relation
+     * @return this relation
+    **/
+    public Relation<T1, T2> rangeRestrictionInPlace (Set<T2> t) {
+        beginUpdate();
+        try {
+            removeIf(m -> !t.contains(m.y()));
+        } finally {
+            endUpdate();
+        }
+        return this;
+    }
+
+    /**
+     * Removes the maplets of this relation whose y is in the given set.
+     * When the set is smaller than the range this takes time proportional to the
+     * set and the maplets removed, using the range index; otherwise it takes a
+     * single pass over this relation.
+     * @param t	the set of objects to remove from the range of this relation
+     * @return this relation
+    **/
+    public Relation<T1, T2> rangeAntiRestrictionInPlace (Set<T2> t) {
+        beginUpdate();
+        try {
+            if (rangeIndex != null && t.size() < rangeIndex.keyCount()) {
+                for (T2 y : t) {
+                    List<T1> preimage = new ArrayList<>(rangeIndex.get(y));
+                    for (T1 x : preimage) remove(new Maplet<>(x, y));
+                }
+            } else {
+                removeIf(m -> t.contains(m.y()));
+            }
+        } finally {
+            endUpdate();
+        }
+        return this;
+    }
+
     
     /**
      * Returns the transitive closure of this relation.<p>
@@ -350,12 +955,17 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * Example:<br><br>
      * if R = { (a,b), (b,c), (a,e), (c,d) }<br>
      * then R+ = { (a,b), (b,c), (a,e), (c,d), (a,c), (a,d), (b,d) }<br><br>
-     * If a relation Relation.transitiveClosure(r).intersect(Relation.identity(r)) is
-     * not empty, then the transitive closure contains one or more cycles.
+     * To test a relation for cycles use {@link #isAcyclic()}, which does not
+     * construct the closure.
      *
      * @return a relation being the transitive closure of this relation
     **/
     public Relation<T1, T2> transitiveClosure () {
+        if (cache == null) return computeClosure();
+        return new HashRel<T1, T2>(cachedClosure(CLOSURE, this::computeClosure));
+    }
+
+    private Relation<T1, T2> computeClosure() {
         Relation<T1, T2> rel = new HashRel<>(this);
         int s = 0, t = 0;
         do {
@@ -367,6 +977,222 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
         } while (s != t);
         return rel;
     }
+
+    /**
+     * Returns the reflexive transitive closure of this relation: its transitive
+     * closure with (x,x) added for every x in its domain or range.
+     * @return a relation being the reflexive transitive closure of this relation
+    **/
+    public Relation<T1, T2> reflexiveTransitiveClosure () {
+        if (cache == null) return computeReflexiveClosure();
+        return new HashRel<T1, T2>(cachedClosure(REFLEXIVE_CLOSURE, this::computeReflexiveClosure));
+    }
+
+    private Relation<T1, T2> computeReflexiveClosure() {
+        Relation<T1, T2> rel = transitiveClosure();
+        addIdentity(rel, this);
+        return rel;
+    }
+
+    /**
+     * Returns the equivalence closure of this relation, built by merging the
+     * classes of x and y for each maplet in a union-find structure. Its size is
+     * the sum of the squares of the class sizes, but it takes space only for
+     * the objects of the field.
+     * @return the smallest equivalence relation containing this relation
+    **/
+    public EquivalenceRel<T1, T2> equivalenceClosure () {
+        return new EquivalenceRel<>(this);
+    }
+
+    /**
+     * Returns this relation composed with itself k times. The power is built by
+     * repeated squaring, each step being a hash join over the indexes of its
+     * operands, so R<sup>k</sup> takes about 2 log<sub>2</sub> k compositions.
+     * @param k	the number of times to compose this relation
+     * @return a relation relating x to z if z is reached from x by exactly k maplets
+     * @throws IllegalArgumentException if <code>k</code> is negative
+    **/
+    public Relation<T1, T2> power (int k) {
+        if (k < 0) throw new IllegalArgumentException("Power must not be negative");
+        if (k == 0) {
+            Relation<T1, T2> rel = new HashRel<>();
+            addIdentity(rel, this);
+            return rel;
+        }
+        Relation<T1, T2> result = null, base = this;
+        while (true) {
+            if ((k & 1) != 0) result = result == null ? base : result.composition(base);
+            k >>>= 1;
+            if (k == 0) break;
+            base = base.composition(base);
+        }
+        return result == this ? new HashRel<>(this) : result;
+    }
+
+    /* Adds (x,x) to a relation for every x in the domain or range of another. */
+    private static <A, B> void addIdentity(Relation<A, B> rel, Relation<A, B> r) {
+        for (A x : r.domain()) rel.add(new Maplet<>(x, (B) x));
+        for (B y : r.range()) rel.add(new Maplet<>((A) y, y));
+    }
+
+    /**
+     * Determines whether the pair (a,b) is in the transitive closure of this relation,
+     * without constructing the closure.<p>
+     * The search runs breadth first from both ends at once over the domain and range
+     * indexes, always expanding the smaller frontier, and stops as soon as the two meet.
+     * @param a	the object x from which to start
+     * @param b	the object y to be reached
+     * @return <code>true</code> if <code>b</code> can be reached from <code>a</code> by following
+     * one or more maplets of this relation
+    **/
+    public boolean reaches (T1 a, T2 b) {
+        Index<Object, Object> succ = (Index<Object, Object>) (Index<?, ?>) domainIndex();
+        Index<Object, Object> pred = (Index<Object, Object>) (Index<?, ?>) rangeIndex();
+        if (!succ.containsKey(a) || !pred.containsKey(b)) return false;
+        java.util.Set<Object> forward = new java.util.HashSet<>();
+        java.util.Set<Object> backward = new java.util.HashSet<>();
+        ArrayDeque<Object> forwardFrontier = new ArrayDeque<>();
+        ArrayDeque<Object> backwardFrontier = new ArrayDeque<>();
+        forward.add(a);
+        forwardFrontier.add(a);
+        backward.add(b);
+        backwardFrontier.add(b);
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            if (forwardFrontier.size() <= backwardFrontier.size()) {
+                if (expand(forwardFrontier, succ, forward, backward)) return true;
+            } else {
+                if (expand(backwardFrontier, pred, backward, forward)) return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Expands one level of a breadth first search. Returns true if an edge joins the
+     * level being expanded to a node already seen by the search from the other end.
+     */
+    private static boolean expand(ArrayDeque<Object> frontier, Index<Object, Object> edges,
+                                  java.util.Set<Object> seen, java.util.Set<Object> other) {
+        for (int n = frontier.size(); n > 0; --n) {
+            for (Object next : edges.get(frontier.poll())) {
+                if (other.contains(next)) return true;
+                if (seen.add(next)) frontier.add(next);
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns every node reachable from start in one or more steps through the given index.
+     */
+    private static Set<Object> reachable(Object start, Index<Object, Object> edges) {
+        Set<Object> seen = new HashSet<>();
+        ArrayDeque<Object> frontier = new ArrayDeque<>();
+        frontier.add(start);
+        while (!frontier.isEmpty()) {
+            for (Object next : edges.get(frontier.poll())) {
+                if (seen.add(next)) frontier.add(next);
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Returns the set of objects that can be reached from a given object by following
+     * one or more maplets of this relation, computed by a breadth first search over the
+     * domain index.
+     * @param a	the object from which to start
+     * @return the set of objects reachable from <code>a</code>
+    **/
+    public Set<T2> reachableFrom (T1 a) {
+        return (Set<T2>) (Set<?>) reachable(a, (Index<Object, Object>) (Index<?, ?>) domainIndex());
+    }
+
+    /**
+     * Returns the set of objects from which a given object can be reached by following
+     * one or more maplets of this relation, computed by a breadth first search over the
+     * range index.
+     * @param b	the object to be reached
+     * @return the set of objects from which <code>b</code> is reachable
+    **/
+    public Set<T1> reachingTo (T2 b) {
+        return (Set<T1>) (Set<?>) reachable(b, (Index<Object, Object>) (Index<?, ?>) rangeIndex());
+    }
+
+    /**
+     * Determines whether this relation, viewed as a directed graph on the union
+     * of its domain and range, contains no cycles. A maplet (x,x) is a cycle.<p>
+     * Runs in time linear in the size of this relation.
+     * @return <code>true</code> if no object can reach itself through this relation
+    **/
+    public boolean isAcyclic () {
+        if (cache == null) return acyclic();
+        return this.<Boolean>cached(ACYCLIC, this::acyclic);
+    }
+
+    private boolean acyclic() {
+        for (List<Object> c : Tarjan.components(this)) {
+            if (c.size() > 1 || domainIndex().get(c.get(0)).contains(c.get(0))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the strongly connected components of this relation, viewed as a
+     * directed graph on the union of its domain and range.<p>
+     * Runs in time linear in the size of this relation.
+     * @return the set of components of this relation
+    **/
+    public Set<Set<T1>> stronglyConnectedComponents () {
+        Set<Set<T1>> result = new HashSet<>();
+        for (List<Object> c : Tarjan.components(this)) {
+            result.add(new HashSet<T1>((List<T1>) (List<?>) c));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the objects of the domain and range of this relation ordered so that
+     * x precedes y whenever (x,y) is in this relation.<p>
+     * Runs in time linear in the size of this relation.
+     * @return a topological ordering of this relation
+     * @throws IllegalStateException if this relation contains a cycle
+    **/
+    public List<T1> topologicalOrder () {
+        List<List<Object>> components = Tarjan.components(this);
+        List<T1> order = new ArrayList<>(components.size());
+        for (List<Object> c : components) {
+            if (c.size() > 1 || domainIndex().get(c.get(0)).contains(c.get(0))) {
+                throw new IllegalStateException("Relation contains a cycle");
+            }
+            order.add((T1) c.get(0));
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * Returns the condensation of this relation: the acyclic relation between its
+     * strongly connected components that relates component C to component D whenever
+     * this relation relates some member of C to some member of D, and C is not D.<p>
+     * Runs in time linear in the size of this relation.
+     * @return the condensation of this relation
+    **/
+    public Relation<Set<T1>, Set<T1>> condensation () {
+        Map<Object, Set<T1>> componentOf = new HashMap<>();
+        for (List<Object> c : Tarjan.components(this)) {
+            Set<T1> component = new HashSet<T1>((List<T1>) (List<?>) c);
+            for (Object v : c) componentOf.put(v, component);
+        }
+        Relation<Set<T1>, Set<T1>> rel = new HashRel<>();
+        for (Maplet<T1, T2> m : this) {
+            Set<T1> from = componentOf.get(m.x());
+            Set<T1> to = componentOf.get(m.y());
+            if (from != to) rel.add(from, to);
+        }
+        return rel;
+    }
         
     
     /**
@@ -374,52 +1200,209 @@ public class HashRel<T1, T2> extends HashSet<Maplet<T1,T2>> implements Relation<
      * that is, returns a set of all y of Y for which x of X is related in X &harr; Y.
      * The relational image R.image(S) of a set S through a relation R is the set of all
      * objects y to which R relates some member x of S.<p>
-     * The operation does not modify this relation.
+     * The operation does not modify this relation.<p>
+     * If <code>s</code> has fewer members than the domain of this relation, each is looked
+     * up in the domain index; otherwise this relation is scanned once, probing <code>s</code>.
      * @return the range of a relation formed by restricting the domain of this relation to
      * the given set
     **/
     public Set<T2> image (Set<T1> s) {
-        return domainRestriction(s).range();
+        Set<T2> image = new HashSet<>();
+        if (s.size() < domainKeys()) {
+            Index<T1, T2> index = domainIndex();
+            for (T1 x : s) {
+                image.addAll(index.get(x));
+            }
+        } else {
+            for (Maplet<T1, T2> m : this) {
+                if (s.contains(m.x())) image.add(m.y());
+            }
+        }
+        return image;
     }
     
     /**
+     * Determines whether each x of this relation relates to exactly one y.
+     * Once the domain index has been built this is a constant time check,
+     * since the index is maintained as the relation changes.
      * @return <code>true</code> if elements in the domain of this relation
      * are unique
     **/
     public boolean isFunction () {
-        return (domain().size() == size());
+        return domainIndex().keyCount() == size();
     }
     
     /**
+     * Determines whether this relation is a function whose x values all map to
+     * different y values. Constant time once the indexes have been built.
      * @return <code>true</code> if elements in the domain of this relation
      * are unique and none of them map to the same object.
     **/
     public boolean isInjection () {
-        return (isFunction() && domain().size() == range().size());
+        return isFunction() && rangeIndex().keyCount() == size();
     }
     
     /**
+     * Determines whether every x of this relation is related to itself.
+     * The number of maplets (x,x) is counted as the relation changes, so this
+     * is a constant time check once the domain index has been built.
      * @return <code>true</code> if all elements in the domain of this relation
      * are at least related to themselves in the range of this relation.
     **/
     public boolean isReflexive () {
-        Set<T1> dom = this.domain();
-        Relation<T1, T2> r = new HashRel<T1, T2>(dom, (Set<T2>)dom);
-        return r.isSubsetOf(this);
+        return selfMaplets == domainIndex().keyCount();
+    }
+
+    /**
+     * Determines whether y is related to x whenever x is related to y.
+     * Stops at the first maplet without a mirror image.
+     * @return <code>true</code> if this relation is symmetric
+    **/
+    public boolean isSymmetric () {
+        if (cache == null) return symmetric();
+        return this.<Boolean>cached(SYMMETRIC, this::symmetric);
+    }
+
+    private boolean symmetric() {
+        Index<Object, Object> succ = (Index<Object, Object>) (Index<?, ?>) domainIndex();
+        for (Maplet<T1, T2> m : this) {
+            if (!succ.get(m.y()).contains(m.x())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether no two distinct objects are related to each other in
+     * both directions. Stops at the first such pair.
+     * @return <code>true</code> if this relation is antisymmetric
+    **/
+    public boolean isAntisymmetric () {
+        if (cache == null) return antisymmetric();
+        return this.<Boolean>cached(ANTISYMMETRIC, this::antisymmetric);
+    }
+
+    private boolean antisymmetric() {
+        Index<Object, Object> succ = (Index<Object, Object>) (Index<?, ?>) domainIndex();
+        for (Maplet<T1, T2> m : this) {
+            if (!m.x().equals(m.y()) && succ.get(m.y()).contains(m.x())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether x is related to z whenever x is related to y and y to z.
+     * Compares the image of each y with the image of each x related to it, and
+     * stops at the first pair missing from this relation.
+     * @return <code>true</code> if this relation is transitive
+    **/
+    public boolean isTransitive () {
+        if (cache == null) return transitive();
+        return this.<Boolean>cached(TRANSITIVE, this::transitive);
+    }
+
+    private boolean transitive() {
+        Index<Object, Object> succ = (Index<Object, Object>) (Index<?, ?>) domainIndex();
+        for (Object x : succ.keySet()) {
+            java.util.Set<Object> direct = succ.get(x);
+            for (Object y : direct) {
+                java.util.Set<Object> next = succ.get(y);
+                if (next.size() > direct.size() || !direct.containsAll(next)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether this relation is reflexive, symmetric and transitive.
+     * Since a symmetric relation has equal domain and range, this means every
+     * object in either is related to itself.
+     * @return <code>true</code> if this relation is an equivalence relation
+    **/
+    public boolean isEquivalence () {
+        return isReflexive() && isSymmetric() && isTransitive();
+    }
+
+    /**
+     * Determines whether every member of a given set is related to something by this
+     * relation; for a function, whether it is a total function on that set.
+     * @param s	the set the domain must cover
+     * @return <code>true</code> if <code>s</code> is a subset of the domain of this relation
+    **/
+    public boolean isTotal (Set<T1> s) {
+        if (s.size() > domainIndex().keyCount()) return false;
+        for (T1 x : s) {
+            if (!domainIndex().containsKey(x)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a view of this relation as a map from each x to the live set of y
+     * it relates to, read from the domain index.
+    **/
+    public Map<T1, java.util.Set<T2>> asMultimap () {
+        return new MultimapView<>(this);
+    }
+
+    /**
+     * Returns an immutable copy of this relation indexed by a minimal perfect
+     * hash, built in one pass over the maplets and a sort of their hash codes.
+     * @return a frozen copy of this relation
+    **/
+    public Relation<T1, T2> freeze () {
+        return new FrozenRel<>(this);
+    }
+
+    /**
+     * Returns exact statistics of this relation, read from its domain and range
+     * indexes, which keep their counts and histograms up to date. Only the first
+     * call, if the indexes have not yet been built, costs a pass over the maplets.
+    **/
+    public Statistics statistics () {
+        return new Statistics(size(), domainIndex().keyCount(), rangeIndex().keyCount(), true,
+            domainIndex.degrees(), rangeIndex.degrees());
     }
     
+    /**
+     * Writes the representation of this relation returned by <code>toString</code>
+     * to a given destination, one maplet at a time, without building it in memory.
+     * @param out	the destination, such as a <code>Writer</code> or <code>StringBuilder</code>
+     * @throws IOException if the destination throws it
+    **/
+    public void writeTo(Appendable out) throws IOException {
+        writeTo(this, out);
+    }
+
     /**
      * @return a <code>String</code> representation of this relation
     **/
     public String toString() {
-        String str = "[";
-        Object[] o = toArray();
-        for (int i=0; i<o.length; ++i) {
-            Maplet<T1, T2> m = (Maplet<T1, T2>) o[i];
-            str = str + (i==0?"":", ") + m.x() + "->" + m.y();
+        return toString(this);
+    }
+
+    /*
+     * Writes the maplets of any relation as [x->y, ...], for the relations not
+     * derived from this class.
+     */
+    static void writeTo(Relation<?, ?> r, Appendable out) throws IOException {
+        out.append('[');
+        boolean first = true;
+        for (Maplet<?, ?> m : r) {
+            if (!first) out.append(", ");
+            out.append(String.valueOf(m.x())).append("->").append(String.valueOf(m.y()));
+            first = false;
+        }
+        out.append(']');
+    }
+
+    static String toString(Relation<?, ?> r) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(r, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // cannot happen with a StringBuilder
         }
-        str = str + "]";
-        return str;
+        return sb.toString();
     }
     
 }
@@ -1,6 +1,11 @@
 package org.yacl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  A collection that contains no duplicate elements. As implied by
@@ -9,6 +14,16 @@ import java.util.Collection;
  @author Brad Long
 **/
 public class HashSet<T> extends java.util.HashSet<T> implements Set<T> {
+
+    /*
+     * Number of mutations so far, the sum of the hash codes of the elements, and a
+     * 128-bit sum of their mixed hash codes. All are updated by the mutators, which
+     * the superclass constructor already calls, so they have no initializers.
+     */
+    private long modifications;
+    private int hash;
+    private long fingerprint0;
+    private long fingerprint1;
 	
 	public HashSet() {
 		super();
@@ -21,10 +36,170 @@ public class HashSet<T> extends java.util.HashSet<T> implements Set<T> {
 		super(c);
 	}
 
+	/**
+	 * Constructs an empty set with room for a given number of elements.
+	**/
+	public HashSet(int expectedSize) {
+		super(capacity(expectedSize));
+	}
+
+    static int capacity(int expectedSize) {
+        return Math.max(16, (int) Math.min(Integer.MAX_VALUE, (long) (expectedSize / .75f) + 1));
+    }
+
+    static int sum(int a, int b) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) a + b);
+    }
+
+    /**
+     * Returns an empty set to hold the result of a set operation. Results start
+     * out compact and move into a hash table only if they grow large.
+    **/
     protected Set<T> getInstance() {
-        return new HashSet<T>();
+        return new ArraySet<T>();
+    }
+
+    /**
+     * Returns an empty set to hold the result of a set operation expected to have
+     * about a given number of elements: a compact set if the result is small, and
+     * a presized one otherwise. Subclasses overriding <code>getInstance()</code>
+     * should override this too.
+    **/
+    protected Set<T> getInstance(int expectedSize) {
+        return expectedSize <= ArraySet.THRESHOLD ? getInstance() : new HashSet<T>(expectedSize);
     }
     
+    /**
+     * Called after an element has been added to this set. Subclasses that keep
+     * indexes or other derived state over their elements override this hook;
+     * it is invoked for every mutation path, including <code>addAll</code>.
+    **/
+    protected void elementAdded(T el) {
+    }
+
+    /**
+     * Called after an element has been removed from this set, whether through
+     * <code>remove</code>, <code>removeAll</code>, <code>retainAll</code> or an iterator.
+    **/
+    protected void elementRemoved(Object el) {
+    }
+
+    /**
+     * Called after this set has been cleared.
+    **/
+    protected void cleared() {
+    }
+
+    /**
+     * Returns the number of times this set has been changed. Every add, remove
+     * and clear that changes the set counts, by whatever path, so a result
+     * derived from the set can be reused for as long as the count is unchanged.
+    **/
+    public long modificationCount() {
+        return modifications;
+    }
+
+    /**
+     * Returns a 128-bit fingerprint of the elements of this set, as two longs,
+     * maintained as elements are added and removed. Equal sets have equal
+     * fingerprints; unequal sets have different ones with a probability far
+     * higher than their hash codes do.
+    **/
+    public long[] fingerprint() {
+        return new long[] { fingerprint0, fingerprint1 };
+    }
+
+    /* Folds an element into the hash code and fingerprint, with a sign of 1 to add it or -1 to remove it. */
+    private void account(Object el, int sign) {
+        int h = el == null ? 0 : el.hashCode();
+        hash += sign * h;
+        fingerprint0 += sign * mix(h * 0x9E3779B97F4A7C15L);
+        fingerprint1 += sign * mix((h ^ 0x5851F42D4C957F2DL) * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    /* The finalizer of SplitMix64. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public boolean add(T el) {
+        if (!super.add(el)) return false;
+        ++modifications;
+        account(el, 1);
+        elementAdded(el);
+        return true;
+    }
+
+    public boolean remove(Object el) {
+        if (!super.remove(el)) return false;
+        ++modifications;
+        account(el, -1);
+        elementRemoved(el);
+        return true;
+    }
+
+    public void clear() {
+        super.clear();
+        ++modifications;
+        hash = 0;
+        fingerprint0 = 0;
+        fingerprint1 = 0;
+        cleared();
+    }
+
+    /**
+     * Returns the hash code of this set, being the sum of the hash codes of its
+     * elements as for any <code>java.util.Set</code>. The sum is maintained as
+     * elements are added and removed, so this takes constant time; elements must
+     * not change their hash codes while in the set.
+    **/
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Determines whether this set has the same elements as a given object. A set
+     * of a different size, or a <code>HashSet</code> with a different
+     * fingerprint, is rejected without looking at the elements.
+    **/
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof java.util.Set)) return false;
+        java.util.Set<?> s = (java.util.Set<?>) o;
+        if (s.size() != size()) return false;
+        if (o instanceof HashSet && !sameFingerprint((HashSet<?>) o)) return false;
+        return containsAll(s);
+    }
+
+    private boolean sameFingerprint(HashSet<?> s) {
+        return s.hash == hash && s.fingerprint0 == fingerprint0 && s.fingerprint1 == fingerprint1;
+    }
+
+    /**
+     * Returns an iterator over this set whose <code>remove</code> keeps any
+     * derived state of the set up to date.
+    **/
+    public Iterator<T> iterator() {
+        final Iterator<T> it = super.iterator();
+        return new Iterator<T>() {
+            private T last;
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+            public T next() {
+                return last = it.next();
+            }
+            public void remove() {
+                it.remove();
+                ++modifications;
+                account(last, -1);
+                elementRemoved(last);
+            }
+        };
+    }
+
     public Set<T> addElement(T el) {
         Set<T> s = getInstance();
         s.add(el);
@@ -42,11 +217,27 @@ public class HashSet<T> extends java.util.HashSet<T> implements Set<T> {
 	 * @see java.util.Set#addAll(Collection c)
     **/
     public Set<T> union (Set<T> t) {
-        Set<T> s = getInstance();
+        Set<T> s = getInstance(sum(size(), t.size()));
         s.addAll(this);
         s.addAll(t);
         return s;
     }
+
+    /**
+     * Constructs the union of this set with any number of sets, without building
+     * the intermediate unions.
+     *
+     * @param sets        the sets to union with this set
+     * @return  a set being the union of <code>this</code> and each of <code>sets</code>
+    **/
+    public Set<T> unionAll (Collection<? extends Set<T>> sets) {
+        int n = size();
+        for (Set<T> t : sets) n = sum(n, t.size());
+        Set<T> s = getInstance(n);
+        s.addAll(this);
+        for (Set<T> t : sets) s.addAll(t);
+        return s;
+    }
     
     /**
      * Returns the difference of a given set with this set.
@@ -58,9 +249,10 @@ public class HashSet<T> extends java.util.HashSet<T> implements Set<T> {
      * @see java.util.Set#removeAll(Collection c)
     **/
     public Set<T> difference (Set<T> t) {
-        Set<T> s = getInstance();
-        s.addAll(this);
-        s.removeAll(t);
+        Set<T> s = getInstance(size());
+        for (T el : this) {
+            if (!t.contains(el)) s.add(el);
+        }
         return s;
     }
     
@@ -75,19 +267,53 @@ public class HashSet<T> extends java.util.HashSet<T> implements Set<T> {
      * @see java.util.Set#retainAll(Collection c)
     **/   
     public Set<T> intersection (Set<T> t) {
-        Set<T> s = getInstance();
-        s.addAll(this);
-        s.retainAll(t);
-        return s;   
+        return intersectAll(Collections.singletonList(t));
+    }
+
+    /**
+     * Returns the intersection of this set with any number of sets. The smallest
+     * of the sets is iterated and each of its members is looked up in the others,
+     * smallest first, so the cost depends on the smallest set alone.
+     *
+     * @param sets        the sets with which to intersect
+     * @return  a set being the intersection of <code>this</code> and each of <code>sets</code>
+    **/
+    public Set<T> intersectAll (Collection<? extends Set<T>> sets) {
+        int n = size();
+        for (Set<T> t : sets) n = Math.min(n, t.size());
+        return intersect(getInstance(n), this, sets);
+    }
+
+    /*
+     * Adds to a given set the members common to a set and some others, iterating
+     * the smallest of them and probing the rest in order of size.
+     */
+    static <T> Set<T> intersect(Set<T> result, Set<T> first, Collection<? extends Set<T>> rest) {
+        List<java.util.Set<T>> sets = new ArrayList<>(rest.size() + 1);
+        sets.add(first);
+        sets.addAll(rest);
+        sets.sort(Comparator.comparingInt(java.util.Set::size));
+        next:
+        for (T el : sets.get(0)) {
+            for (int i = 1; i < sets.size(); i++) {
+                if (!sets.get(i).contains(el)) continue next;
+            }
+            result.add(el);
+        }
+        return result;
     }
 
     /**
      * Determines whether a given set contains at least the elements in this set.
+     * A larger set is rejected at once, as is a <code>HashSet</code> of the same
+     * size with a different fingerprint, since it would have to be equal.
      *
      * @param t        the given set with which to compare
      * @return <code>true</code>    if this set is a subset of <code>t</code>
     **/
     public boolean isSubsetOf (Set<T> t) {
+        if (size() > t.size()) return false;
+        if (size() == t.size() && t instanceof HashSet && !sameFingerprint((HashSet<?>) t)) return false;
         return t.containsAll(this);
     }
     
@@ -0,0 +1,154 @@
+package org.yacl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+  An n-ary relation: a set of tuples (a1, ..., an) all having the same arity n.<p>
+
+  Tries over the tuples, one level per position, are built on demand by
+  {@link Join} for each order of positions it needs, and are dropped when
+  the relation changes.
+
+  @author Brad Long
+**/
+public class HashTupleRel extends HashSet<Tuple> implements TupleRelation {
+
+    private final int arity;
+    /* Tries keyed by the order of positions they index, built on first use. */
+    private Map<String, Map<Object, Object>> tries;
+
+    public HashTupleRel(int arity) {
+        super();
+        if (arity < 1) throw new IllegalArgumentException("Arity must be at least 1");
+        this.arity = arity;
+    }
+
+    /**
+     * Constructs a relation of the given arity containing all tuples in a collection.
+     * @throws IllegalArgumentException if any tuple does not have the given arity
+    **/
+    public HashTupleRel(int arity, Collection<Tuple> c) {
+        this(arity);
+        addAll(c);
+    }
+
+    protected Set<Tuple> getInstance() {
+        return new HashTupleRel(arity);
+    }
+
+    protected Set<Tuple> getInstance(int expectedSize) {
+        return getInstance();
+    }
+
+    public int arity () {
+        return arity;
+    }
+
+    /**
+     * Adds a tuple to this relation.
+     *
+     * @param t        the tuple to be added
+     * @return <code>true</code> if the tuple was added to this relation
+     * @throws IllegalArgumentException if the tuple does not have the arity of this relation
+    **/
+    public boolean add (Tuple t) {
+        if (t.arity() != arity) throw new IllegalArgumentException("Tuple " + t + " does not have arity " + arity);
+        return super.add(t);
+    }
+
+    /**
+     * Adds a tuple made of the given objects to this relation.
+     *
+     * @param values   the objects of the tuple, in order
+     * @return <code>true</code> if the tuple was added to this relation
+     * @throws IllegalArgumentException if the number of objects is not the arity of this relation
+    **/
+    public boolean add (Object... values) {
+        return add(new Tuple(values));
+    }
+
+    /**
+     * Returns the projection of this relation onto the given positions.
+     * @param columns	the positions to keep, starting from 0
+     * @return a relation of arity <code>columns.length</code>
+    **/
+    public TupleRelation project (int... columns) {
+        HashTupleRel r = new HashTupleRel(columns.length);
+        for (Tuple t : this) {
+            Object[] values = new Object[columns.length];
+            for (int i=0; i<columns.length; ++i) values[i] = t.get(columns[i]);
+            r.add(new Tuple(values));
+        }
+        return r;
+    }
+
+    /**
+     * Returns the binary relation relating the object at position x of each tuple
+     * to the object at position y.
+     * @param x	the position supplying x in (x,y)
+     * @param y	the position supplying y in (x,y)
+     * @return the projection of this relation onto <code>x</code> and <code>y</code>
+    **/
+    public Relation<Object, Object> toRelation (int x, int y) {
+        Relation<Object, Object> r = new HashRel<>();
+        for (Tuple t : this) r.add(t.get(x), t.get(y));
+        return r;
+    }
+
+    /**
+     * Returns a trie over the tuples of this relation whose first level is keyed by
+     * the objects at position <code>order[0]</code>, second level by position
+     * <code>order[1]</code>, and so on. The last level maps to empty maps.
+    **/
+    Map<Object, Object> trie(int[] order) {
+        if (tries == null) tries = new HashMap<>();
+        String key = Arrays.toString(order);
+        Map<Object, Object> trie = tries.get(key);
+        if (trie == null) {
+            trie = new HashMap<>();
+            for (Tuple t : this) {
+                Map<Object, Object> node = trie;
+                for (int i=0; i<order.length; ++i) {
+                    Object v = t.get(order[i]);
+                    Map<Object, Object> child = (Map<Object, Object>) node.get(v);
+                    if (child == null) {
+                        child = (i == order.length - 1) ? Collections.emptyMap() : new HashMap<>();
+                        node.put(v, child);
+                    }
+                    node = child;
+                }
+            }
+            tries.put(key, trie);
+        }
+        return trie;
+    }
+
+    protected void elementAdded(Tuple t) {
+        tries = null;
+    }
+
+    protected void elementRemoved(Object o) {
+        tries = null;
+    }
+
+    protected void cleared() {
+        tries = null;
+    }
+
+    /**
+     * @return a <code>String</code> representation of this relation
+    **/
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Tuple t : this) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(t);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,80 @@
+package org.yacl;
+
+
+/**
+ A HyperLogLog sketch, estimating the number of distinct objects added to it
+ in a fixed amount of memory. With the default precision of 12 the sketch
+ takes 4KB and its estimates have a standard error of about 1.6%.<p>
+
+ Sketches of the same precision can be merged, giving an estimate of the
+ number of distinct objects in the union of what each has seen; this is how
+ distinct counts are combined across the partitions of a relation.
+
+ @author Brad Long
+**/
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(12);
+    }
+
+    /**
+     * Constructs a sketch with 2<sup>precision</sup> registers.
+     * @param precision	between 4 and 18
+     * @throws IllegalArgumentException if the precision is out of range
+    **/
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) throw new IllegalArgumentException("Precision must be between 4 and 18");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Returns a sketch of the objects of a collection.
+    **/
+    public static HyperLogLog of(Iterable<?> c) {
+        HyperLogLog h = new HyperLogLog();
+        for (Object o : c) h.add(o);
+        return h;
+    }
+
+    public void add(Object o) {
+        long z = (o == null ? 0 : o.hashCode()) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 31)) * 0xBF58476D1CE4E5B9L;
+        z ^= z >>> 29;
+        int register = (int) (z >>> (64 - precision));
+        int rank = Long.numberOfLeadingZeros((z << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[register]) registers[register] = (byte) rank;
+    }
+
+    /**
+     * Adds the objects seen by another sketch to this one.
+     * @throws IllegalArgumentException if the sketches differ in precision
+    **/
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) throw new IllegalArgumentException("Sketches differ in precision");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct objects added to this sketch.
+    **/
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) ++zeros;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double e = alpha * m * m / sum;
+        if (e <= 2.5 * m && zeros > 0) e = m * Math.log((double) m / zeros);  // small range correction
+        return Math.round(e);
+    }
+}
@@ -0,0 +1,124 @@
+package org.yacl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+
+/**
+ An index from keys to the set of values associated with each key. A relation
+ keeps one of these for its domain (x &rarr; {y}) and one for its range
+ (y &rarr; {x}) so that lookups by x or y do not need to scan every maplet.<p>
+
+ Sets returned by <code>get</code> are unmodifiable and must not be retained
+ across mutations of the index.<p>
+
+ The index also keeps a histogram of the number of values per key, bucketed
+ by powers of two, for {@link Statistics}.
+
+ @author Brad Long
+**/
+class Index<K, V> {
+
+    private final HashMap<K, java.util.Set<V>> map;
+    /* degrees[i] is the number of keys with between 2^i and 2^(i+1)-1 values. */
+    private final long[] degrees = new long[32];
+
+    Index() {
+        map = new HashMap<K, java.util.Set<V>>();
+    }
+
+    Index(int expectedKeys) {
+        map = new HashMap<K, java.util.Set<V>>(Math.max(16, (int) (expectedKeys / .75f) + 1));
+    }
+
+    /**
+     * Associates a value with a key.
+     * @return <code>true</code> if the association was not already present
+    **/
+    boolean put(K key, V value) {
+        java.util.Set<V> values = map.get(key);
+        if (values == null) {
+            // a key set forwards forEach to the map, which walks its table without an iterator
+            values = Collections.newSetFromMap(new HashMap<V, Boolean>(4));
+            map.put(key, values);
+        }
+        if (!values.add(value)) return false;
+        int d = values.size();
+        if (d > 1) --degrees[bucket(d - 1)];
+        ++degrees[bucket(d)];
+        return true;
+    }
+
+    /**
+     * Removes the association between a key and a value, dropping the key
+     * once it has no values left.
+     * @return <code>true</code> if the association was present
+    **/
+    boolean remove(K key, V value) {
+        java.util.Set<V> values = map.get(key);
+        if (values == null || !values.remove(value)) return false;
+        int d = values.size();
+        --degrees[bucket(d + 1)];
+        if (d > 0) ++degrees[bucket(d)]; else map.remove(key);
+        return true;
+    }
+
+    /**
+     * Returns the values associated with a key, or an empty set.
+    **/
+    java.util.Set<V> get(Object key) {
+        java.util.Set<V> values = map.get(key);
+        return values == null ? Collections.<V>emptySet() : Collections.unmodifiableSet(values);
+    }
+
+    /**
+     * Determines whether a key is associated with a value.
+    **/
+    boolean contains(Object key, Object value) {
+        java.util.Set<V> values = map.get(key);
+        return values != null && values.contains(value);
+    }
+
+    /**
+     * Performs an action for each value associated with a key.
+    **/
+    void forEach(Object key, Consumer<? super V> action) {
+        java.util.Set<V> values = map.get(key);
+        if (values != null) values.forEach(action);
+    }
+
+    boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns the number of values associated with a key.
+    **/
+    int count(Object key) {
+        java.util.Set<V> values = map.get(key);
+        return values == null ? 0 : values.size();
+    }
+
+    /**
+     * Returns the distinct keys of this index.
+    **/
+    java.util.Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    int keyCount() {
+        return map.size();
+    }
+
+    /**
+     * Returns a copy of the histogram of values per key.
+    **/
+    long[] degrees() {
+        return degrees.clone();
+    }
+
+    private static int bucket(int degree) {
+        return 31 - Integer.numberOfLeadingZeros(degree);
+    }
+}
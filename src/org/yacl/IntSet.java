@@ -0,0 +1,254 @@
+package org.yacl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ A set of non-negative <code>int</code>s held as a bitmap, one bit per value
+ up to the largest member. Membership is a shift and a mask, and union,
+ intersection and difference with another <code>IntSet</code> combine whole
+ words at a time (see <code>BitKernels</code>) rather than probing element by
+ element. It suits dense values such as the ids of a {@link Dictionary}.<p>
+
+ The <code>int</code> methods avoid boxing; the <code>Set&lt;Integer&gt;</code>
+ methods accept any <code>Integer</code> and treat other objects and negative
+ values as absent.
+
+ @author Brad Long
+**/
+public class IntSet extends AbstractSet<Integer> {
+
+    private long[] words;
+    private int size;
+
+    public IntSet() {
+        this(64);
+    }
+
+    /**
+     * Constructs an empty set with room for the values below a given bound.
+    **/
+    public IntSet(int bound) {
+        super();
+        words = new long[Math.max(1, (bound + 63) >>> 6)];
+    }
+
+    /**
+     * Constructs a set containing the given values.
+    **/
+    public static IntSet of(int... values) {
+        IntSet s = new IntSet();
+        for (int v : values) s.add(v);
+        return s;
+    }
+
+    private IntSet(long[] words, int size) {
+        super();
+        this.words = words;
+        this.size = size;
+    }
+
+    protected Set<Integer> getInstance() {
+        return new IntSet();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int v) {
+        return v >= 0 && (v >>> 6) < words.length && (words[v >>> 6] & (1L << v)) != 0;
+    }
+
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    /**
+     * Determines for each of a batch of values whether it is in this set.
+     * @return an array holding <code>true</code> at each position whose value is a member
+    **/
+    public boolean[] contains(int[] values) {
+        boolean[] found = new boolean[values.length];
+        BitKernels.test(words, values, found);
+        return found;
+    }
+
+    /**
+     * Adds a value to this set.
+     * @throws IllegalArgumentException if the value is negative
+    **/
+    public boolean add(int v) {
+        if (v < 0) throw new IllegalArgumentException("IntSet values must not be negative: " + v);
+        int w = v >>> 6;
+        if (w >= words.length) words = Arrays.copyOf(words, Math.max(w + 1, words.length * 2));
+        long bit = 1L << v;
+        if ((words[w] & bit) != 0) return false;
+        words[w] |= bit;
+        ++size;
+        return true;
+    }
+
+    public boolean add(Integer v) {
+        return add(v.intValue());
+    }
+
+    public boolean remove(int v) {
+        if (!contains(v)) return false;
+        words[v >>> 6] &= ~(1L << v);
+        --size;
+        return true;
+    }
+
+    public boolean remove(Object o) {
+        return o instanceof Integer && remove(((Integer) o).intValue());
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+        size = 0;
+    }
+
+    /**
+     * Returns the least member of this set not less than a given value, or -1.
+    **/
+    public int nextMember(int from) {
+        if (from < 0) from = 0;
+        int w = from >>> 6;
+        if (w >= words.length) return -1;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Returns the members of this set in ascending order.
+    **/
+    public int[] toIntArray() {
+        int[] a = new int[size];
+        int n = 0;
+        for (int v = nextMember(0); v >= 0; v = nextMember(v + 1)) a[n++] = v;
+        return a;
+    }
+
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = nextMember(0);
+            private int last = -1;
+            public boolean hasNext() {
+                return next >= 0;
+            }
+            public Integer next() {
+                if (next < 0) throw new NoSuchElementException();
+                last = next;
+                next = nextMember(next + 1);
+                return last;
+            }
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                IntSet.this.remove(last);
+                last = -1;
+            }
+        };
+    }
+
+    /* The words of a set, padded with zeros or truncated to n. */
+    private static long[] words(IntSet s, int n) {
+        return s.words.length == n ? s.words : Arrays.copyOf(s.words, n);
+    }
+
+    public Set<Integer> union (Set<Integer> t) {
+        if (!(t instanceof IntSet)) return super.union(t);
+        IntSet other = (IntSet) t;
+        int n = Math.max(words.length, other.words.length);
+        long[] out = new long[n];
+        int count = BitKernels.or(words(this, n), words(other, n), out, n);
+        return new IntSet(out, count);
+    }
+
+    public Set<Integer> intersection (Set<Integer> t) {
+        if (!(t instanceof IntSet)) return super.intersection(t);
+        IntSet other = (IntSet) t;
+        int n = Math.min(words.length, other.words.length);
+        long[] out = new long[n];
+        int count = BitKernels.and(words, other.words, out, n);
+        return new IntSet(out, count);
+    }
+
+    public Set<Integer> difference (Set<Integer> t) {
+        if (!(t instanceof IntSet)) return super.difference(t);
+        IntSet other = (IntSet) t;
+        int n = words.length;
+        long[] out = new long[n];
+        int count = BitKernels.andNot(words, words(other, n), out, n);
+        return new IntSet(out, count);
+    }
+
+    public Set<Integer> unionAll (Collection<? extends Set<Integer>> sets) {
+        Set<Integer> s = this;
+        for (Set<Integer> t : sets) s = s.union(t);
+        return s == this ? new IntSet(words.clone(), size) : s;
+    }
+
+    public Set<Integer> intersectAll (Collection<? extends Set<Integer>> sets) {
+        for (Set<Integer> t : sets) {
+            if (!(t instanceof IntSet)) return super.intersectAll(sets);
+        }
+        Set<Integer> s = this;
+        for (Set<Integer> t : sets) s = s.intersection(t);
+        return s == this ? new IntSet(words.clone(), size) : s;
+    }
+
+    /**
+     * Adds the members of another set to this one, a word at a time.
+     * @return <code>true</code> if this set changed
+    **/
+    public boolean addAll(IntSet t) {
+        if (t.words.length > words.length) words = Arrays.copyOf(words, t.words.length);
+        int count = BitKernels.or(words, words(t, words.length), words, words.length);
+        boolean changed = count != size;
+        size = count;
+        return changed;
+    }
+
+    /**
+     * Keeps only the members of this set that are in another set, a word at a time.
+     * @return <code>true</code> if this set changed
+    **/
+    public boolean retainAll(IntSet t) {
+        int count = BitKernels.and(words, words(t, words.length), words, words.length);
+        boolean changed = count != size;
+        size = count;
+        return changed;
+    }
+
+    /**
+     * Removes the members of another set from this one, a word at a time.
+     * @return <code>true</code> if this set changed
+    **/
+    public boolean removeAll(IntSet t) {
+        int count = BitKernels.andNot(words, words(t, words.length), words, words.length);
+        boolean changed = count != size;
+        size = count;
+        return changed;
+    }
+
+    /**
+     * Returns the number of members this set shares with another, without
+     * building their intersection.
+    **/
+    public int intersectionSize(IntSet t) {
+        return BitKernels.andCount(words, t.words, Math.min(words.length, t.words.length));
+    }
+
+    public boolean isSubsetOf (Set<Integer> t) {
+        if (!(t instanceof IntSet)) return super.isSubsetOf(t);
+        return size <= t.size() && intersectionSize((IntSet) t) == size;
+    }
+}
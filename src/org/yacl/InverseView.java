@@ -0,0 +1,206 @@
+package org.yacl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ The inverse of a <code>HashRel</code>, returned by {@link HashRel#inverse()}.
+ The view holds no maplets of its own: it swaps x and y as maplets are read,
+ and uses the range index of the relation as its domain index and the domain
+ index as its range index. Creating it, taking a preimage through
+ <code>image</code>, and inverting it again cost nothing beyond the indexes
+ the relation already keeps.<p>
+
+ The view is live, so changes to the relation show in it, but like a
+ {@link View} it cannot be modified directly: a write through it would have
+ to obey the constraints of the relation, a function for instance, on the
+ other side.
+
+ @author Brad Long
+**/
+final class InverseView<T1, T2> extends AbstractRel<T2, T1> {
+
+    final HashRel<T1, T2> r;
+
+    InverseView(HashRel<T1, T2> r) {
+        super();
+        this.r = r;
+    }
+
+    public int size() {
+        return r.size();
+    }
+
+    public boolean contains(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        Maplet<?, ?> m = (Maplet<?, ?>) o;
+        return r.contains(new Maplet<>(m.y(), m.x()));
+    }
+
+    public boolean contains(T2 x, T1 y) {
+        return r.contains(y, x);
+    }
+
+    public Cursor<T2, T1> cursor() {
+        final Cursor<T1, T2> c = r.cursor();
+        return new Cursor<T2, T1>() {
+            public boolean next() {
+                return c.next();
+            }
+            public T2 x() {
+                return c.y();
+            }
+            public T1 y() {
+                return c.x();
+            }
+        };
+    }
+
+    public void forEach(BiConsumer<? super T2, ? super T1> action) {
+        r.forEach((x, y) -> action.accept(y, x));
+    }
+
+    /**
+     * Performs an action for each x related to a given y by the inverted
+     * relation, read from its range index.
+    **/
+    public void forEachImage(T2 y, Consumer<? super T1> action) {
+        r.rangeIndex().forEach(y, action);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since the inverse is read only
+    **/
+    public boolean add(Maplet<T2, T1> m) {
+        throw new UnsupportedOperationException("Inverses are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since the inverse is read only
+    **/
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Inverses are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since the inverse is read only
+    **/
+    public void clear() {
+        throw new UnsupportedOperationException("Inverses are read only");
+    }
+
+    /**
+     * Returns an iterator over the inverse that does not support <code>remove</code>.
+    **/
+    public Iterator<Maplet<T2, T1>> iterator() {
+        final Iterator<Maplet<T1, T2>> it = r.iterator();
+        return new Iterator<Maplet<T2, T1>>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+            public Maplet<T2, T1> next() {
+                Maplet<T1, T2> m = it.next();
+                return new Maplet<>(m.y(), m.x());
+            }
+        };
+    }
+
+    Index<T2, T1> domainIndex() {
+        return r.rangeIndex();
+    }
+
+    public Set<T2> domain() {
+        return r.range();
+    }
+
+    public Set<T1> range() {
+        return r.domain();
+    }
+
+    public Relation<T1, T2> inverse() {
+        return r;
+    }
+
+    public Relation<T2, T1> restriction (Set<T2> s, Set<T1> t) {
+        return r.restriction(t, s).inverse();
+    }
+
+    public Relation<T2, T1> antiRestriction (Set<T2> s, Set<T1> t) {
+        return r.antiRestriction(t, s).inverse();
+    }
+
+    /**
+     * Returns the preimage of a set under the relation, read from its range index.
+    **/
+    public Set<T1> image (Set<T2> s) {
+        return r.preimage(s);
+    }
+
+    public Relation<T2, T1> transitiveClosure () {
+        return r.transitiveClosure().inverse();
+    }
+
+    public Relation<T2, T1> reflexiveTransitiveClosure () {
+        return r.reflexiveTransitiveClosure().inverse();
+    }
+
+    public Relation<T2, T1> power (int k) {
+        return r.power(k).inverse();
+    }
+
+    public boolean reaches (T2 a, T1 b) {
+        return r.reaches(b, a);
+    }
+
+    public Set<T1> reachableFrom (T2 a) {
+        return r.reachingTo(a);
+    }
+
+    public Set<T2> reachingTo (T1 b) {
+        return r.reachableFrom(b);
+    }
+
+    public boolean isAcyclic () {
+        return r.isAcyclic();
+    }
+
+    public boolean isFunction () {
+        return r.rangeIndex().keyCount() == r.size();
+    }
+
+    public boolean isInjection () {
+        return r.isInjection();
+    }
+
+    public boolean isSymmetric () {
+        return r.isSymmetric();
+    }
+
+    public boolean isAntisymmetric () {
+        return r.isAntisymmetric();
+    }
+
+    public boolean isTransitive () {
+        return r.isTransitive();
+    }
+
+    public boolean isTotal (Set<T2> s) {
+        for (T2 y : s) {
+            if (!r.rangeIndex().containsKey(y)) return false;
+        }
+        return true;
+    }
+
+    public Statistics statistics () {
+        Statistics stats = r.statistics();
+        return new Statistics(stats.size(), stats.rangeSize(), stats.domainSize(), stats.isExact(),
+            stats.fanIn(), stats.fanOut());
+    }
+
+    public Map<T2, java.util.Set<T1>> asMultimap () {
+        return new MultimapView<>(this);
+    }
+}
@@ -0,0 +1,240 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ A natural join of several relations at once, written as a conjunctive query.
+ Each relation taking part is an <i>atom</i> naming a variable for each of its
+ positions; tuples of the result bind every variable so that each atom holds.<p>
+
+ Example (triangles in a graph e):<br>
+ <pre>
+   TupleRelation triangles = new Join("a", "b", "c")
+       .atom(e, "a", "b")
+       .atom(e, "b", "c")
+       .atom(e, "a", "c")
+       .evaluate();
+ </pre>
+
+ The join is evaluated by Generic Join, a worst-case optimal algorithm: variables
+ are bound one at a time in the order given to the constructor, and the values
+ for each variable are found by intersecting the candidates offered by every atom
+ that mentions it, iterating the smallest candidate set and probing the rest. No
+ intermediate relations are built, so a triangle query over m maplets takes
+ O(m<sup>3/2</sup>) time however the maplets are distributed, whereas chaining
+ binary compositions can take O(m<sup>2</sup>).<p>
+
+ Binary <code>HashRel</code>s are read through their domain and range indexes
+ without copying; tuple relations are read through tries built for the order
+ of positions the join needs. Relations are read when <code>evaluate</code> is
+ called, not when they are added, so a join may be built once and evaluated
+ again as its relations change.
+
+ @author Brad Long
+**/
+public class Join {
+
+    private abstract static class Atom {
+        /* Variables of this atom, ascending in join order. */
+        int[] vars;
+
+        /* Reads the current contents of the relation, before each evaluation. */
+        void open() {
+        }
+
+        /* The values for vars[depth], given values bound for vars[0..depth-1]. */
+        abstract java.util.Set<?> candidates(int depth, Object[] binding);
+    }
+
+    private static final class BinaryAtom extends Atom {
+        final Relation<?, ?> r;
+        final boolean forward;
+        Index<Object, Object> index;
+
+        BinaryAtom(Relation<?, ?> r, int x, int y) {
+            this.r = r;
+            forward = x < y;
+            vars = forward ? new int[] { x, y } : new int[] { y, x };
+        }
+
+        void open() {
+            HashRel<?, ?> h = r instanceof HashRel ? (HashRel<?, ?>) r : new HashRel<>((Relation<Object, Object>) r);
+            index = (Index<Object, Object>) (Index<?, ?>) (forward ? h.domainIndex() : h.rangeIndex());
+        }
+
+        java.util.Set<?> candidates(int depth, Object[] binding) {
+            return depth == 0 ? index.keySet() : index.get(binding[vars[0]]);
+        }
+    }
+
+    private static final class SetAtom extends Atom {
+        final java.util.Set<?> s;
+
+        SetAtom(java.util.Set<?> s, int x) {
+            vars = new int[] { x };
+            this.s = s;
+        }
+
+        java.util.Set<?> candidates(int depth, Object[] binding) {
+            return s;
+        }
+    }
+
+    private static final class TupleAtom extends Atom {
+        final TupleRelation r;
+        final int[] columns;
+        Map<Object, Object> trie;
+
+        TupleAtom(TupleRelation r, int[] positionVars) {
+            this.r = r;
+            Integer[] order = new Integer[positionVars.length];
+            for (int i=0; i<order.length; ++i) order[i] = i;
+            Arrays.sort(order, (a, b) -> positionVars[a] - positionVars[b]);
+            columns = new int[order.length];
+            vars = new int[order.length];
+            for (int i=0; i<order.length; ++i) {
+                columns[i] = order[i];
+                vars[i] = positionVars[order[i]];
+            }
+        }
+
+        void open() {
+            HashTupleRel h = r instanceof HashTupleRel ? (HashTupleRel) r : new HashTupleRel(r.arity(), r);
+            trie = h.trie(columns);
+        }
+
+        java.util.Set<?> candidates(int depth, Object[] binding) {
+            Map<Object, Object> node = trie;
+            for (int i=0; i<depth && node != null; ++i) {
+                node = (Map<Object, Object>) node.get(binding[vars[i]]);
+            }
+            return node == null ? Collections.emptySet() : node.keySet();
+        }
+    }
+
+    private final List<String> variables;
+    private final List<Atom> atoms = new ArrayList<>();
+
+    /**
+     * Constructs a join whose result binds the given variables, in order. The order
+     * is also the order in which variables are bound during evaluation; putting the
+     * most selective variables first usually helps.
+     * @param variables	the variables of the query
+    **/
+    public Join(String... variables) {
+        this.variables = Arrays.asList(variables.clone());
+        if (new HashSet<String>(this.variables).size() != variables.length) {
+            throw new IllegalArgumentException("Variables must be distinct");
+        }
+    }
+
+    /**
+     * Adds a binary relation to this join, naming a variable for x and for y.
+     * A <code>HashRel</code>, or the inverse of one, is used without copying; any other
+     * relation is copied into one each time the join is evaluated.
+     * @param r	the relation
+     * @param x	the variable bound to x in (x,y)
+     * @param y	the variable bound to y in (x,y)
+     * @return this join
+    **/
+    public Join atom(Relation<?, ?> r, String x, String y) {
+        if (r instanceof InverseView) return atom(((InverseView<?, ?>) r).r, y, x);
+        int[] v = vars(x, y);
+        atoms.add(new BinaryAtom(r, v[0], v[1]));
+        return this;
+    }
+
+    /**
+     * Adds a set to this join, restricting a variable to its members. The set is
+     * used without copying.
+     * @param s	the set
+     * @param x	the variable that must be bound to a member of <code>s</code>
+     * @return this join
+    **/
+    public Join atom(Set<?> s, String x) {
+        if (s instanceof TupleRelation) return atom((TupleRelation) s, new String[] { x });
+        atoms.add(new SetAtom(s, vars(x)[0]));
+        return this;
+    }
+
+    /**
+     * Adds a tuple relation to this join, naming a variable for each of its positions.
+     * @param r	the relation
+     * @param vars	the variable bound to each position of the tuples of <code>r</code>
+     * @return this join
+    **/
+    public Join atom(TupleRelation r, String... vars) {
+        if (vars.length != r.arity()) throw new IllegalArgumentException("Expected " + r.arity() + " variables");
+        atoms.add(new TupleAtom(r, vars(vars)));
+        return this;
+    }
+
+    private int[] vars(String... names) {
+        int[] v = new int[names.length];
+        for (int i=0; i<names.length; ++i) {
+            v[i] = variables.indexOf(names[i]);
+            if (v[i] < 0) throw new IllegalArgumentException("Unknown variable " + names[i]);
+            for (int j=0; j<i; ++j) {
+                if (v[j] == v[i]) throw new IllegalArgumentException("Variable " + names[i] + " repeated within an atom");
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Evaluates this join.
+     * @return a relation whose tuples bind the variables of this join, in order
+     * @throws IllegalStateException if some variable appears in no atom
+    **/
+    public TupleRelation evaluate() {
+        int n = variables.size();
+        List<List<Atom>> atomsOf = new ArrayList<>();
+        List<List<Integer>> depthsOf = new ArrayList<>();
+        for (int v=0; v<n; ++v) {
+            atomsOf.add(new ArrayList<>());
+            depthsOf.add(new ArrayList<>());
+        }
+        for (Atom a : atoms) {
+            for (int d=0; d<a.vars.length; ++d) {
+                atomsOf.get(a.vars[d]).add(a);
+                depthsOf.get(a.vars[d]).add(d);
+            }
+        }
+        for (int v=0; v<n; ++v) {
+            if (atomsOf.get(v).isEmpty()) throw new IllegalStateException("Variable " + variables.get(v) + " appears in no atom");
+        }
+        for (Atom a : atoms) a.open();
+        HashTupleRel result = new HashTupleRel(n);
+        search(0, new Object[n], atomsOf, depthsOf, result);
+        return result;
+    }
+
+    private void search(int v, Object[] binding, List<List<Atom>> atomsOf, List<List<Integer>> depthsOf, HashTupleRel result) {
+        if (v == binding.length) {
+            result.add(new Tuple(binding));
+            return;
+        }
+        List<Atom> as = atomsOf.get(v);
+        List<Integer> ds = depthsOf.get(v);
+        java.util.Set<?>[] candidates = new java.util.Set<?>[as.size()];
+        int smallest = 0;
+        for (int i=0; i<candidates.length; ++i) {
+            candidates[i] = as.get(i).candidates(ds.get(i), binding);
+            if (candidates[i].isEmpty()) return;
+            if (candidates[i].size() < candidates[smallest].size()) smallest = i;
+        }
+        next:
+        for (Object value : candidates[smallest]) {
+            for (int i=0; i<candidates.length; ++i) {
+                if (i != smallest && !candidates[i].contains(value)) continue next;
+            }
+            binding[v] = value;
+            search(v + 1, binding, atomsOf, depthsOf, result);
+        }
+    }
+}
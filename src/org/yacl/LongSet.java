@@ -0,0 +1,130 @@
+package org.yacl;
+
+import java.util.Arrays;
+
+
+/**
+ An open-addressing hash set of non-negative <code>long</code>s, used by
+ encoded relations to hold pairs of ids without boxing them. Removed slots are
+ marked rather than emptied, so slot numbers stay valid while iterating and
+ removing.
+
+ @author Brad Long
+**/
+final class LongSet {
+
+    private static final long FREE = -1L;
+    private static final long REMOVED = -2L;
+
+    private long[] slots;
+    private int size;
+    private int used;   // slots that are not free, including removed ones
+
+    LongSet() {
+        this(8);
+    }
+
+    LongSet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) capacity <<= 1;
+        slots = new long[capacity];
+        Arrays.fill(slots, FREE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long k) {
+        return find(k) >= 0;
+    }
+
+    boolean add(long k) {
+        if (find(k) >= 0) return false;
+        if ((used + 1) * 2 > slots.length) rehash(size + 1);
+        int mask = slots.length - 1;
+        int i = hash(k) & mask;
+        while (slots[i] >= 0) i = (i + 1) & mask;
+        if (slots[i] == FREE) used++;
+        slots[i] = k;
+        size++;
+        return true;
+    }
+
+    boolean remove(long k) {
+        int i = find(k);
+        if (i < 0) return false;
+        removeAt(i);
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(slots, FREE);
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Returns the first occupied slot at or after a given slot, or -1.
+    **/
+    int next(int slot) {
+        for (int i = slot; i < slots.length; i++) {
+            if (slots[i] >= 0) return i;
+        }
+        return -1;
+    }
+
+    long at(int slot) {
+        return slots[slot];
+    }
+
+    void removeAt(int slot) {
+        slots[slot] = REMOVED;
+        size--;
+    }
+
+    /**
+     * Returns the elements of this set in ascending order.
+    **/
+    long[] sorted() {
+        long[] a = new long[size];
+        int n = 0;
+        for (long k : slots) {
+            if (k >= 0) a[n++] = k;
+        }
+        Arrays.sort(a);
+        return a;
+    }
+
+    private int find(long k) {
+        int mask = slots.length - 1;
+        int i = hash(k) & mask;
+        long s;
+        while ((s = slots[i]) != FREE) {
+            if (s == k) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int expected) {
+        long[] old = slots;
+        int capacity = 16;
+        while (capacity < expected * 2) capacity <<= 1;
+        slots = new long[capacity];
+        Arrays.fill(slots, FREE);
+        int mask = capacity - 1;
+        for (long k : old) {
+            if (k < 0) continue;
+            int i = hash(k) & mask;
+            while (slots[i] != FREE) i = (i + 1) & mask;
+            slots[i] = k;
+        }
+        used = size;
+    }
+
+    private static int hash(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
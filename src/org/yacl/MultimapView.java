@@ -0,0 +1,168 @@
+package org.yacl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+
+/**
+ A view of a relation as a map from each x to the live set of y it relates to,
+ returned by {@link Relation#asMultimap()}. For a <code>HashRel</code> or its
+ inverse the view reads the domain index, so <code>get</code>, <code>containsKey</code> and the
+ size of an image take constant time; for other relations they scan.<p>
+
+ Nothing is copied: adding to or removing from an image adds or removes a
+ maplet, <code>put</code> replaces the image of x, <code>remove</code> removes it,
+ and the view reflects every change to the relation. The iterators of the
+ view and of its images are read only, since removing through them would
+ change the index they are walking.
+
+ @author Brad Long
+**/
+final class MultimapView<T1, T2> extends AbstractMap<T1, java.util.Set<T2>> {
+
+    private final Relation<T1, T2> r;
+
+    MultimapView(Relation<T1, T2> r) {
+        this.r = r;
+    }
+
+    private Index<T1, T2> index() {
+        if (r instanceof HashRel) return ((HashRel<T1, T2>) r).domainIndex();
+        if (r instanceof InverseView) return ((InverseView<T2, T1>) r).domainIndex();
+        return null;
+    }
+
+    private java.util.Set<T1> keys() {
+        Index<T1, T2> index = index();
+        return index != null ? index.keySet() : r.domain();
+    }
+
+    public int size() {
+        return keys().size();
+    }
+
+    public boolean isEmpty() {
+        return r.isEmpty();
+    }
+
+    public boolean containsKey(Object x) {
+        Index<T1, T2> index = index();
+        if (index != null) return index.containsKey(x);
+        for (Maplet<T1, T2> m : r) {
+            if (m.x().equals(x)) return true;
+        }
+        return false;
+    }
+
+    public java.util.Set<T2> get(Object x) {
+        return containsKey(x) ? new Image((T1) x) : null;
+    }
+
+    /**
+     * Replaces the image of x with the given values, which may be the image of x
+     * itself as returned by <code>get</code>.
+     * @return a copy of the previous image, or <code>null</code> if x had none
+    **/
+    public java.util.Set<T2> put(T1 x, java.util.Set<T2> ys) {
+        List<T2> values = new ArrayList<>(ys);
+        java.util.Set<T2> old = remove(x);
+        for (T2 y : values) r.add(x, y);
+        return old;
+    }
+
+    /**
+     * Removes every maplet with a given x.
+     * @return a copy of the removed image, or <code>null</code> if x had none
+    **/
+    public java.util.Set<T2> remove(Object x) {
+        if (!containsKey(x)) return null;
+        java.util.Set<T2> old = new HashSet<>(new Image((T1) x));
+        for (T2 y : old) r.remove(new Maplet<>((T1) x, y));
+        return old;
+    }
+
+    public void clear() {
+        r.clear();
+    }
+
+    public java.util.Set<Map.Entry<T1, java.util.Set<T2>>> entrySet() {
+        return new AbstractSet<Map.Entry<T1, java.util.Set<T2>>>() {
+            public int size() {
+                return MultimapView.this.size();
+            }
+            public Iterator<Map.Entry<T1, java.util.Set<T2>>> iterator() {
+                final Iterator<T1> it = keys().iterator();
+                return new Iterator<Map.Entry<T1, java.util.Set<T2>>>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public Map.Entry<T1, java.util.Set<T2>> next() {
+                        T1 x = it.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(x, new Image(x));
+                    }
+                };
+            }
+        };
+    }
+
+    /* The live image of one x. */
+    private final class Image extends AbstractSet<T2> {
+        private final T1 x;
+
+        Image(T1 x) {
+            this.x = x;
+        }
+
+        public int size() {
+            Index<T1, T2> index = index();
+            if (index != null) return index.count(x);
+            int n = 0;
+            for (Maplet<T1, T2> m : r) {
+                if (m.x().equals(x)) ++n;
+            }
+            return n;
+        }
+
+        public boolean contains(Object y) {
+            return y != null && r.contains(new Maplet<>(x, y));
+        }
+
+        public boolean add(T2 y) {
+            return r.add(x, y);
+        }
+
+        public boolean remove(Object y) {
+            return y != null && r.remove(new Maplet<>(x, (T2) y));
+        }
+
+        public Iterator<T2> iterator() {
+            Index<T1, T2> index = index();
+            if (index != null) return index.get(x).iterator();
+            final Iterator<Maplet<T1, T2>> it = r.iterator();
+            return new Iterator<T2>() {
+                private T2 next = advance();
+                private T2 advance() {
+                    while (it.hasNext()) {
+                        Maplet<T1, T2> m = it.next();
+                        if (m.x().equals(x)) return m.y();
+                    }
+                    return null;
+                }
+                public boolean hasNext() {
+                    return next != null;
+                }
+                public T2 next() {
+                    if (next == null) throw new NoSuchElementException();
+                    T2 y = next;
+                    next = advance();
+                    return y;
+                }
+            };
+        }
+    }
+}
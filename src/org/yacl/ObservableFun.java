@@ -0,0 +1,123 @@
+package org.yacl;
+
+import java.util.Collection;
+import java.util.concurrent.Flow;
+
+
+/**
+ A function that reports each change made to it as a {@link Delta} of inserted and
+ deleted maplets. Deltas are coalesced and delivered as described for
+ {@link ObservableRel}; a maplet that replaces another with the same x is
+ delivered with it as one delta.
+
+ @author Brad Long
+**/
+public class ObservableFun<T1, T2> extends HashFun<T1, T2> implements ObservableRelation<T1, T2> {
+
+    private Changes<T1, T2> changes = new Changes<>();
+
+    public ObservableFun() {
+        super();
+    }
+
+    /**
+     * Constructs an observable function containing the maplets of a given function.
+    **/
+    public ObservableFun(Function<T1, T2> r) {
+        super();
+        addAll(r);
+    }
+
+    public void addListener(DeltaListener<T1, T2> l) {
+        changes.addListener(l);
+    }
+
+    public void removeListener(DeltaListener<T1, T2> l) {
+        changes.removeListener(l);
+    }
+
+    /**
+     * Returns a publisher of the deltas of this function. Each subscriber receives
+     * the deltas delivered after it subscribes, on a thread of the common pool,
+     * at the rate it requests.
+    **/
+    public Flow.Publisher<Delta<T1, T2>> publisher() {
+        return changes.publisher();
+    }
+
+    /**
+     * Completes every subscriber of the publisher of this function.
+    **/
+    public void close() {
+        changes.close();
+    }
+
+    /**
+     * Opens a transaction; changes are held until the matching <code>commit</code>.
+    **/
+    public void begin() {
+        changes.begin();
+    }
+
+    /**
+     * Closes the innermost transaction, delivering the coalesced changes if it
+     * was the outermost.
+     * @throws IllegalStateException if no transaction is open
+    **/
+    public void commit() {
+        changes.commit();
+    }
+
+    /**
+     * Returns a copy of this function with no listeners, subscribers or open
+     * transaction of its own; changes to the copy are not reported to those of
+     * this function.
+    **/
+    public Object clone() {
+        ObservableFun<T1, T2> r = (ObservableFun<T1, T2>) super.clone();
+        r.changes = new Changes<>();
+        return r;
+    }
+
+    protected void elementAdded(Maplet<T1, T2> m) {
+        super.elementAdded(m);
+        if (changes != null) changes.added(m);
+    }
+
+    protected void elementRemoved(Object o) {
+        super.elementRemoved(o);
+        if (changes != null) changes.removed((Maplet<T1, T2>) o);
+    }
+
+    protected void beginUpdate() {
+        begin();
+    }
+
+    protected void endUpdate() {
+        commit();
+    }
+
+    public boolean addAll(Collection<? extends Maplet<T1, T2>> c) {
+        return changes.transact(() -> super.addAll(c));
+    }
+
+    public boolean removeAll(Collection<?> c) {
+        return changes.transact(() -> super.removeAll(c));
+    }
+
+    public boolean retainAll(Collection<?> c) {
+        return changes.transact(() -> super.retainAll(c));
+    }
+
+    public void clear() {
+        changes.clear(this, super::clear);
+    }
+
+    /**
+     * Adds a maplet to this function, replacing any maplet with the same x.
+     * A replacement is delivered as one delta in which x is {@link Delta#updated() updated}.
+    **/
+    public T2 put(Maplet<T1, T2> m) {
+        return changes.transact(() -> super.put(m));
+    }
+}
@@ -0,0 +1,124 @@
+package org.yacl;
+
+import java.util.Collection;
+import java.util.concurrent.Flow;
+
+
+/**
+ A relation that reports each change made to it as a {@link Delta} of inserted and
+ deleted maplets, so that derived data can be kept up to date in time
+ proportional to the change rather than to the size of the relation.<p>
+
+ Each mutation, including each bulk operation such as <code>addAll</code> or
+ <code>clear</code>, is delivered as one delta. Mutations made between
+ <code>begin</code> and the matching <code>commit</code> are coalesced into a
+ single delta delivered on commit; transactions may be nested.<p>
+
+ Deltas are delivered synchronously to each {@link DeltaListener}, and
+ asynchronously to subscribers of {@link #publisher()}. A mutation blocks while
+ any subscriber has fallen too far behind, which bounds the memory held for
+ slow consumers.
+
+ @author Brad Long
+**/
+public class ObservableRel<T1, T2> extends HashRel<T1, T2> implements ObservableRelation<T1, T2> {
+
+    private Changes<T1, T2> changes = new Changes<>();
+
+    public ObservableRel() {
+        super();
+    }
+
+    /**
+     * Constructs an observable relation containing the maplets of a given relation.
+    **/
+    public ObservableRel(Relation<T1, T2> r) {
+        super();
+        addAll(r);
+    }
+
+    public void addListener(DeltaListener<T1, T2> l) {
+        changes.addListener(l);
+    }
+
+    public void removeListener(DeltaListener<T1, T2> l) {
+        changes.removeListener(l);
+    }
+
+    /**
+     * Returns a publisher of the deltas of this relation. Each subscriber receives
+     * the deltas delivered after it subscribes, on a thread of the common pool,
+     * at the rate it requests.
+    **/
+    public Flow.Publisher<Delta<T1, T2>> publisher() {
+        return changes.publisher();
+    }
+
+    /**
+     * Completes every subscriber of the publisher of this relation.
+    **/
+    public void close() {
+        changes.close();
+    }
+
+    /**
+     * Opens a transaction; changes are held until the matching <code>commit</code>.
+    **/
+    public void begin() {
+        changes.begin();
+    }
+
+    /**
+     * Closes the innermost transaction, delivering the coalesced changes if it
+     * was the outermost.
+     * @throws IllegalStateException if no transaction is open
+    **/
+    public void commit() {
+        changes.commit();
+    }
+
+    /**
+     * Returns a copy of this relation with no listeners, subscribers or open
+     * transaction of its own; changes to the copy are not reported to those of
+     * this relation.
+    **/
+    public Object clone() {
+        ObservableRel<T1, T2> r = (ObservableRel<T1, T2>) super.clone();
+        r.changes = new Changes<>();
+        return r;
+    }
+
+    protected void elementAdded(Maplet<T1, T2> m) {
+        super.elementAdded(m);
+        if (changes != null) changes.added(m);
+    }
+
+    protected void elementRemoved(Object o) {
+        super.elementRemoved(o);
+        if (changes != null) changes.removed((Maplet<T1, T2>) o);
+    }
+
+    protected void beginUpdate() {
+        begin();
+    }
+
+    protected void endUpdate() {
+        commit();
+    }
+
+    public boolean addAll(Collection<? extends Maplet<T1, T2>> c) {
+        return changes.transact(() -> super.addAll(c));
+    }
+
+    public boolean removeAll(Collection<?> c) {
+        return changes.transact(() -> super.removeAll(c));
+    }
+
+    public boolean retainAll(Collection<?> c) {
+        return changes.transact(() -> super.retainAll(c));
+    }
+
+    public void clear() {
+        changes.clear(this, super::clear);
+    }
+}
@@ -0,0 +1,48 @@
+package org.yacl;
+
+import java.util.concurrent.Flow;
+
+
+/**
+ A relation that reports each change made to it as a {@link Delta} of inserted
+ and deleted maplets.<p>
+
+ Each mutation, including each bulk operation, is delivered as one delta.
+ Mutations made between <code>begin</code> and the matching <code>commit</code>
+ are coalesced into a single delta delivered on commit; transactions may be
+ nested.
+
+ @author Brad Long
+**/
+public interface ObservableRelation<T1, T2> extends Relation<T1, T2> {
+
+    /**
+     * Registers a listener to be called synchronously with each delta.
+    **/
+    public void addListener(DeltaListener<T1, T2> l);
+
+    public void removeListener(DeltaListener<T1, T2> l);
+
+    /**
+     * Returns a publisher of the deltas of this relation. Each subscriber receives
+     * the deltas delivered after it subscribes, at the rate it requests.
+    **/
+    public Flow.Publisher<Delta<T1, T2>> publisher();
+
+    /**
+     * Completes every subscriber of the publisher of this relation.
+    **/
+    public void close();
+
+    /**
+     * Opens a transaction; changes are held until the matching <code>commit</code>.
+    **/
+    public void begin();
+
+    /**
+     * Closes the innermost transaction, delivering the coalesced changes if it
+     * was the outermost.
+     * @throws IllegalStateException if no transaction is open
+    **/
+    public void commit();
+}
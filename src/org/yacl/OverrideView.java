@@ -0,0 +1,58 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ The override Q.override(R) of two observable relations, maintained
+ incrementally.<p>
+
+ A change to either input affects only the objects x whose maplets changed:
+ for each, the view's image of x is brought into line with R's image of x if
+ x is in the domain of R, and with Q's otherwise. An update costs time
+ proportional to the images of the objects it touches.
+
+ @author Brad Long
+**/
+public class OverrideView<T1, T2> extends View<T1, T2> {
+
+    private final ObservableRelation<T1, T2> q;
+    private final ObservableRelation<T1, T2> r;
+    private final DeltaListener<T1, T2> listener;
+
+    public OverrideView(ObservableRelation<T1, T2> q, ObservableRelation<T1, T2> r) {
+        this.q = q;
+        this.r = r;
+        Index<T1, T2> over = domainIndex(r);
+        for (Maplet<T1, T2> m : q) {
+            if (!over.containsKey(m.x())) insert(m);
+        }
+        for (Maplet<T1, T2> m : r) insert(m);
+        listener = new DeltaListener<T1, T2>() {
+            public void changed(Delta<T1, T2> d) {
+                begin();
+                for (Maplet<T1, T2> m : d.inserted()) refresh(m.x());
+                for (Maplet<T1, T2> m : d.deleted()) refresh(m.x());
+                commit();
+            }
+        };
+        q.addListener(listener);
+        if (q != r) r.addListener(listener);
+    }
+
+    public void detach() {
+        q.removeListener(listener);
+        r.removeListener(listener);
+    }
+
+    private void refresh(T1 x) {
+        java.util.Set<T2> target = domainIndex(r).containsKey(x) ? domainIndex(r).get(x) : domainIndex(q).get(x);
+        List<T2> stale = new ArrayList<>();
+        for (T2 y : domainIndex().get(x)) {
+            if (!target.contains(y)) stale.add(y);
+        }
+        for (T2 y : stale) delete(new Maplet<>(x, y));
+        for (T2 y : target) insert(new Maplet<>(x, y));
+    }
+}
@@ -0,0 +1,90 @@
+package org.yacl;
+
+
+/**
+ A function whose maplets are divided among a fixed number of
+ <code>HashFun</code> partitions by the hash of x, each guarded by its own
+ read/write lock. Since a key and all maplets for it share a partition,
+ <code>put</code>, <code>getValue</code> and <code>containsKey</code> touch only
+ that partition.
+
+ @author Brad Long
+ @see PartitionedRel
+**/
+public class PartitionedFun<T1, T2> extends PartitionedRel<T1, T2> implements Function<T1, T2> {
+
+    public PartitionedFun() {
+        super();
+    }
+
+    public PartitionedFun(int partitions) {
+        super(partitions);
+    }
+
+    protected HashRel<T1, T2> newPartition() {
+        return new HashFun<>();
+    }
+
+    private HashFun<T1, T2> part(Object key) {
+        return (HashFun<T1, T2>) parts[partition(key)];
+    }
+
+    public T2 put(Maplet<T1, T2> m) {
+        int i = partition(m.x());
+        lock(i, true);
+        try {
+            return ((HashFun<T1, T2>) parts[i]).put(m);
+        } finally {
+            unlock(i, true);
+        }
+    }
+
+    public T2 put(T1 key, T2 value) {
+        return put(new Maplet<>(key, value));
+    }
+
+    public Maplet<T1, T2> getMaplet(T1 key) {
+        int i = partition(key);
+        if (!mayHold(i, key)) return null;
+        lock(i, false);
+        try {
+            return part(key).getMaplet(key);
+        } finally {
+            unlock(i, false);
+        }
+    }
+
+    public T2 getValue(T1 key) {
+        Maplet<T1, T2> m = getMaplet(key);
+        return m == null ? null : m.y();
+    }
+
+    public boolean containsKey(T1 key) {
+        return getMaplet(key) != null;
+    }
+
+    /**
+     * Determines whether any partition maps some key to a given value. Partitions
+     * whose range filter rules the value out are not locked.
+    **/
+    public boolean containsValue(T2 value) {
+        for (int i = 0; i < parts.length; ++i) {
+            if (!mayReach(i, value)) continue;
+            lock(i, false);
+            try {
+                if (((HashFun<T1, T2>) parts[i]).containsValue(value)) return true;
+            } finally {
+                unlock(i, false);
+            }
+        }
+        return false;
+    }
+
+    public java.util.Map<T1, T2> asMap() {
+        return new FunctionMap<>(this);
+    }
+
+    public Function<T1, T2> freeze() {
+        return new FrozenFun<>(this);
+    }
+}
@@ -0,0 +1,637 @@
+package org.yacl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+
+/**
+ A relation whose maplets are divided among a fixed number of
+ <code>HashRel</code> partitions by the hash of x, each guarded by its own
+ read/write lock. Threads adding, removing and looking up maplets with x in
+ different partitions do not contend, so mutation scales with the number of
+ cores.<p>
+
+ Since all maplets with the same x share a partition, domain restriction,
+ image and composition are computed partition by partition in parallel, and
+ their results keep the partitioning of this relation with no redistribution
+ of maplets. The inverse is redistributed by y, also in parallel. Operators not
+ overridden here are answered by a <code>HashRel</code> copy, as in
+ {@link AbstractRel}, except the function checks and reachability queries,
+ which read the indexes of the partitions in place.<p>
+
+ Bulk operators hold the read lock of every partition while they run. Each
+ partition keeps its domain and range indexes built at all times, so that
+ readers never build them concurrently. Iteration is weakly consistent: each
+ partition is copied under its lock when the iterator reaches it.<p>
+
+ Each partition can also keep Bloom filters over its domain, its range and its
+ maplets (see {@link #enableFilters(double)}). Lookups probe them before taking
+ the partition's read lock, so a lookup that misses touches neither the lock nor
+ the partition's tables, and does not contend with other readers or with the
+ writer of that partition. A lookup that hits pays for the probe as well as the
+ lookup, so filters are worth enabling only when most lookups miss.
+
+ @author Brad Long
+**/
+public class PartitionedRel<T1, T2> extends AbstractRel<T1, T2> {
+
+    final HashRel<T1, T2>[] parts;
+    private final ReentrantReadWriteLock[] locks;
+
+    /**
+     * Constructs a relation with one partition per available processor.
+    **/
+    public PartitionedRel() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a relation with the given number of partitions.
+    **/
+    public PartitionedRel(int partitions) {
+        if (partitions < 1) throw new IllegalArgumentException("There must be at least one partition");
+        parts = newParts(partitions);
+        for (int i = 0; i < partitions; ++i) parts[i] = indexed(newPartition());
+        locks = newLocks(partitions);
+    }
+
+    /*
+     * Constructs a relation over existing partitions, which must be partitioned by x.
+     */
+    private PartitionedRel(HashRel<T1, T2>[] parts) {
+        for (HashRel<T1, T2> part : parts) indexed(part);
+        this.parts = parts;
+        this.locks = newLocks(parts.length);
+    }
+
+    private static ReentrantReadWriteLock[] newLocks(int n) {
+        ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[n];
+        for (int i = 0; i < n; ++i) locks[i] = new ReentrantReadWriteLock();
+        return locks;
+    }
+
+    /* Java cannot create an array of a generic type, so one of the raw type stands in. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <A, B> HashRel<A, B>[] newParts(int n) {
+        return new HashRel[n];
+    }
+
+    /**
+     * Creates an empty partition. Subclasses override this to hold, for instance,
+     * functions.
+    **/
+    protected HashRel<T1, T2> newPartition() {
+        return new HashRel<>();
+    }
+
+    private static <A, B> HashRel<A, B> indexed(HashRel<A, B> part) {
+        part.domainIndex();
+        part.rangeIndex();
+        return part;
+    }
+
+    /**
+     * Returns the number of partitions of this relation.
+    **/
+    public int partitions() {
+        return parts.length;
+    }
+
+    /**
+     * Returns the partition holding the maplets with a given x.
+    **/
+    int partition(Object x) {
+        int h = x.hashCode();
+        return ((h ^ (h >>> 16)) & 0x7fffffff) % parts.length;
+    }
+
+    /*
+     * Runs an action for each partition in parallel while holding the read lock of
+     * every partition of this relation and of another relation, if given. Locks are
+     * taken by the calling thread in a fixed order, so the workers need none.
+     */
+    private void parallel(PartitionedRel<?, ?> other, IntConsumer action) {
+        PartitionedRel<?, ?> first = this, second = other;
+        if (other != null && System.identityHashCode(other) < System.identityHashCode(this)) {
+            first = other;
+            second = this;
+        }
+        first.lockAll();
+        try {
+            if (second != null && second != first) second.lockAll();
+            try {
+                IntStream.range(0, parts.length).parallel().forEach(action);
+            } finally {
+                if (second != null && second != first) second.unlockAll();
+            }
+        } finally {
+            first.unlockAll();
+        }
+    }
+
+    void lock(int i, boolean write) {
+        if (write) locks[i].writeLock().lock(); else locks[i].readLock().lock();
+    }
+
+    void unlock(int i, boolean write) {
+        if (write) locks[i].writeLock().unlock(); else locks[i].readLock().unlock();
+    }
+
+    private void lockAll() {
+        for (ReentrantReadWriteLock l : locks) l.readLock().lock();
+    }
+
+    private void unlockAll() {
+        for (ReentrantReadWriteLock l : locks) l.readLock().unlock();
+    }
+
+    /**
+     * Keeps Bloom filters over the domain, the range and the maplets of each
+     * partition. The domain and pair filters are probed by <code>contains</code>,
+     * <code>forEachImage</code>, <code>image</code> and the key lookups of functions
+     * before the partition is locked. The range filters are probed by
+     * <code>containsValue</code> of functions before each partition is locked, and
+     * by range restrictions, which skip the partitions that rule out every member
+     * of the restricting set. The inverse of a relation with filters has filters
+     * of its own, with the same false positive rate, so lookups on the range side
+     * made through <code>inverse()</code> are filtered as domain lookups.<p>
+     *
+     * The filters are added to as maplets are added, under the partition's write
+     * lock. Removed maplets stay in the filters until {@link #rebuildFilters()} is
+     * called; the filters of a partition are rebuilt automatically, twice as
+     * large, when it outgrows them. The statistics of the filters show whether
+     * they reject enough lookups to pay for probing the ones they pass.
+     * @param falsePositiveRate	the rate of false positives wanted, between 0 and 1
+     * @throws IllegalArgumentException if the rate is not between 0 and 1
+    **/
+    public void enableFilters(double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].writeLock().lock();
+            try {
+                parts[i].enableFilters(falsePositiveRate);
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    public void disableFilters() {
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].writeLock().lock();
+            try {
+                parts[i].disableFilters();
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the filters of each partition from its maplets, dropping removed
+     * maplets and resetting the filters' statistics.
+     * @throws IllegalStateException if filters have not been enabled
+    **/
+    public void rebuildFilters() {
+        if (parts[0].pairFilter() == null) throw new IllegalStateException("Filters are not enabled");
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].writeLock().lock();
+            try {
+                parts[i].rebuildFilters();
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the filter over the domain of a partition, with its statistics, or
+     * <code>null</code> if filters are not enabled.
+    **/
+    public BloomFilter domainFilter(int partition) {
+        return parts[partition].domainFilter();
+    }
+
+    /**
+     * Returns the filter over the range of a partition, with its statistics, or
+     * <code>null</code> if filters are not enabled.
+    **/
+    public BloomFilter rangeFilter(int partition) {
+        return parts[partition].rangeFilter();
+    }
+
+    /**
+     * Returns the filter over the maplets of a partition, with its statistics, or
+     * <code>null</code> if filters are not enabled.
+    **/
+    public BloomFilter pairFilter(int partition) {
+        return parts[partition].pairFilter();
+    }
+
+    /*
+     * Whether partition i may hold maplets with a given x; false only if its domain
+     * filter rules x out. Takes no lock.
+     */
+    boolean mayHold(int i, Object x) {
+        BloomFilter filter = parts[i].domainFilter();
+        return filter == null || filter.mightContain(x);
+    }
+
+    /*
+     * Whether partition i may hold maplets with a given y; false only if its range
+     * filter rules y out. Takes no lock.
+     */
+    boolean mayReach(int i, Object y) {
+        BloomFilter filter = parts[i].rangeFilter();
+        return filter == null || filter.mightContain(y);
+    }
+
+    public boolean add(Maplet<T1, T2> m) {
+        int i = partition(m.x());
+        locks[i].writeLock().lock();
+        try {
+            return parts[i].add(m);
+        } finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    public boolean remove(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        int i = partition(((Maplet<?, ?>) o).x());
+        locks[i].writeLock().lock();
+        try {
+            return parts[i].remove(o);
+        } finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    public boolean contains(Object o) {
+        if (!(o instanceof Maplet)) return false;
+        int i = partition(((Maplet<?, ?>) o).x());
+        BloomFilter filter = parts[i].pairFilter();
+        if (filter != null && !filter.mightContain(o)) return false;
+        locks[i].readLock().lock();
+        try {
+            return parts[i].contains(o);
+        } finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    public boolean contains(T1 x, T2 y) {
+        int i = partition(x);
+        if (!mayHold(i, x)) return false;
+        locks[i].readLock().lock();
+        try {
+            return parts[i].contains(x, y);
+        } finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs an action for each pair, one partition at a time under its read lock.
+    **/
+    public void forEach(BiConsumer<? super T1, ? super T2> action) {
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].readLock().lock();
+            try {
+                parts[i].forEach(action);
+            } finally {
+                locks[i].readLock().unlock();
+            }
+        }
+    }
+
+    public void forEachImage(T1 x, Consumer<? super T2> action) {
+        int i = partition(x);
+        if (!mayHold(i, x)) return;
+        locks[i].readLock().lock();
+        try {
+            parts[i].forEachImage(x, action);
+        } finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].readLock().lock();
+            try {
+                size += parts[i].size();
+            } finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < parts.length; ++i) {
+            locks[i].writeLock().lock();
+            try {
+                parts[i].clear();
+                indexed(parts[i]);
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    public Iterator<Maplet<T1, T2>> iterator() {
+        return new Iterator<Maplet<T1, T2>>() {
+            private int i = -1;
+            private Object[] current = new Object[0];
+            private int pos = 0;
+            private Maplet<T1, T2> last;
+
+            public boolean hasNext() {
+                while (pos >= current.length && i < parts.length - 1) {
+                    ++i;
+                    locks[i].readLock().lock();
+                    try {
+                        current = parts[i].toArray();
+                    } finally {
+                        locks[i].readLock().unlock();
+                    }
+                    pos = 0;
+                }
+                return pos < current.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            public Maplet<T1, T2> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return last = (Maplet<T1, T2>) current[pos++];
+            }
+
+            public void remove() {
+                if (last == null) throw new IllegalStateException();
+                PartitionedRel.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Returns the maplets (x,y) of this relation with x in <code>s</code> and y in
+     * <code>t</code>, restricting each partition in parallel. If filters are enabled,
+     * each partition is restricted to the members of <code>t</code> its range filter
+     * passes, and skipped if it passes none. The result has the partitioning of this
+     * relation.
+    **/
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t) {
+        HashRel<T1, T2>[] result = newParts(parts.length);
+        parallel(null, i -> {
+            Set<T2> range = t;
+            if (t != null && parts[i].rangeFilter() != null) {
+                range = new HashSet<>();
+                for (T2 y : t) {
+                    if (mayReach(i, y)) range.add(y);
+                }
+            }
+            result[i] = range != null && range.isEmpty() ? new HashRel<>() : (HashRel<T1, T2>) parts[i].restriction(s, range);
+        });
+        return new PartitionedRel<>(result);
+    }
+
+    /**
+     * Returns statistics combined from those of each partition. Since the
+     * partitions divide the domain, the size, domain size and fan-out histogram
+     * are exact. The range size is estimated by merging a HyperLogLog sketch of
+     * each partition's range, so the statistics are not marked exact.
+    **/
+    public Statistics statistics () {
+        Statistics[] stats = new Statistics[parts.length];
+        HyperLogLog[] ranges = new HyperLogLog[parts.length];
+        parallel(null, i -> {
+            stats[i] = parts[i].statistics();
+            ranges[i] = HyperLogLog.of(parts[i].rangeIndex().keySet());
+        });
+        long size = 0, domainSize = 0;
+        long[] fanOut = new long[32], fanIn = new long[32];
+        HyperLogLog range = new HyperLogLog();
+        for (int i = 0; i < parts.length; ++i) {
+            size += stats[i].size();
+            domainSize += stats[i].domainSize();
+            fanOut = Statistics.sum(fanOut, stats[i].fanOut());
+            fanIn = Statistics.sum(fanIn, stats[i].fanIn());
+            range.merge(ranges[i]);
+        }
+        return new Statistics(size, domainSize, parts.length == 1 ? stats[0].rangeSize() : range.estimate(),
+            parts.length == 1, fanOut, fanIn);
+    }
+
+    /**
+     * Returns the maplets (x,y) of this relation with x not in <code>s</code> and y not
+     * in <code>t</code>, anti-restricting each partition in parallel. The result has
+     * the partitioning of this relation.
+    **/
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t) {
+        HashRel<T1, T2>[] result = newParts(parts.length);
+        parallel(null, i -> result[i] = (HashRel<T1, T2>) parts[i].antiRestriction(s, t));
+        return new PartitionedRel<>(result);
+    }
+
+    /**
+     * Returns the image of a set, sending each member to its partition and taking the
+     * images in parallel. Members ruled out by the domain filters are dropped first.
+    **/
+    public Set<T2> image (Set<T1> s) {
+        List<List<T1>> buckets = new ArrayList<>();
+        for (int i = 0; i < parts.length; ++i) buckets.add(new ArrayList<>());
+        for (T1 x : s) {
+            int i = partition(x);
+            if (mayHold(i, x)) buckets.get(i).add(x);
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Set<T2>[] images = new Set[parts.length];
+        parallel(null, i -> images[i] = buckets.get(i).isEmpty() ? null : parts[i].image(new HashSet<>(buckets.get(i))));
+        Set<T2> image = new HashSet<>();
+        for (Set<T2> part : images) {
+            if (part != null) image.addAll(part);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the inverse of this relation, partitioned by its own x (the y of this
+     * relation). Maplets are inverted and sent to their new partitions in parallel,
+     * then each new partition is built in parallel. If this relation has filters,
+     * so does the inverse.
+    **/
+    public Relation<T2, T1> inverse() {
+        int n = parts.length;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Maplet<T2, T1>>[][] buckets = new List[n][n];
+        parallel(null, i -> {
+            for (int j = 0; j < n; ++j) buckets[i][j] = new ArrayList<>();
+            for (Maplet<T1, T2> m : parts[i]) buckets[i][partition(m.y())].add(new Maplet<>(m.y(), m.x()));
+        });
+        HashRel<T2, T1>[] result = newParts(n);
+        double rate;
+        lock(0, false);
+        try {
+            rate = parts[0].falsePositiveRate();
+        } finally {
+            unlock(0, false);
+        }
+        IntStream.range(0, n).parallel().forEach(j -> {
+            result[j] = new HashRel<>();
+            for (int i = 0; i < n; ++i) result[j].addAll(buckets[i][j]);
+            if (rate > 0) result[j].enableFilters(rate);
+        });
+        return new PartitionedRel<>(result);
+    }
+
+    /**
+     * Returns the composition of this relation with another, joining each partition
+     * of this relation in parallel. When <code>r</code> is partitioned the same way,
+     * each y is looked up directly in its partition of <code>r</code>; otherwise
+     * <code>r</code> is indexed once. The result has the partitioning of this relation.
+    **/
+    public Relation<T1, T2> composition (Relation<T1, T2> r) {
+        HashRel<T1, T2>[] result = newParts(parts.length);
+        if (r instanceof PartitionedRel && ((PartitionedRel<?, ?>) r).parts.length == parts.length) {
+            PartitionedRel<T1, T2> p = (PartitionedRel<T1, T2>) r;
+            parallel(p, i -> {
+                result[i] = new HashRel<>();
+                for (Maplet<T1, T2> m : parts[i]) {
+                    for (T2 z : p.parts[partition(m.y())].domainIndex().get(m.y())) result[i].add(m.x(), z);
+                }
+            });
+        } else {
+            @SuppressWarnings("unchecked")
+            Index<Object, T2> next = (Index<Object, T2>) (Index<?, ?>) HashRel.domainIndexOf(r);
+            parallel(null, i -> result[i] = (HashRel<T1, T2>) compose(parts[i], next));
+        }
+        return new PartitionedRel<>(result);
+    }
+
+    /**
+     * Determines whether every partition is a function, which suffices since the
+     * partitions divide the domain. Holds the read lock of every partition.
+    **/
+    public boolean isFunction () {
+        lockAll();
+        try {
+            for (HashRel<T1, T2> part : parts) {
+                if (!part.isFunction()) return false;
+            }
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Determines whether every partition is an injection and no y is shared
+     * between partitions. Holds the read lock of every partition.
+    **/
+    public boolean isInjection () {
+        lockAll();
+        try {
+            java.util.Set<T2> range = new java.util.HashSet<>();
+            for (HashRel<T1, T2> part : parts) {
+                if (!part.isInjection()) return false;
+                for (T2 y : part.rangeIndex().keySet()) {
+                    if (!range.add(y)) return false;
+                }
+            }
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Determines whether b can be reached from a, by a breadth first search
+     * looking each object up in the domain index of its partition. Holds the
+     * read lock of every partition.
+    **/
+    public boolean reaches (T1 a, T2 b) {
+        lockAll();
+        try {
+            return reachable(a, b, false) == null;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Returns the objects reachable from a, by a breadth first search looking
+     * each object up in the domain index of its partition. Holds the read lock
+     * of every partition.
+    **/
+    @SuppressWarnings("unchecked")
+    public Set<T2> reachableFrom (T1 a) {
+        lockAll();
+        try {
+            return (Set<T2>) (Set<?>) reachable(a, null, false);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Returns the objects from which b can be reached, by a breadth first search
+     * looking each object up in the range index of every partition. Holds the
+     * read lock of every partition.
+    **/
+    @SuppressWarnings("unchecked")
+    public Set<T1> reachingTo (T2 b) {
+        lockAll();
+        try {
+            return (Set<T1>) (Set<?>) reachable(b, null, true);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /*
+     * Returns every object reachable from start in one or more steps, forwards or
+     * backwards, or null as soon as target is reached.
+     */
+    private Set<Object> reachable(Object start, Object target, boolean backwards) {
+        Set<Object> seen = new HashSet<>();
+        ArrayDeque<Object> frontier = new ArrayDeque<>();
+        frontier.add(start);
+        while (!frontier.isEmpty()) {
+            Object v = frontier.poll();
+            if (backwards) {
+                for (HashRel<T1, T2> part : parts) {
+                    for (Object next : part.rangeIndex().get(v)) {
+                        if (seen.add(next)) frontier.add(next);
+                    }
+                }
+            } else {
+                for (Object next : parts[partition(v)].domainIndex().get(v)) {
+                    if (target != null && target.equals(next)) return null;
+                    if (seen.add(next)) frontier.add(next);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static <A, B> Relation<A, B> compose(HashRel<A, B> q, Index<Object, B> next) {
+        HashRel<A, B> rel = new HashRel<>();
+        for (Maplet<A, B> m : q) {
+            for (B z : next.get(m.y())) rel.add(m.x(), z);
+        }
+        return rel;
+    }
+}
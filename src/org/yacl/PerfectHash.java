@@ -0,0 +1,121 @@
+package org.yacl;
+
+import java.util.Arrays;
+
+
+/**
+ A minimal perfect hash over a fixed set of distinct <code>int</code> codes,
+ mapping each code to its own slot in 0..m-1, where m is the number of codes.
+ Codes not in the set map to an arbitrary slot, so callers check what they
+ find there.<p>
+
+ The codes are split into buckets of about four by one hash. Buckets are then
+ placed largest first: each is given the least seed under which a second,
+ seeded hash sends all of its codes to free slots. Buckets of one code are
+ simply given the next free slot. A lookup costs two hashes and one array
+ read, and the table takes one <code>int</code> per bucket.
+
+ @author Brad Long
+**/
+final class PerfectHash {
+
+    private static final int GOLDEN = 0x9E3779B9;
+
+    /* Per bucket: a seed, or -(slot+1) for a bucket of one code placed directly. */
+    private final int[] seeds;
+    private final int m;
+
+    /**
+     * Builds a perfect hash over distinct codes.
+    **/
+    PerfectHash(int[] codes) {
+        m = codes.length;
+        int buckets = Math.max(1, (m + 3) / 4);
+        seeds = new int[buckets];
+
+        // group codes by bucket with a counting sort
+        int[] start = new int[buckets + 1];
+        for (int code : codes) ++start[bucket(code, buckets) + 1];
+        // order the buckets largest first, by a counting sort on their sizes
+        int largest = 0;
+        for (int b = 0; b < buckets; b++) largest = Math.max(largest, start[b + 1]);
+        int[] first = new int[largest + 2];
+        for (int b = 0; b < buckets; b++) ++first[largest - start[b + 1] + 1];
+        for (int k = 0; k <= largest; k++) first[k + 1] += first[k];
+        int[] order = new int[buckets];
+        for (int b = 0; b < buckets; b++) order[first[largest - start[b + 1]]++] = b;
+        for (int b = 0; b < buckets; b++) start[b + 1] += start[b];
+        int[] grouped = new int[m];
+        int[] fill = Arrays.copyOf(start, buckets);
+        for (int code : codes) grouped[fill[bucket(code, buckets)]++] = code;
+
+        boolean[] taken = new boolean[m];
+        int[] slots = new int[16];
+        int free = 0;
+        for (int b : order) {
+            int from = start[b], k = start[b + 1] - from;
+            if (k == 0) break;
+            if (k == 1) {
+                while (taken[free]) ++free;
+                taken[free] = true;
+                seeds[b] = -(free + 1);
+                continue;
+            }
+            if (slots.length < k) slots = new int[k];
+            for (int seed = 1; ; seed++) {
+                if (place(grouped, from, k, seed, taken, slots)) {
+                    for (int i = 0; i < k; i++) taken[slots[i]] = true;
+                    seeds[b] = seed;
+                    break;
+                }
+            }
+        }
+    }
+
+    /* Whether a seed sends the codes of a bucket to distinct free slots, which are left in slots. */
+    private boolean place(int[] grouped, int from, int k, int seed, boolean[] taken, int[] slots) {
+        for (int i = 0; i < k; i++) {
+            int s = slot(grouped[from + i], seed);
+            if (taken[s]) return false;
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == s) return false;
+            }
+            slots[i] = s;
+        }
+        return true;
+    }
+
+    private static int bucket(int code, int buckets) {
+        return (mix(code) & Integer.MAX_VALUE) % buckets;
+    }
+
+    private int slot(int code, int seed) {
+        return (mix(code ^ seed * GOLDEN) & Integer.MAX_VALUE) % m;
+    }
+
+    /**
+     * Returns the slot of a code, or -1 if there are no codes.
+    **/
+    int slot(int code) {
+        if (m == 0) return -1;
+        int seed = seeds[bucket(code, seeds.length)];
+        return seed < 0 ? -seed - 1 : slot(code, seed);
+    }
+
+    /**
+     * Returns the number of slots, being the number of codes.
+    **/
+    int size() {
+        return m;
+    }
+
+    /* The finalizer of MurmurHash3, spreading every bit of the input over the output. */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
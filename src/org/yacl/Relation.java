@@ -2,6 +2,8 @@ package org.yacl;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 
 /**
@@ -82,6 +84,37 @@ public interface Relation<T1, T2> extends Set<Maplet<T1, T2>> {
      **/
     public boolean add(T1 t1, T2 t2);
 
+    /**
+     * Determines whether this relation relates x to y, without creating a maplet
+     * to look up.
+     * @param x	the x-value of the pair
+     * @param y	the y-value of the pair
+     * @return <code>true</code> if the maplet (x,y) is in this relation
+    **/
+    public boolean contains(T1 x, T2 y);
+
+    /**
+     * Performs an action for each pair of this relation, passing x and y rather
+     * than a maplet.
+     * @param action	the action to perform on each x and y
+    **/
+    public void forEach(BiConsumer<? super T1, ? super T2> action);
+
+    /**
+     * Performs an action for each y related to a given x, without building the
+     * image.
+     * @param x	the object whose image to visit
+     * @param action	the action to perform on each y
+    **/
+    public void forEachImage(T1 x, Consumer<? super T2> action);
+
+    /**
+     * Returns a cursor over the pairs of this relation, which reads x and y
+     * without creating a maplet for each pair.
+     * @return a cursor positioned before the first pair
+    **/
+    public Cursor<T1, T2> cursor();
+
     /**
      * Constructs the union of a given set with this relation.
      * The members of <code>R.union(S)</code> are those objects which are members of
@@ -157,6 +190,35 @@ public interface Relation<T1, T2> extends Set<Maplet<T1, T2>> {
      * 
     **/
     public Relation<T1, T2> rangeAntiRestriction (Set<T2> t);
+
+
+    /**
+     * Returns a relation containing those maplets of this relation whose x appears
+     * in one given set and whose y appears in another, applying both restrictions
+     * at once. Either set may be <code>null</code>, meaning no restriction on that side.<p>
+     * Example:<p>
+     * if r = { (a,b), (a,c), (b,d) }, s = {a} and t = {c,d}<br>
+     * then r.restriction(s,t) = { (a,c) }
+     * @param s	the set of objects with which to restrict the domain, or <code>null</code>
+     * @param t	the set of objects with which to restrict the range, or <code>null</code>
+     * @return <code>r.domainRestriction(s).rangeRestriction(t)</code>
+    **/
+    public Relation<T1, T2> restriction (Set<T1> s, Set<T2> t);
+
+
+    /**
+     * Returns a relation containing those maplets of this relation whose x does not
+     * appear in one given set and whose y does not appear in another, applying both
+     * anti-restrictions at once. Either set may be <code>null</code>, meaning no
+     * anti-restriction on that side.<p>
+     * Example:<p>
+     * if r = { (a,b), (a,c), (b,d) }, s = {b} and t = {c}<br>
+     * then r.antiRestriction(s,t) = { (a,b) }
+     * @param s	the set of objects to remove from the domain, or <code>null</code>
+     * @param t	the set of objects to remove from the range, or <code>null</code>
+     * @return <code>r.domainAntiRestriction(s).rangeAntiRestriction(t)</code>
+    **/
+    public Relation<T1, T2> antiRestriction (Set<T1> s, Set<T2> t);
     
 
     /**
@@ -199,6 +261,68 @@ public interface Relation<T1, T2> extends Set<Maplet<T1, T2>> {
     **/
     public Relation<T1, T2> override (Relation<T1, T2> r);
 
+
+    /**
+     * Adds the maplets of a given set to this relation, in place. This relation
+     * becomes the union of itself and <code>s</code>.
+     * @param s	the maplets to add
+     * @return this relation
+     * @see #union(Set)
+    **/
+    public Relation<T1, T2> unionInPlace (Set<Maplet<T1, T2>> s);
+
+
+    /**
+     * Overrides this relation with a given relation, in place. This relation becomes
+     * <code>this.override(r)</code>, at a cost proportional to the size of <code>r</code>
+     * rather than of this relation.<p>
+     * Example:<p>
+     * if q = { (a,b), (a,c), (b,d) } and r = { (a,d), (c,e) }<br>
+     * then after q.overrideInPlace(r), q = { (a,d), (b,d), (c,e) }
+     * @param r	the relation to override this relation
+     * @return this relation
+     * @throws IllegalArgumentException if this relation is a function and
+     * <code>r</code> is not
+     * @see #override(Relation)
+    **/
+    public Relation<T1, T2> overrideInPlace (Relation<T1, T2> r);
+
+
+    /**
+     * Restricts the domain of this relation to a given set, in place.
+     * @param s	the set of objects with which to restrict the domain of this relation
+     * @return this relation
+     * @see #domainRestriction(Set)
+    **/
+    public Relation<T1, T2> domainRestrictionInPlace (Set<T1> s);
+
+
+    /**
+     * Removes the objects of a given set from the domain of this relation, in place.
+     * @param s	the set of objects to remove from the domain of this relation
+     * @return this relation
+     * @see #domainAntiRestriction(Set)
+    **/
+    public Relation<T1, T2> domainAntiRestrictionInPlace (Set<T1> s);
+
+
+    /**
+     * Restricts the range of this relation to a given set, in place.
+     * @param t	the set of objects with which to restrict the range of this relation
+     * @return this relation
+     * @see #rangeRestriction(Set)
+    **/
+    public Relation<T1, T2> rangeRestrictionInPlace (Set<T2> t);
+
+
+    /**
+     * Removes the objects of a given set from the range of this relation, in place.
+     * @param t	the set of objects to remove from the range of this relation
+     * @return this relation
+     * @see #rangeAntiRestriction(Set)
+    **/
+    public Relation<T1, T2> rangeAntiRestrictionInPlace (Set<T2> t);
+
     
     /**
      * Returns the transitive closure of this relation.<p>
@@ -209,12 +333,136 @@ public interface Relation<T1, T2> extends Set<Maplet<T1, T2>> {
      * if r = { (a,b), (a,c), (b,d), (d,e) }<br>
      * then r.transitiveClosure() = { (a,b), (a,d), (a,e), (a,c), (b,d), (b,e), (d,e) }<p>
      *
-     * If a relation Relation.transitiveClosure(r).intersect(Relation.identity(r)) is
-     * not empty, then the transitive closure contains one or more cycles.<p>     
+     * To test a relation for cycles use {@link #isAcyclic()}, which does not
+     * construct the closure.<p>
      * @return a relation being the transitive closure of this relation
     **/
     public Relation<T1, T2> transitiveClosure ();
 
+
+    /**
+     * Returns the reflexive transitive closure of this relation, R*, being its
+     * transitive closure together with (x,x) for every x in its domain or range.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,c) }<br>
+     * then r.reflexiveTransitiveClosure() = { (a,a), (b,b), (c,c), (a,b), (a,c), (b,c) }
+     * @return a relation being the reflexive transitive closure of this relation
+    **/
+    public Relation<T1, T2> reflexiveTransitiveClosure ();
+
+
+    /**
+     * Returns the equivalence closure of this relation: the smallest equivalence
+     * relation containing it, relating two objects if a path of maplets taken in
+     * either direction joins them. The result holds the classes of the
+     * equivalence rather than its pairs, which are listed only if it is iterated.<p>
+     * Example:<p>
+     * if r = { (a,b), (c,b), (d,e) }<br>
+     * then r.equivalenceClosure().classes() = { {a,b,c}, {d,e} }
+     * @return the equivalence closure of this relation
+    **/
+    public EquivalenceRel<T1, T2> equivalenceClosure ();
+
+
+    /**
+     * Returns this relation composed with itself a given number of times, R<sup>k</sup>,
+     * computed by repeated squaring so that only about log<sub>2</sub> k compositions
+     * are made. R<sup>0</sup> is the identity over the domain and range of R.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,c), (c,d) }<br>
+     * then r.power(2) = { (a,c), (b,d) }
+     * @param k	the number of times to compose this relation
+     * @return a relation relating x to z if z is reached from x by exactly k maplets
+     * @throws IllegalArgumentException if <code>k</code> is negative
+    **/
+    public Relation<T1, T2> power (int k);
+
+
+    /**
+     * Determines whether the pair (a,b) is in the transitive closure of this relation,
+     * without constructing the closure.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,c), (c,d) }<br>
+     * then r.reaches(a,d) is <code>true</code> and r.reaches(d,a) is <code>false</code>
+     * @param a	the object x from which to start
+     * @param b	the object y to be reached
+     * @return <code>true</code> if <code>b</code> can be reached from <code>a</code> by following
+     * one or more maplets of this relation
+    **/
+    public boolean reaches (T1 a, T2 b);
+
+
+    /**
+     * Returns the set of objects that can be reached from a given object by following
+     * one or more maplets of this relation. This is the image of {a} through the
+     * transitive closure, computed without constructing the closure.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,c), (d,e) }<br>
+     * then r.reachableFrom(a) = {b,c}
+     * @param a	the object from which to start
+     * @return the set of objects reachable from <code>a</code>
+    **/
+    public Set<T2> reachableFrom (T1 a);
+
+
+    /**
+     * Returns the set of objects from which a given object can be reached by following
+     * one or more maplets of this relation. This is the image of {b} through the inverse
+     * of the transitive closure, computed without constructing the closure.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,c), (d,e) }<br>
+     * then r.reachingTo(c) = {a,b}
+     * @param b	the object to be reached
+     * @return the set of objects from which <code>b</code> is reachable
+    **/
+    public Set<T1> reachingTo (T2 b);
+
+
+    /**
+     * Determines whether this relation, viewed as a directed graph on the union
+     * of its domain and range, contains no cycles. A maplet (x,x) is a cycle.
+     * @return <code>true</code> if no object can reach itself through this relation
+    **/
+    public boolean isAcyclic ();
+
+
+    /**
+     * Returns the strongly connected components of this relation, viewed as a
+     * directed graph on the union of its domain and range. Two objects are in the
+     * same component if each can be reached from the other; every object of the
+     * domain and range appears in exactly one component.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,a), (b,c) }<br>
+     * then r.stronglyConnectedComponents() = { {a,b}, {c} }
+     * @return the set of components of this relation
+    **/
+    public Set<Set<T1>> stronglyConnectedComponents ();
+
+
+    /**
+     * Returns the objects of the domain and range of this relation ordered so that
+     * x precedes y whenever (x,y) is in this relation.<p>
+     * Example:<p>
+     * if r = { (a,b), (c,b), (b,d) }<br>
+     * then r.topologicalOrder() is either [a,c,b,d] or [c,a,b,d]
+     * @return a topological ordering of this relation
+     * @throws IllegalStateException if this relation contains a cycle
+    **/
+    public java.util.List<T1> topologicalOrder ();
+
+
+    /**
+     * Returns the condensation of this relation: the acyclic relation between its
+     * strongly connected components that relates component C to component D whenever
+     * this relation relates some member of C to some member of D, and C is not D.
+     * Components with no maplets to or from other components do not appear.<p>
+     * Example:<p>
+     * if r = { (a,b), (b,a), (b,c) }<br>
+     * then r.condensation() = { ({a,b},{c}) }
+     * @return the condensation of this relation
+    **/
+    public Relation<Set<T1>, Set<T1>> condensation ();
+
     
     /**
      * Returns a set containing the range of a domain restriction on this relation,
@@ -247,4 +495,58 @@ public interface Relation<T1, T2> extends Set<Maplet<T1, T2>> {
     **/
     public boolean isReflexive ();
 
+    /**
+     * @return <code>true</code> if y is related to x whenever x is related to y
+    **/
+    public boolean isSymmetric ();
+
+    /**
+     * @return <code>true</code> if no two distinct objects are related to each
+     * other in both directions
+    **/
+    public boolean isAntisymmetric ();
+
+    /**
+     * @return <code>true</code> if x is related to z whenever x is related to y
+     * and y is related to z
+    **/
+    public boolean isTransitive ();
+
+    /**
+     * @return <code>true</code> if this relation is reflexive, symmetric and transitive
+    **/
+    public boolean isEquivalence ();
+
+    /**
+     * @param s	the set the domain must cover
+     * @return <code>true</code> if every member of <code>s</code> is related to
+     * at least one object by this relation
+    **/
+    public boolean isTotal (Set<T1> s);
+
+    /**
+     * Returns cardinality statistics of this relation: the sizes of its domain
+     * and range and histograms of its fan-out and fan-in.
+     * @return the statistics of this relation as it is now
+    **/
+    public Statistics statistics ();
+
+    /**
+     * Returns a view of this relation as a map from each x to the set of y it
+     * relates to. The view is backed by this relation: the sets are live, changes
+     * through the view write through, and nothing is copied.
+     * @return a multimap view of this relation
+    **/
+    public java.util.Map<T1, java.util.Set<T2>> asMultimap ();
+
+    /**
+     * Returns an immutable copy of this relation laid out for reading: the domain
+     * is indexed by a minimal perfect hash and the images are held in contiguous
+     * arrays, with no object per maplet. Later changes to this relation are not
+     * seen by the copy.
+     * @return a frozen copy of this relation
+     * @see FrozenRel
+    **/
+    public Relation<T1, T2> freeze ();
+
 }
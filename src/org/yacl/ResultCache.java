@@ -0,0 +1,91 @@
+package org.yacl;
+
+import java.util.HashMap;
+
+
+/**
+ The results of operators cached by a relation, each stamped with the
+ modification count of the relation when it was computed. A result is served
+ only while the relation's count still matches its stamp, so any mutation the
+ relation does not bring its results up to date with makes them stale without
+ further bookkeeping.<p>
+
+ The cache counts the lookups it answered and those it did not, so that its
+ usefulness for a workload can be measured.
+
+ @author Brad Long
+**/
+public class ResultCache {
+
+    private static final class Entry {
+        final Object result;
+        final long version;
+
+        Entry(Object result, long version) {
+            this.result = result;
+            this.version = version;
+        }
+    }
+
+    private final HashMap<String, Entry> results = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * Returns the result of an operation computed at a given modification count,
+     * or <code>null</code>, counting a hit or a miss.
+    **/
+    Object get(String operation, long version) {
+        Object result = current(operation, version);
+        if (result == null) ++misses; else ++hits;
+        return result;
+    }
+
+    /**
+     * Returns the result of an operation computed at a given modification count,
+     * or <code>null</code>, without counting the lookup.
+    **/
+    Object current(String operation, long version) {
+        Entry e = results.get(operation);
+        return e != null && e.version == version ? e.result : null;
+    }
+
+    void put(String operation, Object result, long version) {
+        results.put(operation, new Entry(result, version));
+    }
+
+    /**
+     * Drops every cached result.
+    **/
+    public void clear() {
+        results.clear();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+    **/
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to be computed.
+    **/
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache, or 0 if there
+     * have been none.
+    **/
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+}
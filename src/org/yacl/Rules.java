@@ -0,0 +1,307 @@
+package org.yacl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ A set of Datalog-style rules deriving binary relations from relations and sets.
+ Each rule has a head naming the derived relation and the variables it relates,
+ and a body of literals that must all hold: relations and sets the variables must
+ belong to, derived relations (possibly the one being defined), and negated
+ literals that must not hold.<p>
+
+ Example (ancestors, and access inherited down a hierarchy unless revoked):<br>
+ <pre>
+   Rules rules = new Rules();
+   rules.rule("ancestor", "x", "y").when(parent, "x", "y");
+   rules.rule("ancestor", "x", "z").when(parent, "x", "y").when("ancestor", "y", "z");
+   rules.rule("access", "u", "r").when(grant, "u", "r");
+   rules.rule("access", "u", "r").when(grant, "g", "r").when("ancestor", "g", "u").unless(revoked, "u");
+   Function&lt;String, Relation&lt;Object, Object&gt;&gt; derived = rules.evaluate();
+ </pre>
+
+ Evaluation is by semi-naive fixpoint iteration: after the first round, each rule
+ is re-evaluated only against the maplets derived in the previous round, so every
+ derivation is made once rather than once per round. Derived relations are
+ evaluated in strata, so that a relation used under negation is complete before
+ any rule negating it is run; <code>unless(s, x)</code> removes bindings whose x
+ is in <code>s</code>, the rule-level counterpart of <code>domainAntiRestriction</code>.<p>
+
+ Each rule body is evaluated as a {@link Join}. The variables are ordered per
+ evaluation starting from the literal reading the newest maplets, then following
+ shared variables, which selects the domain or range index of each relation.
+
+ @author Brad Long
+**/
+public class Rules {
+
+    private static final class Literal {
+        final Object source;    // a Relation, a Set, or the name of a derived relation
+        final String[] vars;
+        final boolean negated;
+
+        Literal(Object source, String[] vars, boolean negated) {
+            this.source = source;
+            this.vars = vars;
+            this.negated = negated;
+        }
+
+        boolean derived() {
+            return source instanceof String;
+        }
+    }
+
+    /**
+     A rule: a head and the body of literals that derives it. Rules are created by
+     {@link Rules#rule} and their bodies built by chaining <code>when</code> and
+     <code>unless</code>.
+    **/
+    public final class Rule {
+
+        private final String head;
+        private final String x;
+        private final String y;
+        private final List<Literal> body = new ArrayList<>();
+
+        private Rule(String head, String x, String y) {
+            this.head = head;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Requires the pair of variables to be related by a relation.
+        **/
+        public Rule when(Relation<?, ?> r, String x, String y) {
+            body.add(new Literal(r, new String[] { x, y }, false));
+            return this;
+        }
+
+        /**
+         * Requires the pair of variables to be related by a derived relation.
+        **/
+        public Rule when(String derived, String x, String y) {
+            body.add(new Literal(derived, new String[] { x, y }, false));
+            return this;
+        }
+
+        /**
+         * Requires a variable to be a member of a set.
+        **/
+        public Rule when(Set<?> s, String x) {
+            body.add(new Literal(s, new String[] { x }, false));
+            return this;
+        }
+
+        /**
+         * Requires the pair of variables not to be related by a relation.
+        **/
+        public Rule unless(Relation<?, ?> r, String x, String y) {
+            body.add(new Literal(r, new String[] { x, y }, true));
+            return this;
+        }
+
+        /**
+         * Requires the pair of variables not to be related by a derived relation,
+         * which must not depend on the head of this rule.
+        **/
+        public Rule unless(String derived, String x, String y) {
+            body.add(new Literal(derived, new String[] { x, y }, true));
+            return this;
+        }
+
+        /**
+         * Requires a variable not to be a member of a set.
+        **/
+        public Rule unless(Set<?> s, String x) {
+            body.add(new Literal(s, new String[] { x }, true));
+            return this;
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Adds a rule deriving maplets (x,y) of the named relation, and returns it so
+     * that its body can be given.
+     * @param head	the name of the derived relation
+     * @param x	the variable supplying x in (x,y)
+     * @param y	the variable supplying y in (x,y)
+     * @return the new rule
+    **/
+    public Rule rule(String head, String x, String y) {
+        Rule r = new Rule(head, x, y);
+        rules.add(r);
+        return r;
+    }
+
+    /**
+     * Evaluates these rules to a fixpoint.
+     * @return a function from the name of each derived relation to its maplets
+     * @throws IllegalStateException if a variable of a rule's head or of a negated
+     * literal does not appear in a positive literal, or if a derived relation
+     * depends negatively on itself
+    **/
+    public Function<String, Relation<Object, Object>> evaluate() {
+        for (Rule r : rules) checkSafe(r);
+        Function<String, Relation<Object, Object>> derived = new HashFun<>();
+        Map<String, Integer> strata = stratify();
+        int top = 0;
+        for (int s : strata.values()) top = Math.max(top, s);
+        for (String name : strata.keySet()) derived.put(name, new HashRel<>());
+        for (int s = 0; s <= top; ++s) {
+            List<Rule> stratum = new ArrayList<>();
+            for (Rule r : rules) {
+                if (strata.get(r.head) == s) stratum.add(r);
+            }
+            evaluate(stratum, s, strata, derived);
+        }
+        return derived;
+    }
+
+    private void checkSafe(Rule r) {
+        java.util.Set<String> bound = new java.util.HashSet<>();
+        for (Literal l : r.body) {
+            if (!l.negated) bound.addAll(Arrays.asList(l.vars));
+        }
+        List<String> used = new ArrayList<>(Arrays.asList(r.x, r.y));
+        for (Literal l : r.body) used.addAll(Arrays.asList(l.vars));
+        for (String v : used) {
+            if (!bound.contains(v)) throw new IllegalStateException("Variable " + v + " of a rule for " + r.head + " is not bound by a positive literal");
+        }
+    }
+
+    /*
+     * Assigns each derived relation the lowest stratum at least that of every relation
+     * it uses, and greater than that of every relation it negates.
+     */
+    private Map<String, Integer> stratify() {
+        Map<String, Integer> strata = new java.util.LinkedHashMap<>();
+        for (Rule r : rules) {
+            strata.put(r.head, 0);
+            for (Literal l : r.body) {
+                if (l.derived()) strata.putIfAbsent((String) l.source, 0);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule r : rules) {
+                for (Literal l : r.body) {
+                    if (!l.derived()) continue;
+                    int need = strata.get((String) l.source) + (l.negated ? 1 : 0);
+                    if (strata.get(r.head) < need) {
+                        if (need >= strata.size()) throw new IllegalStateException("Rules for " + r.head + " are not stratifiable");
+                        strata.put(r.head, need);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return strata;
+    }
+
+    private void evaluate(List<Rule> stratum, int s, Map<String, Integer> strata,
+                          Function<String, Relation<Object, Object>> derived) {
+        Map<String, Relation<Object, Object>> delta = new java.util.HashMap<>();
+        for (Rule r : stratum) {
+            merge(r, fire(r, -1, null, derived), derived, delta);
+        }
+        while (!delta.isEmpty()) {
+            Map<String, Relation<Object, Object>> last = delta;
+            delta = new java.util.HashMap<>();
+            for (Rule r : stratum) {
+                for (int i = 0; i < r.body.size(); ++i) {
+                    Literal l = r.body.get(i);
+                    if (l.negated || !l.derived() || strata.get((String) l.source) != s) continue;
+                    Relation<Object, Object> changes = last.get((String) l.source);
+                    if (changes != null) merge(r, fire(r, i, changes, derived), derived, delta);
+                }
+            }
+        }
+    }
+
+    /*
+     * Adds derived maplets not already known both to the head relation and to its delta.
+     */
+    private static void merge(Rule r, Relation<Object, Object> found,
+                              Function<String, Relation<Object, Object>> derived,
+                              Map<String, Relation<Object, Object>> delta) {
+        Relation<Object, Object> total = derived.getValue(r.head);
+        for (Maplet<Object, Object> m : found) {
+            if (total.add(m)) {
+                Relation<Object, Object> d = delta.get(r.head);
+                if (d == null) delta.put(r.head, d = new HashRel<>());
+                d.add(m);
+            }
+        }
+    }
+
+    /*
+     * Evaluates the body of a rule, reading the literal at position changed from the
+     * given delta rather than from its derived relation.
+     */
+    private static Relation<Object, Object> fire(Rule r, int changed, Relation<Object, Object> delta,
+                                                 Function<String, Relation<Object, Object>> derived) {
+        String[] order = order(r, changed);
+        Join join = new Join(order);
+        for (int i = 0; i < r.body.size(); ++i) {
+            Literal l = r.body.get(i);
+            if (l.negated) continue;
+            Object source = i == changed ? delta : l.derived() ? derived.getValue((String) l.source) : l.source;
+            if (l.vars.length == 1) join.atom((Set<?>) source, l.vars[0]);
+            else join.atom((Relation<?, ?>) source, l.vars[0], l.vars[1]);
+        }
+        List<String> vars = Arrays.asList(order);
+        Relation<Object, Object> result = new HashRel<>();
+        int hx = vars.indexOf(r.x), hy = vars.indexOf(r.y);
+        next:
+        for (Tuple t : join.evaluate()) {
+            for (Literal l : r.body) {
+                if (!l.negated) continue;
+                Object source = l.derived() ? derived.getValue((String) l.source) : l.source;
+                Object a = t.get(vars.indexOf(l.vars[0]));
+                if (l.vars.length == 1) {
+                    if (((Set<?>) source).contains(a)) continue next;
+                } else if (source != null) {
+                    Object b = t.get(vars.indexOf(l.vars[1]));
+                    if (((Relation<?, ?>) source).contains(new Maplet<>(a, b))) continue next;
+                }
+            }
+            result.add(t.get(hx), t.get(hy));
+        }
+        return result;
+    }
+
+    /*
+     * Orders the variables of a rule for joining: those of the changed literal first,
+     * then those of literals sharing an already ordered variable.
+     */
+    private static String[] order(Rule r, int changed) {
+        LinkedHashSet<String> order = new LinkedHashSet<>();
+        if (changed >= 0) order.addAll(Arrays.asList(r.body.get(changed).vars));
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (Literal l : r.body) {
+                if (l.negated) continue;
+                boolean connected = order.isEmpty();
+                for (String v : l.vars) connected |= order.contains(v);
+                if (connected) grew |= order.addAll(Arrays.asList(l.vars));
+            }
+            if (!grew) {
+                for (Literal l : r.body) {
+                    if (!l.negated && !order.containsAll(Arrays.asList(l.vars))) {
+                        grew = order.addAll(Arrays.asList(l.vars));
+                        break;
+                    }
+                }
+            }
+        }
+        return order.toArray(new String[order.size()]);
+    }
+}
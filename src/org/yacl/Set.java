@@ -1,5 +1,8 @@
 package org.yacl;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  A collection that contains no duplicate elements. As implied by
  its name, this class models the mathematical <i>set</i> abstraction.<p>
@@ -44,6 +47,40 @@ public interface Set<T> extends java.util.Set<T> {
      * @see java.util.Set#retainAll(Collection c)
     **/   
     public Set<T> intersection (Set<T> t);
+
+    /**
+     * Constructs the union of this set with any number of sets.
+     *
+     * @param sets        the sets to union with this set
+     * @return  a set being the union of <code>this</code> and each of <code>sets</code>
+    **/
+    public Set<T> unionAll (Collection<? extends Set<T>> sets);
+
+    /**
+     * Returns the intersection of this set with any number of sets.
+     *
+     * @param sets        the sets with which to intersect
+     * @return  a set being the intersection of <code>this</code> and each of <code>sets</code>
+    **/
+    public Set<T> intersectAll (Collection<? extends Set<T>> sets);
+
+    /**
+     * Constructs the union of the given sets, as <code>first.unionAll(rest)</code>.
+    **/
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> Set<T> unionOf (Set<T> first, Set<T>... rest) {
+        return first.unionAll(List.of(rest));
+    }
+
+    /**
+     * Returns the intersection of the given sets, as <code>first.intersectAll(rest)</code>.
+    **/
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> Set<T> intersectionOf (Set<T> first, Set<T>... rest) {
+        return first.intersectAll(List.of(rest));
+    }
     
 
     /**
@@ -0,0 +1,131 @@
+package org.yacl;
+
+import java.util.Arrays;
+
+
+/**
+ Cardinality statistics of a relation: its size, the sizes of its domain and
+ range, and histograms of fan-out (the number of y each x relates to) and
+ fan-in (the number of x related to each y). Operators use them to choose a
+ strategy, and callers can use them to plan joins.<p>
+
+ Histograms are bucketed by powers of two: bucket <i>i</i> counts the values
+ whose degree is at least 2<sup><i>i</i></sup> and less than
+ 2<sup><i>i</i>+1</sup>.<p>
+
+ A <code>HashRel</code> keeps its counts and histograms up to date in its
+ indexes, so its statistics are exact and cost nothing once the indexes are
+ built. Statistics combined from several parts, as for a
+ <code>PartitionedRel</code>, may be estimates; see {@link #isExact()}.
+
+ @author Brad Long
+**/
+public final class Statistics {
+
+    private final long size;
+    private final long domainSize;
+    private final long rangeSize;
+    private final boolean exact;
+    private final long[] fanOut;
+    private final long[] fanIn;
+
+    Statistics(long size, long domainSize, long rangeSize, boolean exact, long[] fanOut, long[] fanIn) {
+        this.size = size;
+        this.domainSize = domainSize;
+        this.rangeSize = rangeSize;
+        this.exact = exact;
+        this.fanOut = fanOut;
+        this.fanIn = fanIn;
+    }
+
+    /**
+     * Returns the number of maplets.
+    **/
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct x.
+    **/
+    public long domainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Returns the number of distinct y.
+    **/
+    public long rangeSize() {
+        return rangeSize;
+    }
+
+    /**
+     * Determines whether these statistics are exact. If not, the range size is a
+     * HyperLogLog estimate and the fan-in histogram counts a y once for each part
+     * relating to it.
+    **/
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns the histogram of the number of y each x relates to.
+    **/
+    public long[] fanOut() {
+        return fanOut.clone();
+    }
+
+    /**
+     * Returns the histogram of the number of x related to each y.
+    **/
+    public long[] fanIn() {
+        return fanIn.clone();
+    }
+
+    /**
+     * Returns the mean number of y each x relates to.
+    **/
+    public double meanFanOut() {
+        return domainSize == 0 ? 0 : (double) size / domainSize;
+    }
+
+    /**
+     * Returns the mean number of x related to each y.
+    **/
+    public double meanFanIn() {
+        return rangeSize == 0 ? 0 : (double) size / rangeSize;
+    }
+
+    /**
+     * Returns an upper bound on the number of y any x relates to.
+    **/
+    public long maxFanOut() {
+        return bound(fanOut);
+    }
+
+    /**
+     * Returns an upper bound on the number of x related to any y.
+    **/
+    public long maxFanIn() {
+        return bound(fanIn);
+    }
+
+    private static long bound(long[] histogram) {
+        for (int i = histogram.length - 1; i >= 0; i--) {
+            if (histogram[i] > 0) return (1L << (i + 1)) - 1;
+        }
+        return 0;
+    }
+
+    static long[] sum(long[] a, long[] b) {
+        long[] s = a.clone();
+        for (int i = 0; i < s.length; i++) s[i] += b[i];
+        return s;
+    }
+
+    public String toString() {
+        return "size=" + size + ", domain=" + domainSize + ", range=" + rangeSize
+            + (exact ? "" : " (estimated)")
+            + ", fanOut=" + Arrays.toString(fanOut) + ", fanIn=" + Arrays.toString(fanIn);
+    }
+}
@@ -0,0 +1,106 @@
+package org.yacl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ Tarjan's strongly connected components algorithm over the domain index of a
+ relation, written iteratively so that long chains do not overflow the stack.
+ Runs in time linear in the number of maplets.<p>
+
+ Components are produced in reverse topological order: a component is emitted
+ only after every component reachable from it.
+
+ @author Brad Long
+**/
+final class Tarjan {
+
+    private static final class Node {
+        final int number;
+        int low;
+        boolean onStack = true;
+
+        Node(int number) {
+            this.number = number;
+            this.low = number;
+        }
+    }
+
+    private static final class Frame {
+        final Object v;
+        final Node node;
+        final Iterator<Object> successors;
+
+        Frame(Object v, Node node, Iterator<Object> successors) {
+            this.v = v;
+            this.node = node;
+            this.successors = successors;
+        }
+    }
+
+    private final Index<Object, Object> edges;
+    private final HashMap<Object, Node> nodes = new HashMap<>();
+    private final ArrayDeque<Object> stack = new ArrayDeque<>();
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private final List<List<Object>> components = new ArrayList<>();
+    private int counter = 0;
+
+    private Tarjan(Index<Object, Object> edges) {
+        this.edges = edges;
+    }
+
+    /**
+     * Returns the strongly connected components of a relation, sinks first.
+     * @param r	the relation, which should relate a set to itself
+    **/
+    static List<List<Object>> components(HashRel<?, ?> r) {
+        Tarjan t = new Tarjan((Index<Object, Object>) (Index<?, ?>) r.domainIndex());
+        for (Object v : r.domainIndex().keySet()) t.run(v);
+        for (Object v : r.rangeIndex().keySet()) t.run(v);
+        return t.components;
+    }
+
+    private void run(Object root) {
+        if (nodes.containsKey(root)) return;
+        push(root);
+        while (!frames.isEmpty()) {
+            Frame f = frames.peek();
+            if (f.successors.hasNext()) {
+                Object w = f.successors.next();
+                Node n = nodes.get(w);
+                if (n == null) {
+                    push(w);
+                } else if (n.onStack && n.number < f.node.low) {
+                    f.node.low = n.number;
+                }
+            } else {
+                frames.pop();
+                if (f.node.low == f.node.number) {
+                    List<Object> component = new ArrayList<>();
+                    Object w;
+                    do {
+                        w = stack.pop();
+                        nodes.get(w).onStack = false;
+                        component.add(w);
+                    } while (w != f.v);
+                    components.add(component);
+                }
+                if (!frames.isEmpty()) {
+                    Node parent = frames.peek().node;
+                    if (f.node.low < parent.low) parent.low = f.node.low;
+                }
+            }
+        }
+    }
+
+    private void push(Object v) {
+        Node n = new Node(counter++);
+        nodes.put(v, n);
+        stack.push(v);
+        frames.push(new Frame(v, n, edges.get(v).iterator()));
+    }
+}
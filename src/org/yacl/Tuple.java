@@ -0,0 +1,55 @@
+package org.yacl;
+
+import java.util.Arrays;
+
+/**
+An ordered n-tuple (a1, ..., an) of objects, the n-ary counterpart of a
+<code>Maplet</code>. A <code>TupleRelation</code> of arity n is a set of
+n-tuples.
+
+@author Brad Long
+**/
+public class Tuple {
+
+    protected Object[] values;
+
+    protected Tuple () {
+        super();
+    }
+
+    public Tuple (Object... values) {
+        this.values = values.clone();
+    }
+
+    /**
+     * Returns the number of objects in this tuple.
+    **/
+    public int arity() {
+        return values.length;
+    }
+
+    /**
+     * Returns the object at a given position, starting from 0.
+    **/
+    public Object get(int i) {
+        return values[i];
+    }
+
+    public boolean equals (Object o) {
+        if (!(o instanceof Tuple)) return false;
+        return Arrays.equals(values, ((Tuple)o).values);
+    }
+
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i=0; i<values.length; ++i) {
+            if (i > 0) sb.append(", ");
+            sb.append(values[i]);
+        }
+        return sb.append(')').toString();
+    }
+}
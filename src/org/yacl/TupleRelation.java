@@ -0,0 +1,58 @@
+package org.yacl;
+
+
+/**
+  An n-ary relation: a set of tuples (a1, ..., an) all having the same arity n.
+  A binary <code>Relation</code> is the special case n = 2 written with maplets.<p>
+
+  Several tuple relations and binary relations can be joined at once, without
+  intermediate results, with a {@link Join}.
+
+  @author Brad Long
+**/
+public interface TupleRelation extends Set<Tuple> {
+
+    /**
+     * Returns the number of objects in each tuple of this relation.
+    **/
+    public int arity ();
+
+    /**
+     * Adds a tuple to this relation.
+     *
+     * @param t        the tuple to be added
+     * @return <code>true</code> if the tuple was added to this relation
+     * @throws IllegalArgumentException if the tuple does not have the arity of this relation
+    **/
+    public boolean add (Tuple t);
+
+    /**
+     * Adds a tuple made of the given objects to this relation.
+     *
+     * @param values   the objects of the tuple, in order
+     * @return <code>true</code> if the tuple was added to this relation
+     * @throws IllegalArgumentException if the number of objects is not the arity of this relation
+    **/
+    public boolean add (Object... values);
+
+    /**
+     * Returns the projection of this relation onto the given positions: each tuple
+     * (a1, ..., an) contributes the tuple of its objects at those positions, in the
+     * order given.<p>
+     * Example:<p>
+     * if r = { (a,b,c), (a,d,c) }<br>
+     * then r.project(2,0) = { (c,a) }
+     * @param columns	the positions to keep, starting from 0
+     * @return a relation of arity <code>columns.length</code>
+    **/
+    public TupleRelation project (int... columns);
+
+    /**
+     * Returns the binary relation relating the object at position x of each tuple
+     * to the object at position y.
+     * @param x	the position supplying x in (x,y)
+     * @param y	the position supplying y in (x,y)
+     * @return the projection of this relation onto <code>x</code> and <code>y</code>
+    **/
+    public Relation<Object, Object> toRelation (int x, int y);
+}
@@ -0,0 +1,85 @@
+package org.yacl;
+
+import java.util.Iterator;
+
+
+/**
+ A relation derived from one or more observable relations and kept up to date
+ from their deltas, rather than recomputed when they change. A view can be
+ queried like any other relation, but cannot be modified directly.<p>
+
+ Since a view is itself observable, views can be derived from views. Each delta
+ of an input produces at most one delta of the view. A view stops following its
+ inputs once {@link #detach()} is called.
+
+ @author Brad Long
+**/
+public abstract class View<T1, T2> extends ObservableRel<T1, T2> {
+
+    protected View() {
+        super();
+    }
+
+    /**
+     * Stops this view from following changes to its inputs.
+    **/
+    public abstract void detach();
+
+    /**
+     * Adds a maplet to this view on behalf of its maintenance.
+    **/
+    protected boolean insert(Maplet<T1, T2> m) {
+        return super.add(m);
+    }
+
+    /**
+     * Removes a maplet from this view on behalf of its maintenance.
+    **/
+    protected boolean delete(Maplet<T1, T2> m) {
+        return super.remove(m);
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since views are read only
+    **/
+    public boolean add(Maplet<T1, T2> m) {
+        throw new UnsupportedOperationException("Views are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since views are read only
+    **/
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Views are read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, since views are read only
+    **/
+    public void clear() {
+        throw new UnsupportedOperationException("Views are read only");
+    }
+
+    /**
+     * Returns an iterator over this view that does not support <code>remove</code>.
+    **/
+    public Iterator<Maplet<T1, T2>> iterator() {
+        final Iterator<Maplet<T1, T2>> it = super.iterator();
+        return new Iterator<Maplet<T1, T2>>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+            public Maplet<T1, T2> next() {
+                return it.next();
+            }
+        };
+    }
+
+    static <A, B> Index<A, B> domainIndex(Relation<A, B> r) {
+        return ((HashRel<A, B>) r).domainIndex();
+    }
+
+    static <A, B> Index<B, A> rangeIndex(Relation<A, B> r) {
+        return ((HashRel<A, B>) r).rangeIndex();
+    }
+}
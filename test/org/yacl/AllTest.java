@@ -17,6 +17,17 @@ public class AllTest extends TestCase {
     suite.addTestSuite(SetTest.class);
     suite.addTestSuite(RelationTest.class);
     suite.addTestSuite(FunctionTest.class);
+    suite.addTestSuite(TupleRelationTest.class);
+    suite.addTestSuite(RulesTest.class);
+    suite.addTestSuite(ObservableTest.class);
+    suite.addTestSuite(ViewTest.class);
+    suite.addTestSuite(DelimitedFormatTest.class);
+    suite.addTestSuite(PartitionedRelTest.class);
+    suite.addTestSuite(ArraySetTest.class);
+    suite.addTestSuite(EncodedRelTest.class);
+    suite.addTestSuite(IntSetTest.class);
+    suite.addTestSuite(BitMatrixRelTest.class);
+    suite.addTestSuite(BitKernelsTest.class);
     return suite;
   }
 }
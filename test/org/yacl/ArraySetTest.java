@@ -0,0 +1,92 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Iterator;
+
+public class ArraySetTest extends TestCase {
+
+    public void testPromoteAndDemote() {
+        ArraySet s = new ArraySet();
+        for (int i = 0; i < ArraySet.THRESHOLD; i++) s.add(i);
+        assertNull(s.table());
+        s.add(ArraySet.THRESHOLD);
+        assertNotNull(s.table());
+        assertEquals(ArraySet.THRESHOLD + 1, s.size());
+        assertFalse(s.add(3));
+        for (int i = 0; i <= ArraySet.THRESHOLD / 2; i++) s.remove(i);
+        assertNull(s.table());
+        assertEquals(ArraySet.THRESHOLD / 2, s.size());
+        assertTrue(s.contains(ArraySet.THRESHOLD));
+        assertFalse(s.contains(0));
+    }
+
+    public void testIteratorRemove() {
+        ArraySet s = new ArraySet();
+        s.add("mary");
+        s.add("tom");
+        s.add("harry");
+        for (Iterator it = s.iterator(); it.hasNext();) {
+            if (!it.next().equals("harry")) it.remove();
+        }
+        assertEquals(1, s.size());
+        assertTrue(s.contains("harry"));
+    }
+
+    public void testEquals() {
+        Set s = new HashSet();
+        s.add("mary");
+        s.add("tom");
+        Set t = new ArraySet(s);
+        assertEquals(s, t);
+        assertEquals(t, s);
+        assertEquals(s.hashCode(), t.hashCode());
+    }
+
+    public void testGetInstance() {
+        Set s = new HashSet();
+        s.add("mary");
+        assertTrue(s.union(s) instanceof ArraySet);
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        assertTrue(r.union(r) instanceof ArrayRel);
+        Function f = new HashFun();
+        f.add("tom","jane");
+        Function g = new HashFun();
+        g.add("fred","mary");
+        assertTrue(f.union(g) instanceof ArrayFun);
+    }
+
+    public void testRelation() {
+        Relation r = new ArrayRel();
+        r.add("a","b");
+        r.add("b","c");
+        assertEquals(2, r.size());
+        assertTrue(r.contains(new Maplet("a","b")));
+        assertTrue(r.composition(r).contains(new Maplet("a","c")));
+        assertTrue(r.transitiveClosure().contains(new Maplet("a","c")));
+        for (int i = 0; i < ArraySet.THRESHOLD; i++) r.add(i, i + 1);
+        assertNotNull(((ArrayRel) r).table());
+        assertTrue(r.reaches(0, ArraySet.THRESHOLD));
+        assertEquals(ArraySet.THRESHOLD + 2, r.size());
+        assertTrue(r.domain().contains("a"));
+        assertFalse(r.isFunction() && r.range().contains("a"));
+    }
+
+    public void testFunction() {
+        Function f = new ArrayFun();
+        f.add("tom","jane");
+        try {
+            f.add("tom","mary");
+            fail();
+        } catch (RuntimeException e) {
+        }
+        assertEquals("jane", f.put("tom","mary"));
+        assertEquals("mary", f.getValue("tom"));
+        assertEquals(1, f.size());
+        for (int i = 0; i < ArraySet.THRESHOLD; i++) f.put(i, i);
+        assertTrue(f.containsKey(3));
+        assertTrue(f.containsValue("mary"));
+        assertEquals(3, f.put(3, 4));
+        assertEquals(4, f.getValue(3));
+    }
+}
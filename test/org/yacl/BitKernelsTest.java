@@ -0,0 +1,43 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BitKernelsTest extends TestCase {
+
+    public void testVectorMatchesScalar() {
+        BitKernels.Words scalar = BitKernels.SCALAR;
+        BitKernels.Words vector = BitKernels.VECTOR != null ? BitKernels.VECTOR : scalar;
+        Random random = new Random(42);
+        for (int n : new int[] { 0, 1, 3, 4, 7, 8, 9, 15, 16, 17, 63, 64, 65, 1000 }) {
+            long[] a = new long[n + 2], b = new long[n + 2];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = random.nextLong();
+                b[i] = i % 5 == 0 ? -1L : random.nextLong();
+            }
+            long[] expected = new long[n + 2], actual = new long[n + 2];
+            assertEquals(scalar.and(a, b, expected, n), vector.and(a, b, actual, n));
+            assertTrue(Arrays.equals(expected, actual));
+            assertEquals(scalar.or(a, b, expected, n), vector.or(a, b, actual, n));
+            assertTrue(Arrays.equals(expected, actual));
+            assertEquals(scalar.andNot(a, b, expected, n), vector.andNot(a, b, actual, n));
+            assertTrue(Arrays.equals(expected, actual));
+            scalar.orInto(expected, b, n);
+            vector.orInto(actual, b, n);
+            assertTrue(Arrays.equals(expected, actual));
+            assertEquals(scalar.popcount(a, n), vector.popcount(a, n));
+            assertEquals(scalar.andCount(a, b, n), vector.andCount(a, b, n));
+            assertEquals(64 * n, vector.popcount(filled(n), n));
+        }
+        assertEquals(64, scalar.width());
+        boolean wide = BitKernels.VECTOR != null && BitKernels.VECTOR.width() >= 512;
+        assertEquals(wide ? "vector" : "scalar", BitKernels.implementation());
+    }
+
+    private static long[] filled(int n) {
+        long[] a = new long[n];
+        Arrays.fill(a, -1L);
+        return a;
+    }
+}
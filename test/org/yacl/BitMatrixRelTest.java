@@ -0,0 +1,70 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Random;
+
+public class BitMatrixRelTest extends TestCase {
+
+    private void fill(Relation r, Relation h, int n, int edges, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < edges; i++) {
+            Integer x = random.nextInt(n), y = random.nextInt(n);
+            r.add(x, y);
+            h.add(x, y);
+        }
+    }
+
+    public void testAddRemove() {
+        Relation r = new BitMatrixRel();
+        assertTrue(r.add("a","b"));
+        assertFalse(r.add("a","b"));
+        r.add("b","c");
+        r.add("c","a");
+        assertEquals(3, r.size());
+        assertTrue(r.contains(new Maplet("b","c")));
+        assertFalse(r.contains(new Maplet("c","b")));
+        assertFalse(r.contains(new Maplet("x","y")));
+        assertTrue(r.remove(new Maplet("b","c")));
+        assertFalse(r.remove(new Maplet("b","c")));
+        Relation h = new HashRel();
+        h.add("a","b");
+        h.add("c","a");
+        assertEquals(h, r);
+        for (java.util.Iterator i = r.iterator(); i.hasNext(); ) {
+            if (((Maplet) i.next()).x().equals("a")) i.remove();
+        }
+        assertEquals(1, r.size());
+        assertEquals(new HashSet(java.util.Arrays.asList("a")), r.image(new HashSet(java.util.Arrays.asList("c"))));
+    }
+
+    public void testClosure() {
+        for (long seed = 0; seed < 20; seed++) {
+            Relation r = new BitMatrixRel(), h = new HashRel();
+            fill(r, h, 40, (int) (seed * 4), seed);
+            assertEquals(h.transitiveClosure(), new HashRel(r.transitiveClosure()));
+            assertEquals(h.reflexiveTransitiveClosure(), new HashRel(r.reflexiveTransitiveClosure()));
+            assertEquals(h.reaches(1, 2), r.reaches(1, 2));
+        }
+    }
+
+    public void testPower() {
+        Relation r = new BitMatrixRel(), h = new HashRel();
+        fill(r, h, 150, 300, 7);
+        for (int k = 0; k < 6; k++) assertEquals(h.power(k), new HashRel(r.power(k)));
+        assertEquals(h.composition(h), new HashRel(r.composition(r)));
+        try {
+            r.power(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testDenseEncoded() {
+        Dictionary d = new Dictionary();
+        Relation r = new EncodedRel(d), h = new HashRel();
+        fill(r, h, 100, 400, 3);
+        assertEquals(h.transitiveClosure(), new HashRel(r.transitiveClosure()));
+        assertEquals(h.power(3), new HashRel(r.power(3)));
+        assertEquals(h.reflexiveTransitiveClosure(), new HashRel(r.reflexiveTransitiveClosure()));
+    }
+}
@@ -0,0 +1,83 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DelimitedFormatTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        r.add("fred","mary, jane");
+        r.add("tom","kim");
+
+        StringWriter out = new StringWriter();
+        DelimitedFormat.tsv().write(r, out);
+        Relation actual = DelimitedFormat.tsv().read(new StringReader(out.toString()), new HashRel());
+        assertEquals(r, actual);
+    }
+
+    public void testUnwritable() throws Exception {
+        Relation r = new HashRel();
+        r.add("tom","jane\tkim");
+        r.add("tom\r","jane");
+        StringWriter out = new StringWriter();
+        try { DelimitedFormat.tsv().write(r, out); fail("line break"); } catch (IllegalArgumentException e) { assertTrue(true); }
+
+        r = new HashRel();
+        r.add("fred","mary\njane");
+        try { DelimitedFormat.tsv().write(r, new StringWriter()); fail("line break"); } catch (IllegalArgumentException e) { assertTrue(true); }
+
+        r = new HashRel();
+        r.add("fred, jr","mary");
+        try { DelimitedFormat.csv().write(r, new StringWriter()); fail("delimiter"); } catch (IllegalArgumentException e) { assertTrue(true); }
+
+        // a delimiter in y is the rest of the line, so it reads back unchanged
+        r = new HashRel();
+        r.add("fred","mary, jane");
+        out = new StringWriter();
+        DelimitedFormat.csv().write(r, out);
+        assertEquals(r, DelimitedFormat.csv().read(new StringReader(out.toString()), new HashRel()));
+    }
+
+    public void testParsers() throws Exception {
+        DelimitedFormat f = new DelimitedFormat(',', DelimitedFormat.STRING, Integer::valueOf);
+        Function ages = (Function) f.read(new StringReader("tom,30\r\n\nfred,41\n"), new HashFun());
+        assertEquals(2, ages.size());
+        assertEquals(Integer.valueOf(41), ages.getValue("fred"));
+        try { f.read(new StringReader("tom,30\ntom,31\n"), new HashFun()); fail("duplicate key"); } catch (RuntimeException e) { assertTrue(true); }
+        try { f.read(new StringReader("tom 30\n"), new HashRel()); fail("delimiter"); } catch (IllegalArgumentException e) { assertTrue(true); }
+    }
+
+    public void testParallel() throws Exception {
+        Relation r = new HashRel();
+        for (int i = 0; i < 10000; ++i) r.add(i, "v\u00e9" + (i % 97));
+        StringBuilder sb = new StringBuilder();
+        DelimitedFormat f = new DelimitedFormat(',', Integer::valueOf, DelimitedFormat.STRING);
+        f.write(r, sb);
+        Path file = Files.createTempFile("yacl", ".csv");
+        try {
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+            assertEquals(r, f.read(file, new HashRel(), 7));
+            assertEquals(r, f.read(file, new HashRel(), 1));
+            assertEquals(r, f.read(file, new HashRel()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testWriteTo() throws Exception {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        r.add("fred","mary");
+        StringBuilder sb = new StringBuilder();
+        ((HashRel) r).writeTo(sb);
+        assertEquals(r.toString(), sb.toString());
+        assertTrue(sb.toString().contains("tom->jane"));
+        assertEquals("[]", new HashRel().toString());
+    }
+}
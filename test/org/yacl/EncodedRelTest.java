@@ -0,0 +1,109 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Iterator;
+
+public class EncodedRelTest extends TestCase {
+
+    private Relation chain(Dictionary d) {
+        Relation r = new EncodedRel(d);
+        r.add("a","b");
+        r.add("b","c");
+        r.add("c","d");
+        return r;
+    }
+
+    public void testDictionary() {
+        Dictionary d = new Dictionary();
+        assertEquals(0, d.encode("tom"));
+        assertEquals(1, d.encode("jane"));
+        assertEquals(0, d.encode("tom"));
+        assertEquals(-1, d.id("fred"));
+        assertEquals("jane", d.decode(1));
+        assertEquals(2, d.size());
+        try {
+            d.decode(2);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testAddRemove() {
+        Relation r = chain(new Dictionary());
+        assertEquals(3, r.size());
+        assertFalse(r.add("a","b"));
+        assertTrue(r.contains(new Maplet("a","b")));
+        assertFalse(r.contains(new Maplet("a","c")));
+        assertFalse(r.contains(new Maplet("x","y")));
+        assertTrue(r.remove(new Maplet("b","c")));
+        assertFalse(r.remove(new Maplet("b","c")));
+        assertEquals(2, r.size());
+        for (Iterator it = r.iterator(); it.hasNext();) {
+            if (((Maplet) it.next()).x().equals("a")) it.remove();
+        }
+        assertEquals(1, r.size());
+        assertTrue(r.contains(new Maplet("c","d")));
+    }
+
+    public void testMatchesHashRel() {
+        Dictionary d = new Dictionary();
+        Relation e = chain(d);
+        Relation h = new HashRel(e);
+        assertEquals(h, e);
+        assertEquals(h.transitiveClosure(), e.transitiveClosure());
+        assertEquals(h.composition(h), e.composition(e));
+        assertEquals(h.inverse(), e.inverse());
+        assertEquals(h.domain(), e.domain());
+        assertEquals(h.range(), e.range());
+        Set s = new HashSet();
+        s.add("a");
+        s.add("c");
+        s.add("z");
+        assertEquals(h.domainRestriction(s), e.domainRestriction(s));
+        assertEquals(h.rangeAntiRestriction(s), e.rangeAntiRestriction(s));
+        assertEquals(h.image(s), e.image(s));
+        assertTrue(e.reaches("a","d"));
+        assertFalse(e.reaches("d","a"));
+        assertTrue(e.isFunction());
+        assertEquals(h.composition(h), e.composition(h));
+    }
+
+    public void testSharedDictionary() {
+        Dictionary d = new Dictionary();
+        Relation q = chain(d);
+        Relation r = new EncodedRel(d);
+        r.add("d","e");
+        Relation u = q.union(r);
+        assertTrue(u instanceof EncodedRel);
+        assertEquals(4, u.size());
+        assertEquals(((EncodedRel) q).dictionary(), ((EncodedRel) u).dictionary());
+        assertTrue(u.transitiveClosure().contains(new Maplet("a","e")));
+        assertTrue(q.composition(r).contains(new Maplet("c","e")));
+    }
+
+    public void testClosureCycle() {
+        Relation r = new EncodedRel();
+        r.add(1, 2);
+        r.add(2, 1);
+        Relation c = r.transitiveClosure();
+        assertEquals(4, c.size());
+        assertTrue(c.contains(new Maplet(1, 1)));
+    }
+
+    public void testSetOperations() {
+        Dictionary d = new Dictionary();
+        EncodedRel q = new EncodedRel(d);
+        EncodedRel r = new EncodedRel(d);
+        for (int i = 0; i < 50; i++) q.add(i, i + 1);
+        for (int i = 40; i < 100; i++) r.add(i, i + 1);
+        Set expected = new HashRel(q).intersection(new HashRel(r));
+        assertEquals(10, expected.size());
+        assertEquals(expected, q.intersection(r));
+        q.transitiveClosure();
+        r.isFunction();
+        assertEquals(expected, q.intersection(r));
+        assertEquals(expected, r.intersection(q));
+        assertEquals(40, q.difference(r).size());
+        assertEquals(new HashRel(q).difference(new HashRel(r)), q.difference(r));
+    }
+}
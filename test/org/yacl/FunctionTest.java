@@ -147,6 +147,36 @@ public class FunctionTest extends TestCase {
         assertEquals(expected, actual);
     }
     
+    public void testOverrideInPlace() {
+        Function f = new HashFun();
+        f.put("tom","jane");
+        f.put("fred","mary");
+        f.put("harry","eve");
+
+        Function g = new HashFun();
+        g.put("tom","train");
+        g.put("jane","car");
+
+        Relation expected = f.override(g);
+        f.overrideInPlace(g);
+        assertEquals(expected, f);
+        assertEquals("train", f.getValue("tom"));
+        assertTrue(f.containsKey("jane"));
+        assertTrue(f.containsValue("eve"));
+        assertFalse(f.containsValue("jane"));
+
+        Relation before = new HashRel(f);
+        assertSame(f, f.overrideInPlace(f));
+        assertEquals(before, f);
+
+        Relation r = new HashRel();
+        r.add("tom","bus");
+        r.add("fred","bike");
+        r.add("fred","tram");
+        try { f.overrideInPlace(r); fail("not a function"); } catch (IllegalArgumentException e) { assertTrue(true); }
+        assertEquals(before, f);
+    }
+    
     public void testClosure() {
     	Relation r = new HashRel();
         r.add(new Maplet("tom","jane"));
@@ -227,4 +257,61 @@ public class FunctionTest extends TestCase {
         assertEquals(actual.size(),6);
         assertTrue(actual instanceof Relation);
     }
-}
\ No newline at end of file
+
+    public void testFreeze() {
+        Function f = new HashFun();
+        for (int i = 0; i < 5000; i++) f.put(i, "v" + i);
+        // "Aa" and "BB" share a hash code
+        f.put("Aa", "x");
+        f.put("BB", "y");
+        Function frozen = f.freeze();
+        assertEquals(f, frozen);
+        assertEquals(f.size(), frozen.size());
+        assertEquals("v1234", frozen.getValue(1234));
+        assertEquals("x", frozen.getValue("Aa"));
+        assertEquals("y", frozen.getValue("BB"));
+        assertNull(frozen.getValue(5000));
+        assertNull(frozen.getValue("C#"));
+        assertTrue(frozen.containsKey(0));
+        assertTrue(frozen.containsValue("v4999"));
+        assertEquals(new Maplet("BB", "y"), frozen.getMaplet("BB"));
+        assertEquals("v7", frozen.asMap().get(7));
+        assertSame(frozen, frozen.freeze());
+        f.put(0, "changed");
+        assertEquals("v0", frozen.getValue(0));
+        try {
+            frozen.put(1, "z");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(0, new HashFun().freeze().size());
+        assertNull(new HashFun().freeze().getValue("a"));
+    }
+
+    public void testAsMap() {
+        Function f = new HashFun();
+        f.add("tom","jane");
+        f.add("fred","mary");
+        java.util.Map m = f.asMap();
+        assertEquals(2, m.size());
+        assertEquals("jane", m.get("tom"));
+        assertNull(m.get("harry"));
+        assertTrue(m.containsKey("fred"));
+        assertTrue(m.containsValue("mary"));
+        assertEquals("jane", m.put("tom","kim"));
+        assertEquals("kim", f.getValue("tom"));
+        f.put("harry","sue");
+        assertEquals("sue", m.get("harry"));
+        assertEquals("mary", m.remove("fred"));
+        assertFalse(f.containsKey("fred"));
+        java.util.Map copy = new java.util.HashMap();
+        copy.put("tom","kim");
+        copy.put("harry","sue");
+        assertEquals(copy, m);
+        java.util.Iterator it = m.entrySet().iterator();
+        it.next();
+        it.remove();
+        assertEquals(1, f.size());
+        assertNull(new ArrayFun().asMap().put("a","b"));
+    }
+}
@@ -0,0 +1,65 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class IntSetTest extends TestCase {
+
+    public void testMembership() {
+        IntSet s = new IntSet();
+        assertTrue(s.add(3));
+        assertTrue(s.add(1000));
+        assertFalse(s.add(3));
+        assertEquals(2, s.size());
+        assertTrue(s.contains(1000));
+        assertTrue(s.contains((Object) 3));
+        assertFalse(s.contains(-1));
+        assertFalse(s.contains("3"));
+        assertTrue(Arrays.equals(new boolean[] { true, false, true, false }, s.contains(new int[] { 3, 4, 1000, 5000 })));
+        assertTrue(s.remove(3));
+        assertFalse(s.remove(3));
+        assertEquals(1, s.size());
+        try {
+            s.add(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testIteration() {
+        IntSet s = IntSet.of(70, 5, 64, 63);
+        assertTrue(Arrays.equals(new int[] { 5, 63, 64, 70 }, s.toIntArray()));
+        for (Iterator it = s.iterator(); it.hasNext();) {
+            if (((Integer) it.next()) % 2 == 0) it.remove();
+        }
+        assertEquals(IntSet.of(5, 63), s);
+        assertEquals(new HashSet(Arrays.asList(5, 63)), s);
+        assertEquals(-1, s.nextMember(64));
+    }
+
+    public void testAlgebra() {
+        IntSet a = IntSet.of(1, 2, 3, 200);
+        IntSet b = IntSet.of(2, 3, 4);
+        assertEquals(IntSet.of(2, 3), a.intersection(b));
+        assertEquals(IntSet.of(1, 2, 3, 4, 200), a.union(b));
+        assertEquals(IntSet.of(1, 200), a.difference(b));
+        assertEquals(IntSet.of(4), b.difference(a));
+        assertEquals(5, a.union(b).size());
+        assertEquals(2, a.intersectionSize(b));
+        assertEquals(IntSet.of(3), Set.intersectionOf(a, b, IntSet.of(3, 200)));
+        assertEquals(6, a.unionAll(Arrays.asList(b, IntSet.of(5))).size());
+        assertTrue(IntSet.of(2, 3).isSubsetOf(a));
+        assertFalse(b.isSubsetOf(a));
+        assertEquals(new HashSet(Arrays.asList(2, 3)), a.intersection(new HashSet(Arrays.asList(2, 3, 9))));
+
+        IntSet c = IntSet.of(1, 2);
+        assertTrue(c.addAll(IntSet.of(2, 500)));
+        assertEquals(3, c.size());
+        assertTrue(c.retainAll(IntSet.of(1, 500)));
+        assertEquals(IntSet.of(1, 500), c);
+        assertTrue(c.removeAll(IntSet.of(1)));
+        assertFalse(c.removeAll(IntSet.of(1)));
+        assertEquals(IntSet.of(500), c);
+    }
+}
@@ -0,0 +1,105 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+public class ObservableTest extends TestCase {
+
+    private List<Delta> deltas = new ArrayList<>();
+
+    private DeltaListener listener = new DeltaListener() {
+        public void changed(Delta d) { deltas.add(d); }
+    };
+
+    public void testRelation() {
+        ObservableRel r = new ObservableRel();
+        r.addListener(listener);
+        r.add("tom","jane");
+        r.add("tom","jane");
+        r.remove(new Maplet("fred","mary"));
+        assertEquals(1, deltas.size());
+        assertTrue(deltas.get(0).inserted().contains(new Maplet("tom","jane")));
+        assertTrue(deltas.get(0).deleted().isEmpty());
+
+        r.add("fred","mary");
+        r.clear();
+        assertEquals(3, deltas.size());
+        assertEquals(2, deltas.get(2).deleted().size());
+    }
+
+    public void testTransaction() {
+        ObservableRel r = new ObservableRel();
+        r.add("tom","jane");
+        r.addListener(listener);
+        r.begin();
+        r.add("fred","mary");
+        r.remove(new Maplet("fred","mary"));
+        r.remove(new Maplet("tom","jane"));
+        r.add("tom","jane");
+        r.add("tom","kim");
+        assertTrue(deltas.isEmpty());
+        r.commit();
+        assertEquals(1, deltas.size());
+        assertEquals(1, deltas.get(0).size());
+        assertTrue(deltas.get(0).inserted().contains(new Maplet("tom","kim")));
+        try { r.commit(); fail("commit"); } catch (IllegalStateException e) { assertTrue(true); }
+    }
+
+    public void testClone() {
+        ObservableRel r = new ObservableRel();
+        r.add("tom","jane");
+        r.addListener(listener);
+        r.begin();
+        ObservableRel c = (ObservableRel) r.clone();
+        c.add("x","y");
+        c.clear();
+        r.commit();
+        assertTrue(deltas.isEmpty());
+        assertEquals(1, r.size());
+        ObservableFun f = new ObservableFun();
+        f.addListener(listener);
+        ((ObservableFun) f.clone()).put("x","y");
+        assertTrue(deltas.isEmpty());
+        DeltaListener other = new DeltaListener() {
+            public void changed(Delta d) { deltas.add(null); }
+        };
+        c.addListener(other);
+        c.add("a","b");
+        assertEquals(1, deltas.size());
+    }
+
+    public void testUpdate() {
+        ObservableFun f = new ObservableFun();
+        f.put("tom","jane");
+        f.addListener(listener);
+        f.put("tom","kim");
+        assertEquals(1, deltas.size());
+        Delta d = deltas.get(0);
+        assertTrue(d.deleted().contains(new Maplet("tom","jane")));
+        assertTrue(d.inserted().contains(new Maplet("tom","kim")));
+        assertEquals(new HashSet().addElement("tom"), d.updated());
+        assertEquals("kim", f.getValue("tom"));
+    }
+
+    public void testPublisher() throws InterruptedException {
+        ObservableRel r = new ObservableRel();
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Delta> received = new ArrayList<>();
+        r.publisher().subscribe(new Flow.Subscriber<Delta>() {
+            Flow.Subscription s;
+            public void onSubscribe(Flow.Subscription s) { this.s = s; s.request(1); }
+            public void onNext(Delta d) { received.add(d); s.request(1); }
+            public void onError(Throwable t) { done.countDown(); }
+            public void onComplete() { done.countDown(); }
+        });
+        r.add("tom","jane");
+        r.add("fred","mary");
+        r.close();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, received.size());
+    }
+}
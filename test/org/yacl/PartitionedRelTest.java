@@ -0,0 +1,230 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PartitionedRelTest extends TestCase {
+
+    private Relation random(Relation r, int seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < 2000; ++i) r.add(random.nextInt(300), random.nextInt(300));
+        return r;
+    }
+
+    public void testOperators() {
+        Relation p = random(new PartitionedRel(4), 1);
+        Relation h = random(new HashRel(), 1);
+        assertEquals(h, p);
+        assertEquals(p, h);
+        assertEquals(h.size(), p.size());
+
+        Set s = new HashSet(Arrays.asList(1, 2, 3, 50, 400));
+        assertEquals(h.domainRestriction(s), p.domainRestriction(s));
+        assertEquals(h.rangeAntiRestriction(s), p.rangeAntiRestriction(s));
+        assertEquals(h.image(s), p.image(s));
+        assertEquals(h.inverse(), p.inverse());
+        assertEquals(h.composition(h), p.composition(p));
+        assertEquals(h.composition(h), p.composition(h));
+        assertEquals(h.composition(h), p.composition(new PartitionedRel(3).unionInPlace(h)));
+        assertEquals(h.isFunction(), p.isFunction());
+        assertEquals(h.domain(), p.domain());
+
+        for (java.util.Iterator it = p.iterator(); it.hasNext();) {
+            Maplet m = (Maplet) it.next();
+            if (((Integer) m.x()) % 2 == 0) it.remove();
+        }
+        for (Object o : p) assertEquals(1, ((Integer) ((Maplet) o).x()) % 2);
+        p.clear();
+        assertTrue(p.isEmpty());
+        p.add(1, 2);
+        assertTrue(p.contains(new Maplet(1, 2)));
+        assertEquals(new HashSet().addElement(2), p.image(new HashSet().addElement(1)));
+    }
+
+    public void testGraphQueries() {
+        Relation p = new PartitionedRel(4);
+        Relation h = new HashRel();
+        Random random = new Random(2);
+        for (int i = 0; i < 150; ++i) {
+            Maplet m = new Maplet(random.nextInt(200), random.nextInt(200));
+            p.add(m);
+            h.add(m);
+        }
+        for (int a = 0; a < 200; a += 7) {
+            assertEquals(h.reachableFrom(a), p.reachableFrom(a));
+            assertEquals(h.reachingTo(a), p.reachingTo(a));
+            for (int b = 0; b < 200; b += 11) assertEquals(h.reaches(a, b), p.reaches(a, b));
+        }
+        assertEquals(h.isFunction(), p.isFunction());
+        assertEquals(h.isInjection(), p.isInjection());
+
+        Relation f = new PartitionedRel(4);
+        for (int i = 0; i < 100; ++i) f.add(i, i + 1000);
+        assertTrue(f.isFunction());
+        assertTrue(f.isInjection());
+        f.add(5, 1000);
+        assertFalse(f.isFunction());
+        f.remove(new Maplet(5, 1000));
+        f.add(500, 1000);
+        assertTrue(f.isFunction());
+        assertFalse(f.isInjection());
+    }
+
+    public void testFilters() {
+        PartitionedRel r = new PartitionedRel(4);
+        r.add("tom","jane");
+        r.add("fred","mary");
+        r.enableFilters(0.01);
+        for (int i = 0; i < 100; i++) r.add("x" + i, "y" + i);
+        assertTrue(r.contains(new Maplet("tom","jane")));
+        assertTrue(r.contains("x50","y50"));
+        for (int i = 0; i < 1000; i++) assertFalse(r.contains(new Maplet("z" + i, "y0")));
+        long probes = 0, rejections = 0;
+        for (int i = 0; i < r.partitions(); i++) {
+            assertTrue(r.pairFilter(i).capacity() >= 16);
+            probes += r.pairFilter(i).probes();
+            rejections += r.pairFilter(i).rejections();
+        }
+        // contains(x, y) probes the domain filter instead
+        assertEquals(1001, probes);
+        assertTrue(rejections > 900);
+
+        Set s = new HashSet();
+        s.add("tom");
+        s.add("nobody");
+        assertEquals(new HashSet().addElement("jane"), r.image(s));
+
+        r.remove(new Maplet("tom","jane"));
+        assertFalse(r.contains(new Maplet("tom","jane")));
+        r.rebuildFilters();
+        assertEquals(0, r.pairFilter(r.partition("tom")).probes());
+        r.clear();
+        assertFalse(r.contains(new Maplet("fred","mary")));
+        r.add("fred","kim");
+        assertTrue(r.contains("fred","kim"));
+        r.disableFilters();
+        assertNull(r.pairFilter(0));
+        try { r.rebuildFilters(); fail("not enabled"); } catch (IllegalStateException e) { assertTrue(true); }
+        try { r.enableFilters(1); fail("rate"); } catch (IllegalArgumentException e) { assertTrue(true); }
+
+        PartitionedFun f = new PartitionedFun(4);
+        f.put("tom","jane");
+        f.enableFilters(0.01);
+        f.put("fred","mary");
+        assertTrue(f.containsKey("fred"));
+        assertFalse(f.containsKey("harry"));
+        assertNull(f.getMaplet("harry"));
+        assertEquals("jane", f.getValue("tom"));
+        assertEquals("mary", f.put("fred","kim"));
+        assertEquals("kim", f.getValue("fred"));
+        assertTrue(f.containsValue("jane"));
+        for (int i = 0; i < f.partitions(); i++) f.rangeFilter(i).resetStatistics();
+        assertFalse(f.containsValue("nobody"));
+        long rangeProbes = 0, rangeRejections = 0;
+        for (int i = 0; i < f.partitions(); i++) {
+            rangeProbes += f.rangeFilter(i).probes();
+            rangeRejections += f.rangeFilter(i).rejections();
+        }
+        assertEquals(f.partitions(), rangeProbes);
+        assertTrue(rangeRejections > 0);
+    }
+
+    public void testRangeFilters() {
+        PartitionedRel r = new PartitionedRel(4);
+        for (int i = 0; i < 100; i++) r.add("x" + i, "y" + (i % 10));
+        r.enableFilters(0.01);
+        Set t = new HashSet(java.util.Arrays.asList("y3", "nothing"));
+        Relation expected = new HashRel();
+        for (int i = 3; i < 100; i += 10) expected.add("x" + i, "y3");
+        assertEquals(expected, r.rangeRestriction(t));
+        assertTrue(r.rangeRestriction(new HashSet().addElement("nothing")).isEmpty());
+        assertEquals(expected, r.restriction(expected.domain(), t));
+        long rejections = 0;
+        for (int i = 0; i < r.partitions(); i++) rejections += r.rangeFilter(i).rejections();
+        assertTrue(rejections > 0);
+
+        PartitionedRel inverse = (PartitionedRel) r.inverse();
+        assertNotNull(inverse.domainFilter(0));
+        assertNotNull(inverse.rangeFilter(0));
+        assertEquals(expected.domain(), inverse.image(t));
+        r.disableFilters();
+        assertNull(r.rangeFilter(0));
+        assertNull(((PartitionedRel) r.inverse()).domainFilter(0));
+    }
+
+    public void testFiltersUnderConcurrentAdd() throws InterruptedException {
+        final PartitionedRel p = new PartitionedRel(4);
+        p.enableFilters(0.01);
+        final int n = 20000;
+        final java.util.concurrent.atomic.AtomicInteger added = new java.util.concurrent.atomic.AtomicInteger();
+        final java.util.concurrent.atomic.AtomicBoolean missed = new java.util.concurrent.atomic.AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; ++i) {
+                p.add(i, i);
+                added.set(i + 1);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; ++t) {
+            Thread reader = new Thread(() -> {
+                Random random = new Random();
+                while (added.get() < n) {
+                    int known = added.get();
+                    if (known == 0) continue;
+                    int i = random.nextInt(known);
+                    if (!p.contains(i, i) || !p.contains(new Maplet(i, i))) missed.set(true);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        writer.start();
+        writer.join();
+        for (Thread t : readers) t.join();
+        assertFalse(missed.get());
+        assertEquals(n, p.size());
+    }
+
+    public void testConcurrentAdd() throws InterruptedException {
+        final Relation p = new PartitionedRel(8);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            final int base = t * 10000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; ++i) p.add(base + i, i);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(40000, p.size());
+        assertTrue(p.isFunction());
+    }
+
+    public void testFunction() {
+        Function f = new PartitionedFun(4);
+        f.put("tom","jane");
+        f.put("fred","mary");
+        assertEquals("mary", f.put("fred","kim"));
+        assertEquals(2, f.size());
+        assertEquals("kim", f.getValue("fred"));
+        assertTrue(f.containsKey("tom"));
+        assertTrue(f.containsValue("jane"));
+        assertFalse(f.containsValue("mary"));
+        try { f.add(new Maplet("tom","eve")); fail("duplicate key"); } catch (RuntimeException e) { assertTrue(true); }
+    }
+
+    public void testStatistics() {
+        PartitionedRel r = new PartitionedRel(4);
+        for (int i = 0; i < 1000; i++) r.add(i, i % 100);
+        Statistics stats = r.statistics();
+        assertFalse(stats.isExact());
+        assertEquals(1000, stats.size());
+        assertEquals(1000, stats.domainSize());
+        assertEquals(100, stats.rangeSize(), 5);
+        assertEquals(1000, stats.fanOut()[0]);
+    }
+}
@@ -2,6 +2,7 @@ package org.yacl;
 
 import junit.framework.*;
 import java.util.Arrays;
+import java.util.List;
 
 public class RelationTest extends TestCase {
     
@@ -58,6 +59,34 @@ public class RelationTest extends TestCase {
         assertTrue("7. Domain restricted relation should not contain \"tom\" maplets",!r.domainRestriction(new HashSet().addElement("fred")).domain().contains("tom"));
     }
   
+    public void testRestrictionStrategies() {
+        Relation r = new HashRel();
+        for (int i = 0; i < 100; ++i) r.add(new Maplet(i % 10, i));
+        Set small = new HashSet(Arrays.asList(3, 4, 200));
+        Set large = new HashSet();
+        for (int i = 0; i < 50; ++i) large.add(i);
+
+        Relation expected = new HashRel();
+        for (Object o : r) {
+            Maplet m = (Maplet) o;
+            if (small.contains(m.x())) expected.add(m);
+        }
+        assertEquals(expected, r.domainRestriction(small));
+        assertEquals(r.domainRestriction(large), r);
+        assertEquals(expected.range(), r.image(small));
+        assertEquals(r.range(), r.image(large));
+        assertEquals(r.size() - expected.size(), r.domainAntiRestriction(small).size());
+
+        assertEquals(2, r.rangeRestriction(small).size());
+        assertEquals(50, r.rangeRestriction(large).size());
+        assertEquals(50, r.rangeAntiRestriction(large).size());
+
+        assertEquals(r.domainRestriction(small).rangeRestriction(large), r.restriction(small, large));
+        assertEquals(r.domainRestriction(large).rangeRestriction(small), r.restriction(large, small));
+        assertEquals(r.domainAntiRestriction(small).rangeAntiRestriction(large), r.antiRestriction(small, large));
+        assertEquals(r, r.restriction(null, null));
+    }
+  
     public void testInverse() {
     
         assertTrue(new HashRel().inverse().isEmpty());
@@ -126,6 +155,55 @@ public class RelationTest extends TestCase {
         assertTrue(r.isInjection());
     }
     
+    public void testProperties() {
+        Relation r = new HashRel();
+        r.add(new Maplet("a","a"));
+        r.add(new Maplet("b","b"));
+        r.add(new Maplet("a","b"));
+        assertTrue(r.isReflexive());
+        assertFalse(r.isSymmetric());
+        assertTrue(r.isAntisymmetric());
+        assertTrue(r.isTransitive());
+        assertFalse(r.isEquivalence());
+
+        r.add(new Maplet("b","a"));
+        assertTrue(r.isSymmetric());
+        assertFalse(r.isAntisymmetric());
+        assertTrue(r.isEquivalence());
+
+        r.add(new Maplet("b","c"));
+        assertFalse(r.isTransitive());
+        assertTrue(r.isReflexive());
+        r.add(new Maplet("a","c"));
+        assertTrue(r.isTransitive());
+        r.add(new Maplet("c","d"));
+        assertFalse(r.isReflexive());
+        r.add(new Maplet("c","c"));
+        assertTrue(r.isReflexive());
+        r.remove(new Maplet("c","c"));
+        assertFalse(r.isReflexive());
+
+        assertTrue(r.isTotal(new HashSet(Arrays.asList("a","b"))));
+        assertFalse(r.isTotal(new HashSet(Arrays.asList("a","d"))));
+    }
+
+    public void testMaintainedFunction() {
+        Relation r = new HashRel();
+        r.add(new Maplet("tom","jane"));
+        r.add(new Maplet("fred","mary"));
+        assertTrue(r.isFunction());
+        assertTrue(r.isInjection());
+        r.add(new Maplet("tom","kim"));
+        assertFalse(r.isFunction());
+        r.remove(new Maplet("tom","jane"));
+        assertTrue(r.isFunction());
+        r.add(new Maplet("alice","mary"));
+        assertTrue(r.isFunction());
+        assertFalse(r.isInjection());
+        r.clear();
+        assertTrue(r.isInjection());
+    }
+    
     public void testCompose() {
  
         Relation r = new HashRel();
@@ -183,6 +261,42 @@ public class RelationTest extends TestCase {
         assertEquals(expected, actual);
     }
     
+    public void testInPlace() {
+        Relation r = new HashRel();
+        r.add(new Maplet("tom","jane"));
+        r.add(new Maplet("fred","mary"));
+        r.add(new Maplet("tom","kim"));
+        r.add(new Maplet("harry","eve"));
+
+        Relation q = new HashRel();
+        q.add(new Maplet("jane","car"));
+        q.add(new Maplet("fred","truck"));
+        q.add(new Maplet("tom","train"));
+
+        Relation expected = r.override(q);
+        assertSame(r, r.overrideInPlace(q));
+        assertEquals(expected, r);
+        assertSame(r, r.overrideInPlace(r));
+        assertEquals(expected, r);
+
+        Set s = new HashSet(Arrays.asList("tom","fred"));
+        expected = r.domainRestriction(s);
+        assertEquals(expected, new HashRel(r).domainRestrictionInPlace(s));
+        expected = r.domainAntiRestriction(s);
+        r.domain();
+        assertEquals(expected, new HashRel(r).domainAntiRestrictionInPlace(s));
+        r.isInjection();
+        assertEquals(expected, r.domainAntiRestrictionInPlace(s));
+
+        Set t = new HashSet(Arrays.asList("car","eve"));
+        Relation u = new HashRel(q);
+        assertEquals(q.rangeRestriction(t), new HashRel(q).rangeRestrictionInPlace(t));
+        assertEquals(q.rangeAntiRestriction(t), u.rangeAntiRestrictionInPlace(t));
+        u.isInjection();
+        assertEquals(q.rangeAntiRestriction(t), u.rangeAntiRestrictionInPlace(t));
+        assertEquals(q, u.unionInPlace(q));
+    }
+    
     public void testClosure() {
     	Relation r = new HashRel();
         r.add(new Maplet("tom","jane"));
@@ -218,6 +332,261 @@ public class RelationTest extends TestCase {
         assertEquals(expected, actual);
     }
     
+    public void testPower() {
+        Relation r = new HashRel();
+        r.add("a","b");
+        r.add("b","c");
+        r.add("c","d");
+        r.add("d","a");
+        r.add("a","c");
+        Relation expected = r;
+        for (int k = 1; k <= 9; k++) {
+            assertEquals(expected, r.power(k));
+            expected = expected.composition(r);
+        }
+        assertEquals(4, r.power(0).size());
+        assertTrue(r.power(0).contains(new Maplet("a","a")));
+        assertNotSame(r, r.power(1));
+        assertEquals(r.power(3), r.inverse().power(3).inverse());
+        try {
+            r.power(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testReflexiveTransitiveClosure() {
+        Relation r = new HashRel();
+        r.add("a","b");
+        r.add("b","c");
+        Relation star = r.reflexiveTransitiveClosure();
+        assertEquals(6, star.size());
+        assertTrue(star.contains(new Maplet("c","c")));
+        assertTrue(star.contains(new Maplet("a","c")));
+        assertFalse(star.contains(new Maplet("c","a")));
+        assertEquals(star, new ArrayRel(r).reflexiveTransitiveClosure());
+    }
+
+    public void testEquivalenceClosure() {
+        Relation r = new HashRel();
+        r.add("a","b");
+        r.add("c","b");
+        r.add("d","e");
+        r.add("f","f");
+        EquivalenceRel e = r.equivalenceClosure();
+        Relation expected = r.union(r.inverse()).reflexiveTransitiveClosure();
+        assertEquals(expected.size(), e.size());
+        assertEquals(expected, new HashRel(e));
+        assertTrue(e.contains(new Maplet("a","c")));
+        assertTrue(e.contains(new Maplet("e","d")));
+        assertFalse(e.contains(new Maplet("a","d")));
+        assertFalse(e.contains(new Maplet("a","z")));
+        assertEquals(3, e.classCount());
+        assertTrue(e.classes().contains(new HashSet(Arrays.asList("a","b","c"))));
+        assertEquals(new HashSet(Arrays.asList("d","e")), e.classOf("e"));
+        assertTrue(e.isEquivalence());
+        assertEquals(e.size(), e.statistics().size());
+
+        assertTrue(e.add(new Maplet("c","e")));
+        assertFalse(e.add(new Maplet("a","d")));
+        assertEquals(2, e.classCount());
+        assertEquals(26, e.size());
+        assertEquals(new HashSet(Arrays.asList("a","b","c","d","e")), e.image(new HashSet(Arrays.asList("a"))));
+        try {
+            e.remove(new Maplet("a","b"));
+            fail();
+        } catch (UnsupportedOperationException x) {
+        }
+    }
+
+    public void testFreeze() {
+        Relation r = new HashRel();
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < i % 20; j++) r.add(i, "y" + j);
+        }
+        Relation frozen = r.freeze();
+        assertEquals(r.size(), frozen.size());
+        assertEquals(r, frozen);
+        assertEquals(frozen, r);
+        assertTrue(frozen.contains(new Maplet(19, "y18")));
+        assertFalse(frozen.contains(new Maplet(19, "y19")));
+        assertFalse(frozen.contains(new Maplet(20, "y0")));
+        Set s = new HashSet(Arrays.asList(3, 19, 1000));
+        assertEquals(r.image(s), frozen.image(s));
+        assertEquals(r.domain(), frozen.domain());
+        assertEquals(r.transitiveClosure(), frozen.transitiveClosure());
+        assertFalse(frozen.isFunction());
+        try {
+            frozen.add(new Maplet(1, "a"));
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            frozen.domainRestrictionInPlace(s);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    public void testCache() {
+        HashRel r = new HashRel();
+        r.add("a","b");
+        r.add("b","c");
+        r.enableCache();
+        ResultCache cache = r.cache();
+        assertEquals(new HashSet(Arrays.asList("a","b")), r.domain());
+        assertEquals(r.domain(), r.domain());
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+        r.domain().clear();
+        assertEquals(2, r.domain().size());
+
+        // additions bring the domain and range up to date in place, and the
+        // closures when they are next read
+        r.range();
+        r.add("c","d");
+        r.add("x","a");
+        cache.resetStatistics();
+        assertEquals(new HashSet(Arrays.asList("a","b","c","x")), r.domain());
+        assertEquals(new HashSet(Arrays.asList("a","b","c","d")), r.range());
+        assertEquals(2, cache.hits());
+        r.transitiveClosure();
+        r.reflexiveTransitiveClosure();
+        r.add("d","b");
+        r.add("y","y");
+        r.add("c","z");
+        cache = r.cache();
+        cache.resetStatistics();
+        Relation cachedClosure = r.transitiveClosure();
+        Relation cachedStar = r.reflexiveTransitiveClosure();
+        assertEquals(2, cache.hits());
+        r.disableCache();
+        assertEquals(r.transitiveClosure(), cachedClosure);
+        assertEquals(r.reflexiveTransitiveClosure(), cachedStar);
+
+        // past a limit, held back additions give way to recomputing the closure
+        r.enableCache();
+        cache = r.cache();
+        r.transitiveClosure();
+        for (int i = 0; i < 100; ++i) r.add(i, i + 1);
+        cache.resetStatistics();
+        cachedClosure = r.transitiveClosure();
+        assertEquals(1, cache.misses());
+        r.disableCache();
+        assertEquals(r.transitiveClosure(), cachedClosure);
+
+        // removals go stale, except where the indexes keep them up to date
+        r.enableCache();
+        cache = r.cache();
+        assertFalse(r.isAcyclic());
+        assertFalse(r.isSymmetric());
+        r.domain();
+        r.isFunction();
+        r.remove(new Maplet("x","a"));
+        cache.resetStatistics();
+        assertFalse(r.domain().contains("x"));
+        assertFalse(r.isSymmetric());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0.5, cache.hitRate(), 0);
+        r.add("x","a");
+        assertFalse(r.isAcyclic());
+        r.add("q","r");
+        assertFalse(r.isAcyclic());
+        assertEquals(2, cache.hits());
+        r.clear();
+        assertTrue(r.isAcyclic());
+        assertTrue(r.domain().isEmpty());
+    }
+
+    public void testClone() {
+        HashRel r = new HashRel();
+        r.add(1,2);
+        r.enableCache();
+        r.enableFilters(0.01);
+        r.domain();
+        r.image(new HashSet(Arrays.asList(1)));
+        HashRel c = (HashRel) r.clone();
+        assertNull(c.cache());
+        assertNull(c.pairFilter());
+        c.add(7,8);
+        r.add(5,6);
+        assertEquals(new HashSet(Arrays.asList(1,5)), r.domain());
+        assertEquals(new HashSet(Arrays.asList(1,7)), c.domain());
+        assertTrue(r.contains(5,6));
+        assertFalse(r.contains(7,8));
+        assertTrue(c.contains(7,8));
+        assertFalse(c.contains(5,6));
+        assertEquals(new HashSet(Arrays.asList(8)), c.image(new HashSet(Arrays.asList(7))));
+    }
+
+    public void testReachability() {
+        Relation r = new HashRel();
+        r.add(new Maplet("tom","jane"));
+        r.add(new Maplet("fred","mary"));
+        r.add(new Maplet("tom","kim"));
+        r.add(new Maplet("mary","eve"));
+        r.add(new Maplet("eve","ron"));
+
+        Relation closure = r.transitiveClosure();
+        for (Object x : r.domain()) {
+            for (Object y : r.range()) {
+                assertEquals(x + "->" + y, closure.contains(new Maplet(x, y)), r.reaches(x, y));
+            }
+        }
+        assertFalse(r.reaches("ron","fred"));
+        assertFalse(r.reaches("fred","fred"));
+        assertEquals(new HashSet(Arrays.asList("mary","eve","ron")), r.reachableFrom("fred"));
+        assertEquals(new HashSet(Arrays.asList("fred","mary","eve")), r.reachingTo("ron"));
+        assertTrue(r.reachableFrom("nobody").isEmpty());
+
+        r.add(new Maplet("ron","fred"));
+        assertTrue(r.reaches("fred","fred"));
+        assertTrue(r.reaches("ron","eve"));
+        r.remove(new Maplet("mary","eve"));
+        assertFalse(r.reaches("fred","ron"));
+        assertEquals(new HashSet(Arrays.asList("mary")), r.reachableFrom("fred"));
+    }
+
+    public void testCycles() {
+        Relation r = new HashRel();
+        r.add(new Maplet("a","b"));
+        r.add(new Maplet("c","b"));
+        r.add(new Maplet("b","d"));
+        assertTrue(r.isAcyclic());
+        List order = r.topologicalOrder();
+        assertEquals(4, order.size());
+        for (Object o : r) {
+            Maplet m = (Maplet) o;
+            assertTrue(m.toString(), order.indexOf(m.x()) < order.indexOf(m.y()));
+        }
+        assertEquals(4, r.stronglyConnectedComponents().size());
+        assertEquals(r.size(), r.condensation().size());
+
+        r.add(new Maplet("d","a"));
+        assertFalse(r.isAcyclic());
+        try { r.topologicalOrder(); fail("cycle"); } catch (IllegalStateException e) { assertTrue(true); }
+        Set abd = new HashSet(Arrays.asList("a","b","d"));
+        Set c = new HashSet(Arrays.asList("c"));
+        assertEquals(new HashSet(Arrays.asList(abd, c)), r.stronglyConnectedComponents());
+        Relation expected = new HashRel();
+        expected.add(new Maplet(c, abd));
+        assertEquals(expected, r.condensation());
+
+        r = new HashRel();
+        r.add(new Maplet("a","a"));
+        assertFalse(r.isAcyclic());
+    }
+
+    public void testLongChain() {
+        Relation r = new HashRel();
+        for (int i = 0; i < 100000; ++i) r.add(new Maplet(i, i + 1));
+        assertTrue(r.isAcyclic());
+        assertEquals(Integer.valueOf(0), r.topologicalOrder().get(0));
+        r.add(new Maplet(100000, 0));
+        assertEquals(1, r.stronglyConnectedComponents().size());
+    }
+
     public void testChaining() {
         Relation r = new HashRel();
         r.add(new Maplet("tom","jane"));
@@ -265,4 +634,250 @@ public class RelationTest extends TestCase {
         assertTrue(actual instanceof Relation);
     }
 
-}
\ No newline at end of file
+    public void testStatistics() {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        r.add("tom","mary");
+        r.add("tom","kim");
+        r.add("fred","mary");
+        Statistics stats = r.statistics();
+        assertTrue(stats.isExact());
+        assertEquals(4, stats.size());
+        assertEquals(2, stats.domainSize());
+        assertEquals(3, stats.rangeSize());
+        assertEquals(1, stats.fanOut()[0]);
+        assertEquals(1, stats.fanOut()[1]);
+        assertEquals(3, stats.maxFanOut());
+        assertEquals(2.0, stats.meanFanOut(), 0);
+        assertEquals(1, stats.fanIn()[1]);
+        r.remove(new Maplet("tom","kim"));
+        r.remove(new Maplet("tom","jane"));
+        stats = r.statistics();
+        assertEquals(2, stats.fanOut()[0]);
+        assertEquals(0, stats.fanOut()[1]);
+        assertEquals(1, stats.maxFanOut());
+        assertEquals(1, stats.rangeSize());
+    }
+
+    public void testStrategiesDoNotBuildIndexes() throws Exception {
+        HashRel q = new HashRel();
+        HashRel r = new HashRel();
+        for (int i = 0; i < 100; i++) {
+            q.add(i, i % 10);
+            r.add(i % 10, "v" + i);
+        }
+        assertTrue(q.image(new HashSet().addElement(200)).isEmpty());
+        assertEquals(1, q.restriction(new HashSet().addElement(3), new HashSet().addElement(3)).size());
+        assertFalse(indexBuilt(q, "rangeIndex"));
+        assertEquals(1000, q.composition(r).size());
+        assertFalse(indexBuilt(q, "rangeIndex"));
+        assertFalse(indexBuilt(r, "rangeIndex"));
+        assertEquals(2, q.domainRestriction(new HashSet(Arrays.asList(3, 13))).size());
+    }
+
+    private boolean indexBuilt(HashRel r, String name) throws Exception {
+        java.lang.reflect.Field f = HashRel.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return f.get(r) != null;
+    }
+
+    public void testHyperLogLog() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 20000; i++) {
+            a.add("v" + i);
+            b.add("v" + (i + 10000));
+        }
+        assertEquals(20000, a.estimate(), 1000);
+        a.merge(b);
+        assertEquals(30000, a.estimate(), 1500);
+        assertEquals(0, new HyperLogLog().estimate());
+        try {
+            a.merge(new HyperLogLog(10));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testAsMultimap() {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        r.add("tom","mary");
+        r.add("fred","mary");
+        java.util.Map m = r.asMultimap();
+        assertEquals(2, m.size());
+        java.util.Set tom = (java.util.Set) m.get("tom");
+        assertEquals(2, tom.size());
+        assertTrue(tom.contains("jane"));
+        assertNull(m.get("harry"));
+        r.add("tom","kim");
+        assertEquals(3, tom.size());
+        assertTrue(tom.remove("jane"));
+        assertFalse(r.contains(new Maplet("tom","jane")));
+        assertTrue(tom.add("sue"));
+        assertTrue(r.contains(new Maplet("tom","sue")));
+        assertEquals(new HashSet(Arrays.asList("mary")), m.remove("fred"));
+        assertEquals(3, r.size());
+        m.put("harry", new HashSet(Arrays.asList("ann","bea")));
+        assertEquals(5, r.size());
+        assertEquals(2, ((java.util.Set) m.put("harry", (java.util.Set) m.get("harry"))).size());
+        assertEquals(5, r.size());
+        assertTrue(r.contains(new Maplet("harry","bea")));
+        assertEquals(2, m.size());
+
+        Relation a = new ArrayRel(r);
+        java.util.Map n = a.asMultimap();
+        assertEquals(m, n);
+        ((java.util.Set) n.get("harry")).add("cat");
+        assertEquals(6, a.size());
+    }
+
+    private void checkProbes(Relation r, Object x, Object y, Object absent) {
+        assertTrue(r.contains(x, y));
+        assertFalse(r.contains(x, absent));
+        assertFalse(r.contains(absent, y));
+        final Relation visited = new HashRel();
+        r.forEach((a, b) -> visited.add(a, b));
+        assertEquals(r, visited);
+        visited.clear();
+        for (Cursor c = r.cursor(); c.next(); ) visited.add(c.x(), c.y());
+        assertEquals(r, visited);
+        final Set image = new HashSet();
+        r.forEachImage(x, image::add);
+        assertEquals(r.image(new HashSet(Arrays.asList(x))), image);
+        image.clear();
+        r.forEachImage(absent, image::add);
+        assertTrue(image.isEmpty());
+    }
+
+    private static long sink;
+
+    /*
+     * Returns the fewest bytes allocated by the current thread over rounds of
+     * probes, once the probes have been compiled, or -1 if that is not measurable.
+     */
+    private long allocatedByProbes(Relation r, Integer[] values, boolean images) throws Exception {
+        // com.sun.management is reached reflectively, since a test runner's class
+        // loader need not see the jdk.management module
+        Object threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        Class type;
+        try {
+            type = Class.forName("com.sun.management.ThreadMXBean", false, ClassLoader.getPlatformClassLoader());
+        } catch (ClassNotFoundException e) {
+            return -1;
+        }
+        if (!type.isInstance(threads)
+            || !(Boolean) type.getMethod("isThreadAllocatedMemoryEnabled").invoke(threads)) return -1;
+        java.lang.reflect.Method allocated = type.getMethod("getThreadAllocatedBytes", long.class);
+        Long id = Thread.currentThread().getId();
+        java.util.function.Consumer count = y -> ++sink;
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < 30; round++) {
+            long before = (Long) allocated.invoke(threads, id);
+            for (int k = 0; k < 200; k++) {
+                for (int i = 0; i < values.length; i++) {
+                    if (images) r.forEachImage(values[i], count);
+                    else if (r.contains(values[i], values[(i * 7) % values.length])) ++sink;
+                }
+            }
+            fewest = Math.min(fewest, (Long) allocated.invoke(threads, id) - before);
+        }
+        return fewest;
+    }
+
+    public void testProbesDoNotAllocate() throws Exception {
+        Integer[] values = new Integer[1000];
+        for (int i = 0; i < values.length; i++) values[i] = i;
+        HashRel r = new HashRel();
+        for (int i = 0; i < values.length; i++) r.add(values[i], values[(i * 7) % values.length]);
+        Relation[] relations = { r, new EncodedRel(new Dictionary(), r), r.freeze() };
+        // 200,000 probes a round, so less than one byte per hundred probes; the
+        // first probes of a HashRel build its domain index, which contains then uses
+        long bound = 2000;
+        for (Relation q : relations) {
+            String name = q.getClass().getSimpleName();
+            long images = allocatedByProbes(q, values, true);
+            if (images < 0) return;
+            assertTrue(name + ".forEachImage: " + images, images < bound);
+            long contains = allocatedByProbes(q, values, false);
+            assertTrue(name + ".contains: " + contains, contains < bound);
+        }
+    }
+
+    public void testProbes() {
+        HashRel r = new HashRel();
+        for (int i = 0; i < 40; i++) r.add(i % 7, i % 11);
+        checkProbes(r, 3, 10, 99);
+        checkProbes(r.inverse(), 10, 3, 99);
+        checkProbes(new EncodedRel(new Dictionary(), r), 3, 10, 99);
+        checkProbes(r.freeze(), 3, 10, 99);
+        checkProbes(new ArrayRel(r), 3, 10, 99);
+        ArrayRel small = new ArrayRel();
+        small.add(1, 2);
+        small.add(1, 3);
+        checkProbes(small, 1, 3, 99);
+        BitMatrixRel b = new BitMatrixRel();
+        b.addAll(r);
+        checkProbes(b, 3, 10, 99);
+        checkProbes(r.equivalenceClosure(), 3, 10, 99);
+        PartitionedRel p = new PartitionedRel(4);
+        p.addAll(r);
+        checkProbes(p, 3, 10, 99);
+
+        Cursor c = new HashRel().cursor();
+        assertFalse(c.next());
+        try {
+            c.x();
+            fail();
+        } catch (java.util.NoSuchElementException e) {
+        }
+    }
+
+    public void testInverseView() {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        r.add("fred","jane");
+        r.add("fred","mary");
+        Relation inv = r.inverse();
+        assertSame(r, inv.inverse());
+        assertTrue(inv.contains(new Maplet("jane","tom")));
+        assertEquals(3, inv.size());
+        assertEquals(new HashSet(Arrays.asList("tom","fred")), inv.image(new HashSet(Arrays.asList("jane"))));
+        assertEquals(r.range(), inv.domain());
+        assertFalse(inv.isFunction());
+        r.add("harry","sue");
+        assertTrue(inv.contains(new Maplet("sue","harry")));
+        r.add("tom","kim");
+        assertTrue(inv.contains(new Maplet("kim","tom")));
+        Relation restricted = inv.domainRestriction(new HashSet(Arrays.asList("jane")));
+        assertEquals(2, restricted.size());
+        assertTrue(restricted.contains(new Maplet("jane","fred")));
+        assertEquals(2, ((java.util.Set) inv.asMultimap().get("jane")).size());
+        assertEquals(r.statistics().domainSize(), inv.statistics().rangeSize());
+        assertTrue(inv.reaches("kim","tom"));
+        TupleRelation t = new Join("y","x").atom(inv, "y", "x").evaluate();
+        assertEquals(inv.size(), t.size());
+        assertTrue(t.contains(new Tuple(new Object[] { "jane","tom" })));
+    }
+
+    public void testInverseViewIsReadOnly() {
+        Relation r = new HashRel();
+        r.add("tom","jane");
+        Relation inv = r.inverse();
+        try { inv.add("kim","tom"); fail("add"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        try { inv.remove(new Maplet("jane","tom")); fail("remove"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        try { inv.clear(); fail("clear"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        try { inv.addAll(r); fail("addAll"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        java.util.Iterator it = inv.iterator();
+        it.next();
+        try { it.remove(); fail("iterator"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        assertEquals(1, r.size());
+        assertTrue(r.contains("tom","jane"));
+
+        Function f = new HashFun();
+        f.add("a", 1);
+        f.add("b", 1);
+        try { f.inverse().add(1, "c"); fail("function"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        assertEquals(2, f.size());
+    }
+}
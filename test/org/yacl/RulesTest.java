@@ -0,0 +1,69 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Arrays;
+
+public class RulesTest extends TestCase {
+
+    private Relation parent() {
+        Relation parent = new HashRel();
+        parent.add("tom","jane");
+        parent.add("fred","mary");
+        parent.add("tom","kim");
+        parent.add("mary","eve");
+        parent.add("eve","ron");
+        return parent;
+    }
+
+    public void testAncestor() {
+        Relation parent = parent();
+        Rules rules = new Rules();
+        rules.rule("ancestor","x","y").when(parent,"x","y");
+        rules.rule("ancestor","x","z").when(parent,"x","y").when("ancestor","y","z");
+        Function derived = rules.evaluate();
+        assertEquals(parent.transitiveClosure(), derived.getValue("ancestor"));
+    }
+
+    public void testNonLinear() {
+        Relation parent = parent();
+        Rules rules = new Rules();
+        rules.rule("ancestor","x","y").when(parent,"x","y");
+        rules.rule("ancestor","x","z").when("ancestor","x","y").when("ancestor","y","z");
+        assertEquals(parent.transitiveClosure(), rules.evaluate().getValue("ancestor"));
+    }
+
+    public void testNegation() {
+        Relation parent = parent();
+        Relation grant = new HashRel();
+        grant.add("fred","files");
+        Set revoked = new HashSet(Arrays.asList("eve"));
+
+        Rules rules = new Rules();
+        rules.rule("ancestor","x","y").when(parent,"x","y");
+        rules.rule("ancestor","x","z").when(parent,"x","y").when("ancestor","y","z");
+        rules.rule("access","u","r").when(grant,"u","r");
+        rules.rule("access","u","r").when(grant,"g","r").when("ancestor","g","u").unless(revoked,"u");
+        rules.rule("denied","u","r").when("ancestor","g","u").when(grant,"g","r").unless("access","u","r");
+        Function derived = rules.evaluate();
+
+        Relation access = new HashRel();
+        access.add("fred","files");
+        access.add("mary","files");
+        access.add("ron","files");
+        assertEquals(access, derived.getValue("access"));
+        Relation denied = new HashRel();
+        denied.add("eve","files");
+        assertEquals(denied, derived.getValue("denied"));
+    }
+
+    public void testErrors() {
+        Rules rules = new Rules();
+        rules.rule("p","x","y").when("q","x","y");
+        rules.rule("q","x","y").when(new HashRel(),"x","y").unless("p","x","y");
+        try { rules.evaluate(); fail("not stratifiable"); } catch (IllegalStateException e) { assertTrue(true); }
+
+        rules = new Rules();
+        rules.rule("p","x","z").when(new HashRel(),"x","y");
+        try { rules.evaluate(); fail("unsafe"); } catch (IllegalStateException e) { assertTrue(true); }
+    }
+}
@@ -83,4 +83,86 @@ public class SetTest extends TestCase {
         assertEquals(result, new HashSet(Arrays.asList("mary","harry")));
     }
 
-}
\ No newline at end of file
+    public void testModificationCount() {
+        HashSet s = new HashSet(Arrays.asList(1, 2, 3, 4));
+        long count = s.modificationCount();
+        s.add(1);
+        s.remove(9);
+        assertEquals(count, s.modificationCount());
+        s.add(5);
+        s.remove(1);
+        assertEquals(count + 2, s.modificationCount());
+        s.removeIf(x -> ((Integer) x) > 3);
+        assertEquals(count + 4, s.modificationCount());
+        s.retainAll(Arrays.asList(2));
+        assertEquals(count + 5, s.modificationCount());
+        s.clear();
+        assertEquals(count + 6, s.modificationCount());
+    }
+
+    public void testHashAndFingerprint() {
+        HashSet s = new HashSet(Arrays.asList("a", "b", "c"));
+        java.util.Set plain = new java.util.HashSet(Arrays.asList("a", "b", "c"));
+        assertEquals(plain.hashCode(), s.hashCode());
+        s.add("d");
+        s.remove("a");
+        for (java.util.Iterator i = s.iterator(); i.hasNext(); ) {
+            if (i.next().equals("b")) i.remove();
+        }
+        plain = new java.util.HashSet(Arrays.asList("c", "d"));
+        assertEquals(plain.hashCode(), s.hashCode());
+        assertEquals(s, plain);
+        assertEquals(plain, s);
+        HashSet t = new HashSet(Arrays.asList("d", "c"));
+        assertEquals(s, t);
+        assertTrue(Arrays.equals(t.fingerprint(), s.fingerprint()));
+        s.clear();
+        assertEquals(0, s.hashCode());
+        assertTrue(Arrays.equals(new HashSet().fingerprint(), s.fingerprint()));
+
+        // {1,4} and {2,3} have the same size and hash code, and are told apart
+        // by their fingerprints without probing either
+        final int[] probes = new int[1];
+        HashSet a = new HashSet() {
+            public boolean contains(Object o) {
+                ++probes[0];
+                return super.contains(o);
+            }
+        };
+        a.add(1);
+        a.add(4);
+        HashSet b = new HashSet(Arrays.asList(2, 3));
+        assertEquals(a.hashCode(), b.hashCode());
+        assertFalse(a.equals(b));
+        assertFalse(b.isSubsetOf(a));
+        assertFalse(b.isSubsetOf(new HashSet(Arrays.asList(2))));
+        assertEquals(0, probes[0]);
+        assertTrue(new HashSet(Arrays.asList(4)).isSubsetOf(a));
+        assertTrue(new HashSet(Arrays.asList(4, 1)).isSubsetOf(a));
+    }
+
+    public void testAdaptiveOperations() {
+        Set big = new HashSet();
+        for (int i = 0; i < 1000; i++) big.add(i);
+        Set small = new HashSet(Arrays.asList(5, 50, 5000));
+        assertEquals(new HashSet(Arrays.asList(5, 50)), big.intersection(small));
+        assertEquals(new HashSet(Arrays.asList(5, 50)), small.intersection(big));
+        assertEquals(new HashSet(Arrays.asList(5000)), small.difference(big));
+        assertEquals(998, big.difference(small).size());
+        assertEquals(1001, big.union(small).size());
+    }
+
+    public void testKWay() {
+        Set a = new HashSet(Arrays.asList(1, 2, 3, 4));
+        Set b = new HashSet(Arrays.asList(2, 3, 4, 5));
+        Set c = new HashSet(Arrays.asList(3, 4, 6));
+        assertEquals(new HashSet(Arrays.asList(3, 4)), a.intersectAll(Arrays.asList(b, c)));
+        assertEquals(new HashSet(Arrays.asList(1, 2, 3, 4, 5, 6)), a.unionAll(Arrays.asList(b, c)));
+        assertEquals(a, a.unionAll(Collections.emptyList()));
+        assertEquals(a, a.intersectAll(Collections.emptyList()));
+        assertTrue(Set.intersectionOf(a, b, new HashSet()).isEmpty());
+        Set d = new ArraySet(a);
+        assertEquals(new HashSet(Arrays.asList(3, 4)), Set.intersectionOf(d, b, c));
+        assertEquals(6, Set.unionOf(d, b, c).size());
+    }
+}
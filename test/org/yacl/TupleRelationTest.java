@@ -0,0 +1,102 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Arrays;
+
+public class TupleRelationTest extends TestCase {
+
+    public void testAdd() {
+        TupleRelation r = new HashTupleRel(3);
+        r.add("tom","jane","car");
+        r.add(new Tuple("tom","jane","car"));
+        assertEquals(1, r.size());
+        try { r.add("tom","jane"); fail("arity"); } catch (IllegalArgumentException e) { assertTrue(true); }
+        assertEquals(1, r.size());
+    }
+
+    public void testProject() {
+        TupleRelation r = new HashTupleRel(3);
+        r.add("a","b","c");
+        r.add("a","d","c");
+        TupleRelation expected = new HashTupleRel(2);
+        expected.add("c","a");
+        assertEquals(expected, r.project(2,0));
+
+        Relation rel = new HashRel();
+        rel.add("a","b");
+        rel.add("a","d");
+        assertEquals(rel, r.toRelation(0,1));
+    }
+
+    public void testTriangles() {
+        Relation e = new HashRel();
+        e.add("a","b");
+        e.add("b","c");
+        e.add("a","c");
+        e.add("c","d");
+        e.add("b","d");
+
+        TupleRelation triangles = new Join("x","y","z")
+            .atom(e,"x","y")
+            .atom(e,"y","z")
+            .atom(e,"x","z")
+            .evaluate();
+
+        TupleRelation expected = new HashTupleRel(3);
+        expected.add("a","b","c");
+        expected.add("b","c","d");
+        assertEquals(expected, triangles);
+    }
+
+    public void testJoinReadsRelationsWhenEvaluated() {
+        Relation e = new HashRel();
+        TupleRelation t = new HashTupleRel(2);
+        Join join = new Join("x","y").atom(e,"x","y").atom(t,"y","x");
+        assertTrue(join.evaluate().isEmpty());
+        e.add("a","b");
+        t.add("b","a");
+        TupleRelation expected = new HashTupleRel(2);
+        expected.add("a","b");
+        assertEquals(expected, join.evaluate());
+        e.clear();
+        e.add("c","d");
+        t.add("d","c");
+        expected = new HashTupleRel(2);
+        expected.add("c","d");
+        assertEquals(expected, join.evaluate());
+    }
+
+    public void testMixedAtoms() {
+        Relation owns = new HashRel();
+        owns.add("tom","car");
+        owns.add("fred","truck");
+        owns.add("tom","bike");
+
+        TupleRelation made = new HashTupleRel(3);
+        made.add("car","acme",1999);
+        made.add("bike","zoom",2005);
+        made.add("truck","acme",2010);
+
+        Relation located = new HashRel();
+        located.add("acme","detroit");
+        located.add("zoom","osaka");
+
+        // "thing" is bound before "person", so owns is read through its range index
+        TupleRelation actual = new Join("thing","person","maker","city","year")
+            .atom(owns,"person","thing")
+            .atom(made,"thing","maker","year")
+            .atom(located,"maker","city")
+            .evaluate();
+        assertEquals(3, actual.size());
+        assertTrue(actual.contains(new Tuple("car","tom","acme","detroit",1999)));
+        assertTrue(actual.contains(new Tuple("bike","tom","zoom","osaka",2005)));
+        assertTrue(actual.contains(new Tuple("truck","fred","acme","detroit",2010)));
+    }
+
+    public void testVariables() {
+        try { new Join("x").atom(new HashRel(),"x","y"); fail("y"); } catch (IllegalArgumentException e) { assertTrue(true); }
+        try { new Join("x","y").atom(new HashRel(),"x","x"); fail("x,x"); } catch (IllegalArgumentException e) { assertTrue(true); }
+        try { new Join("x","y").atom(new HashRel(),"x","y").evaluate(); } catch (IllegalStateException e) { fail("x,y"); }
+        try { new Join("x","y","z").atom(new HashRel(),"x","y").evaluate(); fail("z"); } catch (IllegalStateException e) { assertTrue(true); }
+    }
+}
@@ -0,0 +1,106 @@
+package org.yacl;
+
+import junit.framework.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ViewTest extends TestCase {
+
+    private void mutate(ObservableRelation r, Random random) {
+        for (int i = 0; i < 200; ++i) {
+            Maplet m = new Maplet(random.nextInt(8), random.nextInt(8));
+            if (random.nextBoolean()) r.add(m); else r.remove(m);
+        }
+    }
+
+    public void testComposition() {
+        Random random = new Random(1);
+        ObservableRel q = new ObservableRel();
+        ObservableRel r = new ObservableRel();
+        mutate(q, random);
+        CompositionView v = new CompositionView(q, r);
+        for (int i = 0; i < 20; ++i) {
+            mutate(i % 2 == 0 ? q : r, random);
+            assertEquals(q.composition(r), v);
+        }
+        v.detach();
+        r.add(100, 100);
+        q.add(100, 100);
+        assertFalse(v.contains(new Maplet(100, 100)));
+    }
+
+    public void testSelfComposition() {
+        Random random = new Random(2);
+        ObservableRel q = new ObservableRel();
+        CompositionView v = new CompositionView(q, q);
+        for (int i = 0; i < 20; ++i) {
+            q.begin();
+            mutate(q, random);
+            q.commit();
+            assertEquals(q.composition(q), v);
+        }
+    }
+
+    public void testOverride() {
+        Random random = new Random(3);
+        ObservableRel q = new ObservableRel();
+        ObservableFun r = new ObservableFun();
+        mutate(q, random);
+        OverrideView v = new OverrideView(q, r);
+        for (int i = 0; i < 20; ++i) {
+            if (i % 2 == 0) mutate(q, random);
+            else r.put(random.nextInt(8), random.nextInt(8));
+            assertEquals(q.override(r), v);
+        }
+    }
+
+    public void testDomainRestriction() {
+        Random random = new Random(4);
+        ObservableRel r = new ObservableRel();
+        Set s = new HashSet(Arrays.asList(1, 2, 3));
+        DomainRestrictionView v = new DomainRestrictionView(r, s);
+        for (int i = 0; i < 20; ++i) {
+            mutate(r, random);
+            if (i % 3 == 0) { v.restrict(i % 8); s.add(i % 8); }
+            if (i % 5 == 0) { v.unrestrict(i % 7); s.remove(i % 7); }
+            assertEquals(r.domainRestriction(s), v);
+        }
+    }
+
+    public void testChainedAndReadOnly() {
+        ObservableRel q = new ObservableRel();
+        ObservableRel r = new ObservableRel();
+        CompositionView qr = new CompositionView(q, r);
+        CompositionView qrr = new CompositionView(qr, r);
+        q.add("a","b");
+        r.add("b","c");
+        r.add("c","d");
+        assertTrue(qrr.contains(new Maplet("a","d")));
+        try { qr.add(new Maplet("x","y")); fail("read only"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        try { qr.clear(); fail("read only"); } catch (UnsupportedOperationException e) { assertTrue(true); }
+        assertTrue(qr.domain().contains("a"));
+    }
+
+    public void testChainedOverSharedInput() {
+        ObservableRel q = new ObservableRel();
+        ObservableRel r = new ObservableRel();
+        CompositionView qr = new CompositionView(q, r);
+        CompositionView qrr = new CompositionView(qr, r);
+        q.add("a","b");
+        r.add("b","b");
+        assertEquals(qr.composition(r), qrr);
+        r.remove(new Maplet("b","b"));
+        assertTrue(qrr.isEmpty());
+
+        Random random = new Random(5);
+        CompositionView qq = new CompositionView(q, q);
+        CompositionView qqq = new CompositionView(qq, q);
+        CompositionView rqr = new CompositionView(new CompositionView(r, qr), r);
+        for (int i = 0; i < 30; ++i) {
+            mutate(i % 2 == 0 ? q : r, random);
+            assertEquals(qr.composition(r), qrr);
+            assertEquals(q.composition(q).composition(q), qqq);
+            assertEquals(r.composition(q).composition(r).composition(r), rqr);
+        }
+    }
+}
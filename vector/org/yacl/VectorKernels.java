@@ -0,0 +1,155 @@
+package org.yacl;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ The loops of {@link BitKernels} on the incubating Vector API, a whole vector
+ register of words per step: four words with AVX2, eight with AVX-512. Words
+ left over at the end are handled one at a time.<p>
+
+ The Vector API of JDK 17 has no lanewise population count, so counts are
+ taken by the usual shift-and-mask reduction: the bits of each byte are summed
+ in pairs, then in nibbles, into the byte. The byte counts of up to 31 vectors
+ are added up before they could overflow a byte, and only then summed across
+ the bytes and lanes.<p>
+
+ This class is compiled with <code>--add-modules jdk.incubator.vector</code>,
+ apart from the rest of the library, and loaded by <code>BitKernels</code>
+ only if the module is present at run time.
+
+ @author Brad Long
+**/
+final class VectorKernels implements BitKernels.Words {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    /* Vectors whose byte counts, at most 8 each, can be summed in a byte. */
+    private static final int FOLD = 31;
+
+    public int width() {
+        return SPECIES.vectorBitSize();
+    }
+
+    public int and(long[] a, long[] b, long[] out, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        long count = 0;
+        while (i < bound) {
+            int end = Math.min(bound, i + FOLD * LANES);
+            LongVector bytes = LongVector.zero(SPECIES);
+            for (; i < end; i += LANES) {
+                LongVector w = LongVector.fromArray(SPECIES, a, i).and(LongVector.fromArray(SPECIES, b, i));
+                w.intoArray(out, i);
+                bytes = bytes.add(byteCounts(w));
+            }
+            count += sum(bytes);
+        }
+        for (; i < n; i++) {
+            long w = a[i] & b[i];
+            out[i] = w;
+            count += Long.bitCount(w);
+        }
+        return (int) count;
+    }
+
+    public int or(long[] a, long[] b, long[] out, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        long count = 0;
+        while (i < bound) {
+            int end = Math.min(bound, i + FOLD * LANES);
+            LongVector bytes = LongVector.zero(SPECIES);
+            for (; i < end; i += LANES) {
+                LongVector w = LongVector.fromArray(SPECIES, a, i).or(LongVector.fromArray(SPECIES, b, i));
+                w.intoArray(out, i);
+                bytes = bytes.add(byteCounts(w));
+            }
+            count += sum(bytes);
+        }
+        for (; i < n; i++) {
+            long w = a[i] | b[i];
+            out[i] = w;
+            count += Long.bitCount(w);
+        }
+        return (int) count;
+    }
+
+    public int andNot(long[] a, long[] b, long[] out, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        long count = 0;
+        while (i < bound) {
+            int end = Math.min(bound, i + FOLD * LANES);
+            LongVector bytes = LongVector.zero(SPECIES);
+            for (; i < end; i += LANES) {
+                // XOR with ones rather than AND_NOT or not(), which JDK 17 does not intrinsify for AVX2
+                LongVector w = LongVector.fromArray(SPECIES, a, i)
+                    .and(LongVector.fromArray(SPECIES, b, i).lanewise(VectorOperators.XOR, -1L));
+                w.intoArray(out, i);
+                bytes = bytes.add(byteCounts(w));
+            }
+            count += sum(bytes);
+        }
+        for (; i < n; i++) {
+            long w = a[i] & ~b[i];
+            out[i] = w;
+            count += Long.bitCount(w);
+        }
+        return (int) count;
+    }
+
+    public void orInto(long[] dst, long[] src, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        for (; i < bound; i += LANES) {
+            LongVector.fromArray(SPECIES, dst, i).or(LongVector.fromArray(SPECIES, src, i)).intoArray(dst, i);
+        }
+        for (; i < n; i++) dst[i] |= src[i];
+    }
+
+    public int popcount(long[] a, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        long count = 0;
+        while (i < bound) {
+            int end = Math.min(bound, i + FOLD * LANES);
+            LongVector bytes = LongVector.zero(SPECIES);
+            for (; i < end; i += LANES) bytes = bytes.add(byteCounts(LongVector.fromArray(SPECIES, a, i)));
+            count += sum(bytes);
+        }
+        for (; i < n; i++) count += Long.bitCount(a[i]);
+        return (int) count;
+    }
+
+    public int andCount(long[] a, long[] b, int n) {
+        int i = 0, bound = SPECIES.loopBound(n);
+        long count = 0;
+        while (i < bound) {
+            int end = Math.min(bound, i + FOLD * LANES);
+            LongVector bytes = LongVector.zero(SPECIES);
+            for (; i < end; i += LANES) {
+                bytes = bytes.add(byteCounts(LongVector.fromArray(SPECIES, a, i).and(LongVector.fromArray(SPECIES, b, i))));
+            }
+            count += sum(bytes);
+        }
+        for (; i < n; i++) count += Long.bitCount(a[i] & b[i]);
+        return (int) count;
+    }
+
+    /*
+     * Returns the number of bits set in each byte of a vector, in that byte.
+     */
+    private static LongVector byteCounts(LongVector x) {
+        x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        return x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+    }
+
+    /*
+     * Returns the sum of the bytes of a vector.
+     */
+    private static long sum(LongVector bytes) {
+        LongVector x = bytes.and(0x00FF00FF00FF00FFL).add(bytes.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF00FF00FFL));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 16));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 32));
+        return x.and(0xFFFFL).reduceLanes(VectorOperators.ADD);
+    }
+}